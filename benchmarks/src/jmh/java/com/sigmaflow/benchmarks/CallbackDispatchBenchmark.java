@@ -0,0 +1,89 @@
+package com.sigmaflow.benchmarks;
+
+import com.ib.client.Bar;
+import com.ib.client.Contract;
+import com.ib.client.Decimal;
+import com.ib.client.TickAttrib;
+import com.ib.client.TickType;
+import com.sigmaflow.api.AsyncIbClient;
+import com.sigmaflow.api.EWrapperImpl;
+import com.sigmaflow.api.RequestFuture;
+import com.sigmaflow.api.StreamListener;
+import com.sigmaflow.api.Subscription;
+import com.sigmaflow.data.MarketData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Callback dispatch from {@link EWrapperImpl} into the pending requests of its {@link AsyncIbClient}, as driven by
+ * the EReader thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CallbackDispatchBenchmark {
+
+    private static final String TICKER = "BENCH";
+
+    private EWrapperImpl api;
+    private Contract contract;
+    private TickAttrib tickAttrib;
+    private Subscription marketData;
+    private Bar priceBar;
+    private int historicalDataReqId;
+    private RequestFuture<List<Bar>> historicalData;
+
+    @Setup
+    public void setUp() {
+        api = new EWrapperImpl();
+        contract = new Contract();
+        contract.symbol(TICKER);
+        tickAttrib = new TickAttrib();
+        priceBar = new Bar("20240102", 101, 103, 99, 102, Decimal.get(1_000_000), 5000, Decimal.get(101.5));
+        // Registered before it is sent, so its ticks are dispatched although the client is not connected
+        marketData = api.getAsyncClient().marketData(contract, "", new StreamListener() {
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        marketData.cancel();
+    }
+
+    /** A fresh request per iteration, so the collected bars do not grow without bound. */
+    @Setup(Level.Iteration)
+    public void startHistoricalRequest() {
+        // The client is not connected, so the request is never answered
+        historicalData = api.getAsyncClient().historicalBars(MarketData.RequestType.HISTORICAL_DATA, contract, "", "1 M", "1 day",
+                "TRADES", Duration.ofDays(1));
+        historicalDataReqId = historicalData.reqId();
+    }
+
+    @TearDown(Level.Iteration)
+    public void cancelHistoricalRequest() {
+        historicalData.cancel(false);
+    }
+
+    /** A BID tick on an underlying subscription: dispatch without a state change. */
+    @Benchmark
+    public void tickPrice() {
+        api.tickPrice(marketData.reqId(), TickType.BID.ordinal(), 101.25, tickAttrib);
+    }
+
+    /** A daily bar of an outstanding historical request: lookup of the request and append to its bars. */
+    @Benchmark
+    public void historicalDataBar() {
+        api.historicalData(historicalDataReqId, priceBar);
+    }
+}
@@ -0,0 +1,94 @@
+package com.sigmaflow.benchmarks;
+
+import com.sigmaflow.api.EWrapperImpl;
+import com.sigmaflow.data.MarketData;
+import com.sigmaflow.data.OptionChainIndex;
+import com.sigmaflow.data.OptionChainParams;
+import com.sigmaflow.report.ReportPublisher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Option chain indexing, filtering in {@link MarketData#applyOptionChain} and contract lookups for a chain shaped
+ * like a liquid single-stock chain (weekly expirations for a year, strikes in 2.5 steps).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OptionChainFilterBenchmark {
+
+    private static final String TICKER = "BENCH";
+
+    private ReportPublisher reportPublisher;
+    private MarketData marketData;
+    private Set<String> expirations;
+    private Set<Double> strikes;
+    private OptionChainParams optionChain;
+    private OptionChainIndex index;
+    private LocalDate today;
+    private int twoWeeksOut;
+
+    @Setup
+    public void setUp() {
+        // Nothing is published; the publisher only has to be stopped with the benchmark
+        reportPublisher = new ReportPublisher();
+        marketData = new MarketData(MarketData.DataSource.LIVE, new String[]{TICKER}, new EWrapperImpl(), reportPublisher);
+        marketData.setUnderlyingPrice(TICKER, 250.0);
+
+        today = LocalDate.now();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
+        expirations = new HashSet<>();
+        for (int week = 0; week < 52; week++) {
+            expirations.add(today.plusWeeks(week).format(formatter));
+        }
+        strikes = new HashSet<>();
+        for (double strike = 50; strike <= 500; strike += 2.5) {
+            strikes.add(strike);
+        }
+        optionChain = new OptionChainParams(expirations, strikes);
+        index = optionChain.index();
+        twoWeeksOut = (int) today.plusWeeks(2).toEpochDay();
+    }
+
+    @TearDown
+    public void tearDown() {
+        reportPublisher.close();
+    }
+
+    @Benchmark
+    public OptionChainIndex buildIndex() {
+        return OptionChainIndex.of(expirations, strikes);
+    }
+
+    @Benchmark
+    public OptionChainIndex filterChain() {
+        return MarketData.filterChain(index, today, 250.0);
+    }
+
+    @Benchmark
+    public int nearestContract() {
+        return index.nearestExpiration(twoWeeksOut) * 31 + index.nearestStrike(251.3);
+    }
+
+    @Benchmark
+    public OptionChainIndex.Range deltaBucket() {
+        return index.deltaBucket(250.0, 0.3, 14 / 365.0, 0.045, 0.2, 0.3, true);
+    }
+
+    @Benchmark
+    public void applyOptionChain() {
+        marketData.applyOptionChain(TICKER, optionChain);
+    }
+}
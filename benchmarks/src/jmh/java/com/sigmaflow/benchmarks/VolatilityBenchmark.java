@@ -0,0 +1,72 @@
+package com.sigmaflow.benchmarks;
+
+import com.ib.client.Bar;
+import com.ib.client.Decimal;
+import com.sigmaflow.analytics.Volatility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pricing and volatility estimation paths of {@link Volatility}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VolatilityBenchmark {
+
+    @Param({"30", "252"})
+    public int barCount;
+
+    private final Volatility volatility = new Volatility();
+    private List<Bar> bars;
+    private double spot;
+    private double strike;
+    private double callPrice;
+    private double d;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        bars = new ArrayList<>(barCount);
+        double close = 100;
+        for (int i = 0; i < barCount; i++) {
+            close *= Math.exp(0.02 * random.nextGaussian());
+            bars.add(new Bar(String.valueOf(20240101 + i), close, close, close, close, Decimal.get(1000), 10, Decimal.get(close)));
+        }
+        spot = 100;
+        strike = 105;
+        callPrice = volatility.calculateOptionPrice(spot, strike, 0.1, 0.045, 0.35, "C");
+        d = 0.37;
+    }
+
+    @Benchmark
+    public double calculateOptionPrice() {
+        return volatility.calculateOptionPrice(spot, strike, 0.1, 0.045, 0.35, "C");
+    }
+
+    @Benchmark
+    public double cumulativeDistribution() {
+        return volatility.cumulativeDistribution(d);
+    }
+
+    @Benchmark
+    public double calculateHistoricalVolatility() {
+        return volatility.calculateHistoricalVolatility(bars);
+    }
+
+    @Benchmark
+    public double calculateImpliedVolatility() {
+        return volatility.calculateImpliedVolatility(spot, strike, 0.1, 0.045, callPrice, "C");
+    }
+}
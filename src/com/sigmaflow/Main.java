@@ -1,16 +1,33 @@
 package com.sigmaflow;
 
-import com.sigmaflow.api.EWrapperImpl;
+import com.sigmaflow.api.ClientPool;
+import com.sigmaflow.archive.HistoricalArchive;
+import com.sigmaflow.backtest.BacktestConfig;
+import com.sigmaflow.backtest.BacktestResult;
+import com.sigmaflow.backtest.Backtester;
 import com.sigmaflow.data.MarketData;
+import com.sigmaflow.metrics.MetricsExporter;
+import com.sigmaflow.report.CsvReportSink;
+import com.sigmaflow.report.JsonLinesReportSink;
+import com.sigmaflow.report.ReportPublisher;
+import com.sigmaflow.report.TextReportSink;
+import com.sigmaflow.snapshot.SnapshotReader;
 import com.sigmaflow.analytics.Volatility;
 import com.sigmaflow.strategy.VolatilityArbitrage;
 import com.sigmaflow.trading.OrderManager;
+import com.sigmaflow.universe.Screen;
+import com.sigmaflow.universe.UniverseEntry;
+import com.sigmaflow.universe.UniverseLoader;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -20,17 +37,31 @@ public class Main {
 
     private static final Logger logger = LogManager.getLogger(Main.class);
 
+    private static final Path ARCHIVE_DIRECTORY = Paths.get("data", "archive");
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    // TWS connections to shard the universe across, with client ids 0 to N-1 (-Dsigmaflow.ib.connections)
+    private static final int CONNECTIONS = Integer.getInteger("sigmaflow.ib.connections", 1);
+    private static final Path SNAPSHOT_FILE = Paths.get(System.getProperty("sigmaflow.snapshot", "data/snapshot/universe.snap"));
+
     public static void main(String[] args) {
         // --- Configuration ---
         // To run with live data and tickers from file: java com.sigmaflow.Main live data/finviz.csv
+        //   (screened at load time with -Dsigmaflow.screen.minMarketCap, minVolume, optionable and sectors)
         // To run with live data and specific tickers: java com.sigmaflow.Main live MSFT NVDA
         // To run with simulated data: java com.sigmaflow.Main simulated TSLA
+        // To backtest over the archive: java com.sigmaflow.Main backtest data/archive 20230101 20250101
         // Default is simulated with MSFT, NVDA, TSLA
 
         logger.info("Start Program...");
 
+        if (args.length > 0 && args[0].equalsIgnoreCase("backtest")) {
+            runBacktest(args);
+            return;
+        }
+
         MarketData.DataSource dataSource = MarketData.DataSource.SIMULATED;
         String[] tickers = {"MSFT", "NVDA", "TSLA"};
+        List<UniverseEntry> universe = List.of();
 
         if (args.length > 0) {
             if (args[0].equalsIgnoreCase("live")) {
@@ -41,7 +72,8 @@ public class Main {
                 String arg1 = args[1];
                 if (arg1.endsWith(".csv")) {
                     // Assume it's a file path
-                    tickers = readTickersFromCsv(arg1);
+                    universe = readUniverseFromCsv(arg1);
+                    tickers = universe.stream().map(UniverseEntry::ticker).toArray(String[]::new);
                 } else {
                     // Assume it's a list of tickers
                     tickers = Arrays.copyOfRange(args, 1, args.length);
@@ -56,21 +88,32 @@ public class Main {
         
         logger.info("Tickers: " + Arrays.toString(tickers));
 
+        MetricsExporter metricsExporter = MetricsExporter.startIfEnabled();
+
         // 1. Initialize the components
-        EWrapperImpl api = new EWrapperImpl();
-        MarketData marketData = new MarketData(dataSource, tickers, api);
+        ClientPool clients = new ClientPool(CONNECTIONS);
+        ReportPublisher reportPublisher = createReportPublisher();
+        MarketData marketData = new MarketData(dataSource, tickers, clients, reportPublisher);
+        for (UniverseEntry entry : universe) {
+            if (entry.industry() != null) {
+                marketData.setPeerGroup(entry.ticker(), entry.industry());
+            }
+        }
         Volatility volatility = new Volatility();
         OrderManager orderManager = new OrderManager();
         VolatilityArbitrage strategy = new VolatilityArbitrage();
 
         // 2. Connect to the Interactive Brokers API if needed
         if (dataSource == MarketData.DataSource.LIVE) {
-            api.connect("127.0.0.1", 7496, 0); // Use 7496 for TWS, 7497 for Paper, 4002 for IB Gateway
-            // Wait for the connection to be established
+            warmStart(marketData);
+            clients.connect("127.0.0.1", 7496, 0); // Use 7496 for TWS, 7497 for Paper, 4002 for IB Gateway
+            // Wait for TWS to report the connection ready (nextValidId); requests are held back until then anyway
             try {
-                Thread.sleep(1000);
+                if (!clients.awaitReady(CONNECT_TIMEOUT)) {
+                    logger.warn("TWS not ready after {}, requests will be sent once it is", CONNECT_TIMEOUT);
+                }
             } catch (InterruptedException e) {
-                logger.error("Error during sleep", e);
+                logger.error("Interrupted while connecting", e);
                 Thread.currentThread().interrupt();
                 return;
             }
@@ -87,35 +130,109 @@ public class Main {
             scanner.nextLine();
             
             logger.info("Disconnecting...");
-            api.disconnect();
+            marketData.stopStreaming();
+            clients.disconnect();
+
+            marketData.archiveHistory(ARCHIVE_DIRECTORY);
+            try {
+                marketData.exportSnapshot(SNAPSHOT_FILE);
+            } catch (IOException e) {
+                logger.error("Error exporting snapshot to " + SNAPSHOT_FILE, e);
+            }
         }
 
         // 4. Perform volatility calculations (to be implemented)
         // 5. Apply the trading strategy (to be implemented)
         // 6. Manage orders (to be implemented)
 
+        reportPublisher.close();
+
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
+
         logger.info("Volatility Arbitrage Trading Application shutting down.");
     }
 
-    private static String[] readTickersFromCsv(String filePath) {
-        List<String> tickers = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            // Skip header
-            br.readLine();
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(",");
-                if (values.length > 0) {
-                    // Assuming Ticker is the first column
-                    String ticker = values[0].trim().replace("\"", "");
-                    if (!ticker.isEmpty()) {
-                        tickers.add(ticker);
-                    }
-                }
+    /**
+     * Seeds resolved contracts and option chains from the snapshot of the previous run, if there is one.
+     */
+    private static void warmStart(MarketData marketData) {
+        if (!Files.exists(SNAPSHOT_FILE)) {
+            return;
+        }
+        try {
+            marketData.warmStart(SnapshotReader.open(SNAPSHOT_FILE));
+        } catch (IOException e) {
+            logger.error("Ignoring unreadable snapshot " + SNAPSHOT_FILE, e);
+        }
+    }
+
+    /**
+     * Console output is always on. Additional sinks are enabled with -Dsigmaflow.report.file=&lt;path&gt; (text),
+     * -Dsigmaflow.report.csv=&lt;directory&gt; and -Dsigmaflow.report.jsonl=&lt;path&gt;.
+     */
+    private static ReportPublisher createReportPublisher() {
+        ReportPublisher publisher = new ReportPublisher(TextReportSink.console());
+        String textFile = System.getProperty("sigmaflow.report.file");
+        String csvDirectory = System.getProperty("sigmaflow.report.csv");
+        String jsonLinesFile = System.getProperty("sigmaflow.report.jsonl");
+        try {
+            if (textFile != null) {
+                publisher.addSink(TextReportSink.toFile(Paths.get(textFile)));
+            }
+            if (csvDirectory != null) {
+                publisher.addSink(new CsvReportSink(Paths.get(csvDirectory)));
             }
+            if (jsonLinesFile != null) {
+                publisher.addSink(new JsonLinesReportSink(Paths.get(jsonLinesFile)));
+            }
+        } catch (IOException e) {
+            logger.error("Failed to open report output", e);
+        }
+        return publisher;
+    }
+
+    private static void runBacktest(String[] args) {
+        Path archiveDirectory = args.length > 1 ? Paths.get(args[1]) : ARCHIVE_DIRECTORY;
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
+        LocalDate from = args.length > 2 ? LocalDate.parse(args[2], formatter) : LocalDate.MIN;
+        LocalDate to = args.length > 3 ? LocalDate.parse(args[3], formatter) : LocalDate.MAX;
+
+        HistoricalArchive archive;
+        try {
+            archive = HistoricalArchive.load(archiveDirectory);
         } catch (IOException e) {
+            logger.error("Error loading backtest archive: " + archiveDirectory, e);
+            return;
+        }
+
+        // Sweep holding period and expiry around the live defaults
+        List<BacktestConfig> configs = new ArrayList<>();
+        BacktestConfig base = new BacktestConfig();
+        for (int holdingDays : new int[]{5, 10, 15}) {
+            for (int daysToExpiration : new int[]{7, 14, 30}) {
+                configs.add(base.withHoldingDays(holdingDays).withTargetDaysToExpiration(daysToExpiration));
+            }
+        }
+
+        Backtester backtester = new Backtester(archive);
+        List<BacktestResult> results = backtester.runSweep(configs, from, to);
+        backtester.shutdown();
+
+        System.out.printf("%-45s | %-12s | %-12s | %-8s | %-8s | %-8s%n", "Config", "Total P&L", "Max DD", "Sharpe", "Trades", "Win %");
+        for (BacktestResult result : results) {
+            System.out.printf("%-45s | %-12.2f | %-12.2f | %-8.2f | %-8d | %-8.1f%n", result.getConfig(), result.getTotalPnL(),
+                    result.getMaxDrawdown(), result.getSharpeRatio(), result.getTrades(), result.getWinRate() * 100);
+        }
+    }
+
+    private static List<UniverseEntry> readUniverseFromCsv(String filePath) {
+        try {
+            return UniverseLoader.load(Paths.get(filePath), Screen.fromSystemProperties());
+        } catch (IOException | IllegalArgumentException e) {
             logger.error("Error reading CSV file: " + filePath, e);
+            return List.of();
         }
-        return tickers.toArray(new String[0]);
     }
 }
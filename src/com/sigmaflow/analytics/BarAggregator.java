@@ -0,0 +1,139 @@
+package com.sigmaflow.analytics;
+
+/**
+ * Builds fixed-interval OHLCV bars, aligned to multiples of the interval since the epoch, from finer bars or trades.
+ * A bar is emitted once input arrives for a later interval or time is advanced past its end; intervals without input
+ * produce no bar. Only the bar being built is kept, in primitive fields, so aggregation allocates nothing. Not
+ * thread-safe.
+ */
+public class BarAggregator {
+
+    /**
+     * Receives the completed bars.
+     */
+    public interface Listener {
+        /**
+         * @param start Start of the bar, in epoch seconds.
+         */
+        void onBar(long start, double open, double high, double low, double close, long volume);
+    }
+
+    private final long intervalSeconds;
+    private final Listener listener;
+
+    private boolean open;
+    private long start;
+    private double openPrice;
+    private double high;
+    private double low;
+    private double close;
+    private long volume;
+    private long lastEmittedStart = Long.MIN_VALUE;
+    private long bars;
+
+    /**
+     * @param intervalSeconds The bar length, e.g. 60 or 300.
+     */
+    public BarAggregator(long intervalSeconds, Listener listener) {
+        if (intervalSeconds <= 0) {
+            throw new IllegalArgumentException("Bar interval must be positive: " + intervalSeconds);
+        }
+        this.intervalSeconds = intervalSeconds;
+        this.listener = listener;
+    }
+
+    /**
+     * Adds a finer bar, e.g. a 5-second real-time bar, to the bar of the interval it starts in. Input for an
+     * interval already emitted is ignored.
+     *
+     * @param time Start of the finer bar, in epoch seconds.
+     */
+    public void addBar(long time, double open, double high, double low, double close, long volume) {
+        if (!roll(time)) {
+            return;
+        }
+        if (!this.open) {
+            start(time, open);
+        }
+        this.high = Math.max(this.high, high);
+        this.low = Math.min(this.low, low);
+        this.close = close;
+        this.volume += volume;
+    }
+
+    /**
+     * Adds a trade to the bar of the interval it falls in. Trades for an interval already emitted are ignored.
+     *
+     * @param time Time of the trade, in epoch seconds.
+     */
+    public void addTrade(long time, double price, long size) {
+        if (!roll(time)) {
+            return;
+        }
+        if (!open) {
+            start(time, price);
+        }
+        high = Math.max(high, price);
+        low = Math.min(low, price);
+        close = price;
+        volume += size;
+    }
+
+    /**
+     * Emits the bar being built if the time is at or past its end, so that the last bar of a burst need not wait
+     * for the next input.
+     */
+    public void advanceTo(long time) {
+        if (open && time >= start + intervalSeconds) {
+            emit();
+        }
+    }
+
+    /**
+     * Emits the bar being built if its interval ended before the time.
+     *
+     * @return False if the time falls in an interval already emitted.
+     */
+    private boolean roll(long time) {
+        long bucket = bucket(time);
+        if (bucket <= lastEmittedStart || (open && bucket < start)) {
+            return false;
+        }
+        if (open && bucket != start) {
+            emit();
+        }
+        return true;
+    }
+
+    private void start(long time, double price) {
+        open = true;
+        start = bucket(time);
+        openPrice = price;
+        high = price;
+        low = price;
+        close = price;
+        volume = 0;
+    }
+
+    private void emit() {
+        open = false;
+        lastEmittedStart = start;
+        bars++;
+        listener.onBar(start, openPrice, high, low, close, volume);
+    }
+
+    private long bucket(long time) {
+        return Math.floorDiv(time, intervalSeconds) * intervalSeconds;
+    }
+
+    public long getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    /**
+     * @return The number of bars emitted.
+     */
+    public long getBarCount() {
+        return bars;
+    }
+}
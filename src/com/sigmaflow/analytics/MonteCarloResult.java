@@ -0,0 +1,117 @@
+package com.sigmaflow.analytics;
+
+/**
+ * Summary of a simulated P&L distribution. Loss measures (VaR, expected shortfall) are reported as positive numbers.
+ */
+public class MonteCarloResult {
+
+    private static final double[] PERCENTILE_LEVELS = {0.01, 0.05, 0.25, 0.50, 0.75, 0.95, 0.99};
+
+    private final int paths;
+    private final double mean;
+    private final double stdDev;
+    private final double probabilityOfProfit;
+    private final double valueAtRisk95;
+    private final double valueAtRisk99;
+    private final double expectedShortfall95;
+    private final double expectedShortfall99;
+    private final double[] percentiles;
+    private final long elapsedNanos;
+
+    /**
+     * Builds the summary from the simulated P&L of every path.
+     *
+     * @param sortedPnL    P&L per path, sorted ascending.
+     * @param elapsedNanos Wall-clock time spent simulating.
+     */
+    MonteCarloResult(double[] sortedPnL, long elapsedNanos) {
+        int n = sortedPnL.length;
+        double sum = 0;
+        int profitable = 0;
+        for (double pnl : sortedPnL) {
+            sum += pnl;
+            if (pnl > 0) {
+                profitable++;
+            }
+        }
+        double mean = sum / n;
+        double sumOfSquaredDifferences = 0;
+        for (double pnl : sortedPnL) {
+            sumOfSquaredDifferences += (pnl - mean) * (pnl - mean);
+        }
+
+        this.paths = n;
+        this.mean = mean;
+        this.stdDev = n > 1 ? Math.sqrt(sumOfSquaredDifferences / (n - 1)) : 0;
+        this.probabilityOfProfit = (double) profitable / n;
+        this.valueAtRisk95 = -quantile(sortedPnL, 0.05);
+        this.valueAtRisk99 = -quantile(sortedPnL, 0.01);
+        this.expectedShortfall95 = -tailMean(sortedPnL, 0.05);
+        this.expectedShortfall99 = -tailMean(sortedPnL, 0.01);
+        this.percentiles = new double[PERCENTILE_LEVELS.length];
+        for (int i = 0; i < PERCENTILE_LEVELS.length; i++) {
+            percentiles[i] = quantile(sortedPnL, PERCENTILE_LEVELS[i]);
+        }
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    private static double quantile(double[] sorted, double level) {
+        int idx = (int) Math.floor(level * (sorted.length - 1));
+        return sorted[idx];
+    }
+
+    private static double tailMean(double[] sorted, double level) {
+        int count = Math.max(1, (int) Math.floor(level * sorted.length));
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += sorted[i];
+        }
+        return sum / count;
+    }
+
+    public int getPaths() {
+        return paths;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getStdDev() {
+        return stdDev;
+    }
+
+    public double getProbabilityOfProfit() {
+        return probabilityOfProfit;
+    }
+
+    public double getValueAtRisk95() {
+        return valueAtRisk95;
+    }
+
+    public double getValueAtRisk99() {
+        return valueAtRisk99;
+    }
+
+    public double getExpectedShortfall95() {
+        return expectedShortfall95;
+    }
+
+    public double getExpectedShortfall99() {
+        return expectedShortfall99;
+    }
+
+    /** P&L percentile levels matching {@link #getPercentiles()}. */
+    public static double[] getPercentileLevels() {
+        return PERCENTILE_LEVELS.clone();
+    }
+
+    /** P&L at the 1st, 5th, 25th, 50th, 75th, 95th and 99th percentile. */
+    public double[] getPercentiles() {
+        return percentiles.clone();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,215 @@
+package com.sigmaflow.analytics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Running cross-sectional statistics of one value per ticker (e.g. the last implied volatility), per peer group and
+ * over the whole universe. Setting a ticker's value updates its group's mean and variance in O(1) (Welford) and
+ * its median in O(log n) (two heaps), so the statistics can be kept current as tickers complete or their values
+ * change, without rescanning the universe.
+ * <p>
+ * Groups with fewer than {@code sigmaflow.peers.minGroupSize} (default 5) tickers are too small to compare against;
+ * their tickers are measured against the universe instead.
+ */
+public class PeerGroupStats {
+
+    public static final String UNIVERSE = "Universe";
+
+    private static final int MIN_GROUP_SIZE = Integer.getInteger("sigmaflow.peers.minGroupSize", 5);
+
+    /**
+     * The statistics a ticker is measured against.
+     *
+     * @param group  The peer group, or {@link #UNIVERSE} if the ticker's own group is too small or unknown.
+     * @param count  Tickers in the group.
+     * @param mean   Mean value of the group.
+     * @param median Median value of the group.
+     * @param stdDev Sample standard deviation of the group; NaN below two tickers.
+     */
+    public record Peers(String group, int count, double mean, double median, double stdDev) {
+
+        /**
+         * @return The value's distance from the group mean in standard deviations, or NaN if undefined.
+         */
+        public double zScore(double value) {
+            return stdDev > 0 ? (value - mean) / stdDev : Double.NaN;
+        }
+    }
+
+    private record Entry(String group, double value) {
+    }
+
+    // Guarded by this
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Group> groups = new HashMap<>();
+    private final Group universe = new Group();
+
+    /**
+     * Sets a ticker's value, replacing its previous value and group. A NaN value removes the ticker.
+     *
+     * @param group The peer group, e.g. the industry; null for none.
+     */
+    public synchronized void update(String ticker, String group, double value) {
+        remove(ticker);
+        if (Double.isNaN(value)) {
+            return;
+        }
+        entries.put(ticker, new Entry(group, value));
+        universe.add(value);
+        if (group != null) {
+            groups.computeIfAbsent(group, g -> new Group()).add(value);
+        }
+    }
+
+    public synchronized void remove(String ticker) {
+        Entry previous = entries.remove(ticker);
+        if (previous == null) {
+            return;
+        }
+        universe.remove(previous.value);
+        if (previous.group != null) {
+            Group group = groups.get(previous.group);
+            group.remove(previous.value);
+            if (group.count == 0) {
+                groups.remove(previous.group);
+            }
+        }
+    }
+
+    /**
+     * @return The statistics of the ticker's peer group, falling back to the universe; null if the ticker has no
+     * value.
+     */
+    public synchronized Peers peersOf(String ticker) {
+        Entry entry = entries.get(ticker);
+        if (entry == null) {
+            return null;
+        }
+        Group group = entry.group != null ? groups.get(entry.group) : null;
+        if (group == null || group.count < MIN_GROUP_SIZE) {
+            return universe.peers(UNIVERSE);
+        }
+        return group.peers(entry.group);
+    }
+
+    public synchronized Peers universe() {
+        return universe.peers(UNIVERSE);
+    }
+
+    /**
+     * @return The statistics of every group, regardless of size.
+     */
+    public synchronized Map<String, Peers> groups() {
+        Map<String, Peers> result = new HashMap<>();
+        groups.forEach((name, group) -> result.put(name, group.peers(name)));
+        return Collections.unmodifiableMap(result);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Running count, mean and sum of squared deviations, and the median over a max-heap of the lower half and a
+     * min-heap of the upper half. Removed values are deleted from the heaps lazily, when they reach the top.
+     */
+    private static final class Group {
+        private int count;
+        private double mean;
+        private double m2;
+
+        private final PriorityQueue<Double> lower = new PriorityQueue<>(Collections.reverseOrder());
+        private final PriorityQueue<Double> upper = new PriorityQueue<>();
+        private final Map<Double, Integer> pendingRemoval = new HashMap<>();
+        // Live elements per heap, excluding those pending removal
+        private int lowerSize;
+        private int upperSize;
+
+        void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+
+            if (lowerSize == 0 || value <= lower.peek()) {
+                lower.add(value);
+                lowerSize++;
+            } else {
+                upper.add(value);
+                upperSize++;
+            }
+            rebalance();
+        }
+
+        void remove(double value) {
+            if (count == 1) {
+                count = 0;
+                mean = 0;
+                m2 = 0;
+            } else {
+                double previousMean = (count * mean - value) / (count - 1);
+                m2 = Math.max(0, m2 - (value - mean) * (value - previousMean));
+                mean = previousMean;
+                count--;
+            }
+
+            pendingRemoval.merge(value, 1, Integer::sum);
+            if (value <= lower.peek()) {
+                lowerSize--;
+                if (value == lower.peek()) {
+                    prune(lower);
+                }
+            } else {
+                upperSize--;
+                if (value == upper.peek()) {
+                    prune(upper);
+                }
+            }
+            rebalance();
+        }
+
+        private void rebalance() {
+            if (lowerSize > upperSize + 1) {
+                upper.add(lower.poll());
+                lowerSize--;
+                upperSize++;
+                prune(lower);
+            } else if (upperSize > lowerSize) {
+                lower.add(upper.poll());
+                upperSize--;
+                lowerSize++;
+                prune(upper);
+            }
+        }
+
+        private void prune(PriorityQueue<Double> heap) {
+            while (!heap.isEmpty()) {
+                Integer pending = pendingRemoval.get(heap.peek());
+                if (pending == null) {
+                    return;
+                }
+                if (pending == 1) {
+                    pendingRemoval.remove(heap.peek());
+                } else {
+                    pendingRemoval.put(heap.peek(), pending - 1);
+                }
+                heap.poll();
+            }
+        }
+
+        double median() {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            return lowerSize > upperSize ? lower.peek() : (lower.peek() + upper.peek()) / 2;
+        }
+
+        Peers peers(String name) {
+            return new Peers(name, count, count > 0 ? mean : Double.NaN, median(),
+                    count > 1 ? Math.sqrt(m2 / (count - 1)) : Double.NaN);
+        }
+    }
+}
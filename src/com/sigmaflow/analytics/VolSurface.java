@@ -0,0 +1,269 @@
+package com.sigmaflow.analytics;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Implied volatility surface of one underlying, built up quote by quote. Each expiry keeps its quotes by strike and
+ * its ATM implied volatility (interpolated in strike around spot) and 25-delta call and put implied volatilities
+ * (interpolated in delta); a quote recomputes only its own expiry. Term structure and skew are derived from the
+ * per-expiry values.
+ */
+public class VolSurface {
+
+    private static final double SKEW_DELTA = 0.25;
+
+    /**
+     * Term structure and skew of the surface.
+     *
+     * @param atmImpVol       ATM implied volatility of the reference expiry, the one nearest 30 days.
+     * @param riskReversal25  25-delta call minus 25-delta put implied volatility of the reference expiry.
+     * @param butterfly25     Mean of the 25-delta implied volatilities minus ATM, of the reference expiry.
+     * @param termSlope       Least-squares slope of ATM implied volatility over days to expiry, per 30 days.
+     * @param expiries        Expiries with an ATM implied volatility.
+     */
+    public record Summary(double atmImpVol, double riskReversal25, double butterfly25, double termSlope, int expiries) {
+        public static final Summary EMPTY = new Summary(Double.NaN, Double.NaN, Double.NaN, Double.NaN, 0);
+    }
+
+    /**
+     * An expiry and strike chosen from the surface.
+     *
+     * @param expiration The expiry.
+     * @param strike     The listed strike nearest spot.
+     * @param impliedVol The expiry's ATM implied volatility.
+     */
+    public record Selection(LocalDate expiration, double strike, double impliedVol) {
+    }
+
+    /**
+     * Decides whether a contract may be traded, e.g. on its quote quality.
+     */
+    @FunctionalInterface
+    public interface ContractFilter {
+        ContractFilter ALL = (expirationDay, strike) -> true;
+
+        /**
+         * @param expirationDay The expiry, as an epoch day.
+         */
+        boolean test(int expirationDay, double strike);
+    }
+
+    private static final class Slice {
+        // Per strike: call IV, call delta, put IV, put delta; NaN until quoted
+        final NavigableMap<Double, double[]> quotes = new TreeMap<>();
+        double atmImpVol = Double.NaN;
+        double call25ImpVol = Double.NaN;
+        double put25ImpVol = Double.NaN;
+    }
+
+    // Guarded by this
+    private final NavigableMap<Integer, Slice> slices = new TreeMap<>();
+    private double spot = Double.NaN;
+
+    /**
+     * Sets the underlying price the ATM volatilities are measured at.
+     */
+    public synchronized void setSpot(double spot) {
+        this.spot = spot;
+        for (Slice slice : slices.values()) {
+            recompute(slice);
+        }
+    }
+
+    /**
+     * Adds or replaces the quote of one option.
+     *
+     * @param expiration The expiry.
+     * @param strike     The strike.
+     * @param call       Whether the option is a call.
+     * @param impliedVol Implied volatility, annualized.
+     * @param delta      Delta; positive for calls, negative for puts.
+     */
+    public synchronized void update(LocalDate expiration, double strike, boolean call, double impliedVol, double delta) {
+        Slice slice = slices.computeIfAbsent((int) expiration.toEpochDay(), e -> new Slice());
+        double[] quote = slice.quotes.computeIfAbsent(strike, k -> new double[]{Double.NaN, Double.NaN, Double.NaN, Double.NaN});
+        int offset = call ? 0 : 2;
+        quote[offset] = impliedVol;
+        quote[offset + 1] = delta;
+        recompute(slice);
+    }
+
+    private void recompute(Slice slice) {
+        slice.atmImpVol = atmImpVol(slice.quotes, spot);
+        slice.call25ImpVol = impVolAtDelta(slice.quotes, 0, SKEW_DELTA);
+        slice.put25ImpVol = impVolAtDelta(slice.quotes, 2, -SKEW_DELTA);
+    }
+
+    /**
+     * Interpolates linearly in strike between the quoted strikes around spot, using the mean of call and put
+     * implied volatility where both are quoted; beyond the quoted strikes the nearest one is used.
+     */
+    private static double atmImpVol(NavigableMap<Double, double[]> quotes, double spot) {
+        if (Double.isNaN(spot)) {
+            return Double.NaN;
+        }
+        Map.Entry<Double, double[]> below = quotes.floorEntry(spot);
+        while (below != null && Double.isNaN(strikeImpVol(below.getValue()))) {
+            below = quotes.lowerEntry(below.getKey());
+        }
+        Map.Entry<Double, double[]> above = quotes.ceilingEntry(spot);
+        while (above != null && Double.isNaN(strikeImpVol(above.getValue()))) {
+            above = quotes.higherEntry(above.getKey());
+        }
+        if (below == null && above == null) {
+            return Double.NaN;
+        }
+        if (below == null || above == null || below.getKey().equals(above.getKey())) {
+            return strikeImpVol((below != null ? below : above).getValue());
+        }
+        double weight = (spot - below.getKey()) / (above.getKey() - below.getKey());
+        return strikeImpVol(below.getValue()) * (1 - weight) + strikeImpVol(above.getValue()) * weight;
+    }
+
+    private static double strikeImpVol(double[] quote) {
+        boolean hasCall = !Double.isNaN(quote[0]);
+        boolean hasPut = !Double.isNaN(quote[2]);
+        if (hasCall && hasPut) {
+            return (quote[0] + quote[2]) / 2;
+        }
+        return hasCall ? quote[0] : quote[2];
+    }
+
+    /**
+     * Interpolates linearly in delta between the two adjacent quoted strikes whose deltas bracket the target.
+     *
+     * @param offset 0 for calls, 2 for puts.
+     * @return The implied volatility, or NaN if the quoted strikes do not reach the target delta.
+     */
+    private static double impVolAtDelta(NavigableMap<Double, double[]> quotes, int offset, double targetDelta) {
+        double previousDelta = Double.NaN;
+        double previousImpVol = Double.NaN;
+        for (double[] quote : quotes.values()) {
+            double impVol = quote[offset];
+            double delta = quote[offset + 1];
+            if (Double.isNaN(impVol) || Double.isNaN(delta)) {
+                continue;
+            }
+            if (delta == targetDelta) {
+                return impVol;
+            }
+            if (!Double.isNaN(previousDelta) && (previousDelta - targetDelta) * (delta - targetDelta) < 0) {
+                double weight = (targetDelta - previousDelta) / (delta - previousDelta);
+                return previousImpVol * (1 - weight) + impVol * weight;
+            }
+            previousDelta = delta;
+            previousImpVol = impVol;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * @return The ATM implied volatility of the expiry, or NaN if it has none.
+     */
+    public synchronized double atmImpVol(LocalDate expiration) {
+        Slice slice = slices.get((int) expiration.toEpochDay());
+        return slice != null ? slice.atmImpVol : Double.NaN;
+    }
+
+    public synchronized Summary summary(LocalDate today) {
+        int todayEpochDay = (int) today.toEpochDay();
+        Slice reference = null;
+        int referenceDistance = Integer.MAX_VALUE;
+        int count = 0;
+        double sumX = 0;
+        double sumY = 0;
+        double sumXX = 0;
+        double sumXY = 0;
+        for (Map.Entry<Integer, Slice> entry : slices.entrySet()) {
+            Slice slice = entry.getValue();
+            int days = entry.getKey() - todayEpochDay;
+            if (days < 0 || Double.isNaN(slice.atmImpVol)) {
+                continue;
+            }
+            count++;
+            sumX += days;
+            sumY += slice.atmImpVol;
+            sumXX += (double) days * days;
+            sumXY += days * slice.atmImpVol;
+            int distance = Math.abs(days - 30);
+            if (distance < referenceDistance) {
+                reference = slice;
+                referenceDistance = distance;
+            }
+        }
+        if (reference == null) {
+            return Summary.EMPTY;
+        }
+        double denominator = count * sumXX - sumX * sumX;
+        double termSlope = count > 1 && denominator > 0 ? (count * sumXY - sumX * sumY) / denominator * 30 : Double.NaN;
+        return new Summary(reference.atmImpVol,
+                reference.call25ImpVol - reference.put25ImpVol,
+                (reference.call25ImpVol + reference.put25ImpVol) / 2 - reference.atmImpVol,
+                termSlope, count);
+    }
+
+    /**
+     * Picks the expiry to trade: for long volatility the one with the lowest ATM implied volatility, for short
+     * volatility the highest, among the expiries between {@code minDays} and {@code maxDays} from today; ties go to
+     * the nearer expiry. The strike is the quoted strike nearest spot.
+     *
+     * @return The selection, or null if no expiry in range has an ATM implied volatility.
+     */
+    public Selection select(LocalDate today, int minDays, int maxDays, boolean longVolatility) {
+        return select(today, minDays, maxDays, longVolatility, ContractFilter.ALL);
+    }
+
+    /**
+     * As {@link #select(LocalDate, int, int, boolean)}, trading only contracts that pass the filter: the strike is
+     * the quoted strike nearest spot that passes, and expiries without one are skipped.
+     */
+    public synchronized Selection select(LocalDate today, int minDays, int maxDays, boolean longVolatility,
+                                         ContractFilter filter) {
+        int todayEpochDay = (int) today.toEpochDay();
+        Map.Entry<Integer, Slice> best = null;
+        double bestStrike = Double.NaN;
+        for (Map.Entry<Integer, Slice> entry : slices.subMap(todayEpochDay + minDays, true, todayEpochDay + maxDays, true).entrySet()) {
+            double impVol = entry.getValue().atmImpVol;
+            if (Double.isNaN(impVol)) {
+                continue;
+            }
+            if (best == null || (longVolatility ? impVol < best.getValue().atmImpVol : impVol > best.getValue().atmImpVol)) {
+                double strike = nearestStrike(entry.getValue().quotes, entry.getKey(), filter);
+                if (!Double.isNaN(strike)) {
+                    best = entry;
+                    bestStrike = strike;
+                }
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        return new Selection(LocalDate.ofEpochDay(best.getKey()), bestStrike, best.getValue().atmImpVol);
+    }
+
+    /**
+     * Walks the quoted strikes outward from spot, the nearer side first.
+     *
+     * @return The nearest strike passing the filter, or NaN if none does.
+     */
+    private double nearestStrike(NavigableMap<Double, double[]> quotes, int expirationDay, ContractFilter filter) {
+        Double below = quotes.floorKey(spot);
+        Double above = quotes.higherKey(below != null ? below : spot);
+        while (below != null || above != null) {
+            boolean takeBelow = above == null || (below != null && spot - below <= above - spot);
+            double strike = takeBelow ? below : above;
+            if (filter.test(expirationDay, strike)) {
+                return strike;
+            }
+            if (takeBelow) {
+                below = quotes.lowerKey(below);
+            } else {
+                above = quotes.higherKey(above);
+            }
+        }
+        return Double.NaN;
+    }
+}
@@ -11,6 +11,11 @@ public class Volatility {
 
     private static final Logger logger = LogManager.getLogger(Volatility.class);
 
+    private static final double MIN_VOLATILITY = 1e-4;
+    private static final double MAX_VOLATILITY = 5.0;
+    private static final double PRICE_TOLERANCE = 1e-8;
+    private static final int MAX_ITERATIONS = 100;
+
     /**
      * Calculates the historical volatility from a list of historical bars.
      * Historical volatility is typically calculated as the standard deviation of log returns.
@@ -55,24 +60,54 @@ public class Volatility {
     }
 
     /**
-     * Placeholder for calculating implied volatility using the Black-Scholes model.
-     * This is a complex calculation often requiring an iterative solver.
+     * Calculates the implied volatility of a European option by inverting the Black-Scholes formula.
+     * Uses Newton-Raphson on vega and falls back to bisection when a step leaves the bracket.
      *
      * @param S The current price of the underlying asset.
      * @param K The strike price of the option.
      * @param T The time to expiration (in years).
      * @param r The risk-free interest rate (annualized).
      * @param optionPrice The market price of the option.
-     * @param optionType The type of option ("call" or "put").
-     * @return The implied volatility.
+     * @param optionType The type of option ("C" for Call, "P" for Put).
+     * @return The implied volatility, or NaN if the price is outside the no-arbitrage bounds.
      */
     public double calculateImpliedVolatility(double S, double K, double T, double r, double optionPrice, String optionType) {
-        // This is a placeholder. A full implementation would involve an iterative solver
-        // (e.g., Newton-Raphson) to find the volatility that makes the Black-Scholes
-        // price equal to the market price.
-        logger.info("Calculating Implied Volatility (placeholder)...");
-        logger.info(String.format("S: %f, K: %f, T: %f, r: %f, Option Price: %f, Type: %s", S, K, T, r, optionPrice, optionType));
-        return 0.0; // Return 0.0 for now
+        double discountedStrike = K * Math.exp(-r * T);
+        boolean isCall = "C".equalsIgnoreCase(optionType);
+        double intrinsic = isCall ? Math.max(0, S - discountedStrike) : Math.max(0, discountedStrike - S);
+        double upperBound = isCall ? S : discountedStrike;
+        if (T <= 0 || optionPrice <= intrinsic || optionPrice >= upperBound) {
+            return Double.NaN;
+        }
+
+        double low = MIN_VOLATILITY;
+        double high = MAX_VOLATILITY;
+        double sigma = 0.3;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double diff = calculateOptionPrice(S, K, T, r, sigma, optionType) - optionPrice;
+            if (Math.abs(diff) < PRICE_TOLERANCE) {
+                return sigma;
+            }
+            if (diff > 0) {
+                high = sigma;
+            } else {
+                low = sigma;
+            }
+
+            double vega = calculateVega(S, K, T, r, sigma);
+            double next = vega > 1e-10 ? sigma - diff / vega : Double.NaN;
+            sigma = next > low && next < high ? next : 0.5 * (low + high);
+        }
+        return sigma;
+    }
+
+    /**
+     * Calculates the Black-Scholes vega (price sensitivity to a unit change in volatility).
+     */
+    public double calculateVega(double S, double K, double T, double r, double sigma) {
+        double sqrtT = Math.sqrt(T);
+        double d1 = (Math.log(S / K) + (r + 0.5 * sigma * sigma) * T) / (sigma * sqrtT);
+        return S * normalDensity(d1) * sqrtT;
     }
 
     /**
@@ -97,7 +132,7 @@ public class Volatility {
         }
     }
 
-    private double cumulativeDistribution(double x) {
+    public double cumulativeDistribution(double x) {
         // Approximation of the cumulative distribution function for the standard normal distribution
         double b1 = 0.319381530;
         double b2 = -0.356563782;
@@ -115,4 +150,8 @@ public class Volatility {
             return c * Math.exp(-x * x / 2.0) * t * (t * (t * (t * (t * b5 + b4) + b3) + b2) + b1);
         }
     }
+
+    private double normalDensity(double x) {
+        return Math.exp(-0.5 * x * x) / Math.sqrt(2 * Math.PI);
+    }
 }
@@ -0,0 +1,765 @@
+package com.sigmaflow.api;
+
+import com.ib.client.Bar;
+import com.ib.client.Contract;
+import com.ib.client.ContractDetails;
+import com.ib.client.PriceIncrement;
+import com.ib.client.TickType;
+import com.sigmaflow.data.MarketData.RequestType;
+import com.sigmaflow.data.OptionChainParams;
+import com.sigmaflow.data.OptionQuote;
+import com.sigmaflow.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Future-based facade over the callback-driven IB client. Each request gets its own request id and a pending entry
+ * that collects its callbacks; the returned future completes when the end callback arrives, fails on an IB error for
+ * the request (after retries for transient errors, see {@link IbErrors}), and times out (cancelling the request where
+ * IB supports it) if no answer arrives in time. Retries share the request's timeout. Requests
+ * are sent through a {@link RequestPacer}, so any number can be outstanding without violating TWS pacing limits.
+ * <p>
+ * Futures complete on the EReader thread, so continuations should be short or hop to another executor.
+ */
+public class AsyncIbClient {
+
+    private static final Logger logger = LogManager.getLogger(AsyncIbClient.class);
+
+    // Default time to wait for a request's end callback (-Dsigmaflow.api.timeoutSeconds)
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(Long.getLong("sigmaflow.api.timeoutSeconds", 60));
+    // Retries of a request failing with a transient error, and the delay before the first (-Dsigmaflow.api.maxRetries,
+    // retryDelayMillis); the delay doubles per retry, and pacing violations start at ten times the delay
+    private static final int MAX_RETRIES = Integer.getInteger("sigmaflow.api.maxRetries", 3);
+    private static final long RETRY_DELAY_MILLIS = Long.getLong("sigmaflow.api.retryDelayMillis", 1_000);
+
+    private final EWrapperImpl wrapper;
+    // Request ids are allocated sequentially from 1, per client
+    private final AtomicInteger nextReqId = new AtomicInteger(1);
+    private final Map<Integer, PendingRequest<?>> pending = new ConcurrentHashMap<>();
+    private final RequestPacer pacer = new RequestPacer();
+    // Market rules are answered by rule id rather than request id; concurrent requests for a rule share its future
+    private final Map<Integer, CompletableFuture<PriceIncrement[]>> marketRules = new ConcurrentHashMap<>();
+    // Open streaming subscriptions by request id; their events go straight to the listener
+    private final Map<Integer, Stream> streams = new ConcurrentHashMap<>();
+
+    /**
+     * State of an outstanding request. Callbacks for one request arrive on the EReader thread in order, so the
+     * accumulated results need no synchronization.
+     */
+    private abstract static class PendingRequest<T> {
+        final RequestFuture<T> future = new RequestFuture<>(() -> this.reqId);
+        final RequestType type;
+        final String description;
+        IntConsumer issue;
+        // The id the request was last sent under; a retry gets a new one
+        volatile int reqId;
+        int retries;
+        // Set when the pacer sends the request
+        volatile long startNanos;
+        volatile boolean issued;
+        // Set once IB has finished with the request, after which it must not be cancelled
+        volatile boolean ended;
+
+        PendingRequest(RequestType type, String description) {
+            this.type = type;
+            this.description = description;
+        }
+
+        /** Cancels the request at IB, if the request type supports it. */
+        void cancel(int reqId) {
+        }
+
+        /** Discards partial results before the request is sent again. */
+        void reset() {
+        }
+    }
+
+    private static final class ContractDetailsRequest extends PendingRequest<ContractDetails> {
+        ContractDetails first;
+
+        ContractDetailsRequest(String description) {
+            super(RequestType.CONTRACT_DETAILS, description);
+        }
+
+        @Override
+        void reset() {
+            first = null;
+        }
+    }
+
+    private final class HistoricalRequest extends PendingRequest<List<Bar>> {
+        final List<Bar> bars = new ArrayList<>();
+
+        HistoricalRequest(RequestType type, String description) {
+            super(type, description);
+        }
+
+        @Override
+        void cancel(int reqId) {
+            wrapper.getClient().cancelHistoricalData(reqId);
+        }
+
+        @Override
+        void reset() {
+            bars.clear();
+        }
+    }
+
+    // Option chain params arrive once per exchange; they are merged until the end callback
+    private static final class OptionChainRequest extends PendingRequest<OptionChainParams> {
+        final Set<String> expirations = new HashSet<>();
+        final Set<Double> strikes = new HashSet<>();
+
+        OptionChainRequest(String description) {
+            super(RequestType.OPTION_CHAIN_PARAMS, description);
+        }
+
+        @Override
+        void reset() {
+            expirations.clear();
+            strikes.clear();
+        }
+    }
+
+    private final class SnapshotRequest extends PendingRequest<Double> {
+        SnapshotRequest(String description) {
+            super(RequestType.UNDERLYING_MARKET_DATA, description);
+        }
+
+        @Override
+        void cancel(int reqId) {
+            wrapper.getClient().cancelMktData(reqId);
+        }
+    }
+
+    // Computations arrive for bid, ask, last and model prices; the model one is preferred
+    private final class OptionSnapshotRequest extends PendingRequest<OptionQuote> {
+        // Receives the snapshot's price, size and generic ticks; may be null
+        final StreamListener ticks;
+        OptionQuote model;
+        OptionQuote latest;
+
+        OptionSnapshotRequest(String description, StreamListener ticks) {
+            super(RequestType.OPTION_MARKET_DATA, description);
+            this.ticks = ticks;
+        }
+
+        @Override
+        void cancel(int reqId) {
+            wrapper.getClient().cancelMktData(reqId);
+        }
+
+        @Override
+        void reset() {
+            model = null;
+            latest = null;
+        }
+    }
+
+    /**
+     * A streaming subscription. It keeps its request id for life, as its events are routed by it; {@code closed}
+     * completes on cancellation or a permanent error, which also drops it from the pacer queue.
+     */
+    private final class Stream implements Subscription {
+        final CompletableFuture<Void> closed = new CompletableFuture<>();
+        final int reqId;
+        final RequestType type;
+        final String description;
+        final StreamListener listener;
+        final IntConsumer issue;
+        final IntConsumer cancel;
+        volatile boolean issued;
+        int retries;
+
+        Stream(int reqId, RequestType type, String description, StreamListener listener, IntConsumer issue, IntConsumer cancel) {
+            this.reqId = reqId;
+            this.type = type;
+            this.description = description;
+            this.listener = listener;
+            this.issue = issue;
+            this.cancel = cancel;
+        }
+
+        void submit() {
+            pacer.submit(type, closed, () -> {
+                issued = true;
+                try {
+                    issue.accept(reqId);
+                } catch (RuntimeException e) {
+                    logger.warn("{} subscription {} for {} could not be sent: {}", type, box(reqId), description, e.toString());
+                    close();
+                }
+            });
+        }
+
+        boolean close() {
+            if (!closed.complete(null)) {
+                return false;
+            }
+            streams.remove(reqId, this);
+            return true;
+        }
+
+        @Override
+        public int reqId() {
+            return reqId;
+        }
+
+        @Override
+        public boolean isActive() {
+            return !closed.isDone();
+        }
+
+        @Override
+        public void cancel() {
+            if (close() && issued) {
+                cancel.accept(reqId);
+            }
+        }
+    }
+
+    public AsyncIbClient(EWrapperImpl wrapper) {
+        this.wrapper = wrapper;
+    }
+
+    /**
+     * Resolves a contract. If IB returns several matches the first one wins.
+     *
+     * @param contract The (partially specified) contract.
+     * @return A future completed with the contract details, or failed if IB returns no match.
+     */
+    public RequestFuture<ContractDetails> contractDetails(Contract contract) {
+        ContractDetailsRequest request = new ContractDetailsRequest(contract.symbol());
+        return send(request, DEFAULT_TIMEOUT, reqId -> wrapper.getClient().reqContractDetails(reqId, contract));
+    }
+
+    /**
+     * Requests historical bars.
+     *
+     * @param type        The request type, used for correlation in logs and round-trip metrics.
+     * @param contract    The contract.
+     * @param endDateTime End of the requested period, in IB's "yyyyMMdd HH:mm:ss" format.
+     * @param duration    IB duration string, e.g. "1 M".
+     * @param barSize     IB bar size, e.g. "1 day".
+     * @param whatToShow  IB data type, e.g. "TRADES" or "HISTORICAL_VOLATILITY".
+     * @param timeout     Time to wait for the last bar.
+     * @return A future completed with the bars in the order received.
+     */
+    public RequestFuture<List<Bar>> historicalBars(RequestType type, Contract contract, String endDateTime,
+                                                   String duration, String barSize, String whatToShow,
+                                                   Duration timeout) {
+        HistoricalRequest request = new HistoricalRequest(type, contract.symbol() + " " + whatToShow);
+        return send(request, timeout, reqId -> wrapper.getClient().reqHistoricalData(reqId, contract, endDateTime,
+                duration, barSize, whatToShow, 1, 1, false, null));
+    }
+
+    public RequestFuture<List<Bar>> historicalBars(RequestType type, Contract contract, String endDateTime,
+                                                   String duration, String barSize, String whatToShow) {
+        return historicalBars(type, contract, endDateTime, duration, barSize, whatToShow, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Requests an underlying's option chain parameters, merged across exchanges.
+     *
+     * @param symbol The underlying symbol.
+     * @param conId  The underlying contract id.
+     */
+    public RequestFuture<OptionChainParams> optionChainParams(String symbol, int conId) {
+        OptionChainRequest request = new OptionChainRequest(symbol);
+        return send(request, DEFAULT_TIMEOUT, reqId -> wrapper.getClient().reqSecDefOptParams(reqId, symbol, "", "STK", conId));
+    }
+
+    /**
+     * Requests a market data snapshot and resolves with the first last or close price.
+     *
+     * @param contract The contract.
+     * @return A future completed with the price, or failed if the snapshot ends without one.
+     */
+    public RequestFuture<Double> snapshot(Contract contract) {
+        SnapshotRequest request = new SnapshotRequest(contract.symbol());
+        return send(request, DEFAULT_TIMEOUT, reqId -> wrapper.getClient().reqMktData(reqId, contract, "", true, false, null));
+    }
+
+    /**
+     * Requests a market data snapshot of an option and resolves with TWS's option computation.
+     *
+     * @param contract The option contract.
+     * @return A future completed with the model computation (or the last one received if there is no model), or
+     * failed if the snapshot ends without an implied volatility.
+     */
+    public RequestFuture<OptionQuote> optionSnapshot(Contract contract) {
+        return optionSnapshot(contract, null);
+    }
+
+    /**
+     * As {@link #optionSnapshot(Contract)}, also passing the snapshot's price, size and generic ticks to a listener,
+     * e.g. for the quote's bid, ask and sizes.
+     */
+    public RequestFuture<OptionQuote> optionSnapshot(Contract contract, StreamListener ticks) {
+        OptionSnapshotRequest request = new OptionSnapshotRequest(contract.symbol() + " " + contract.lastTradeDateOrContractMonth()
+                + " " + contract.strike() + " " + contract.getRight(), ticks);
+        return send(request, DEFAULT_TIMEOUT, reqId -> wrapper.getClient().reqMktData(reqId, contract, "", true, false, null));
+    }
+
+    /**
+     * Subscribes to streaming market data; its price, size, generic and option computation ticks go to the listener.
+     *
+     * @param genericTicks Comma separated generic tick ids, e.g. "100,101" for option volume and open interest.
+     */
+    public Subscription marketData(Contract contract, String genericTicks, StreamListener listener) {
+        RequestType type = "OPT".equals(contract.secType()) ? RequestType.OPTION_MARKET_DATA : RequestType.UNDERLYING_MARKET_DATA;
+        return subscribe(type, contract.symbol() + " " + contract.lastTradeDateOrContractMonth() + " " + contract.strike(),
+                listener,
+                reqId -> wrapper.getClient().reqMktData(reqId, contract, genericTicks, false, false, null),
+                reqId -> wrapper.getClient().cancelMktData(reqId));
+    }
+
+    /**
+     * Subscribes to 5-second real-time bars.
+     *
+     * @param whatToShow   IB data type, e.g. "TRADES" or "MIDPOINT".
+     * @param regularHours Whether to stream regular trading hours only.
+     */
+    public Subscription realtimeBars(Contract contract, String whatToShow, boolean regularHours, StreamListener listener) {
+        return subscribe(RequestType.REALTIME_BARS, contract.symbol() + " " + whatToShow, listener,
+                reqId -> wrapper.getClient().reqRealTimeBars(reqId, contract, 5, whatToShow, regularHours, null),
+                reqId -> wrapper.getClient().cancelRealTimeBars(reqId));
+    }
+
+    /**
+     * Subscribes to tick-by-tick data. TWS allows only a few tick-by-tick subscriptions per account.
+     *
+     * @param tickType "Last", "AllLast", "BidAsk" or "MidPoint".
+     */
+    public Subscription tickByTick(Contract contract, String tickType, StreamListener listener) {
+        return subscribe(RequestType.TICK_BY_TICK, contract.symbol() + " " + tickType, listener,
+                reqId -> wrapper.getClient().reqTickByTickData(reqId, contract, tickType, 0, false),
+                reqId -> wrapper.getClient().cancelTickByTickData(reqId));
+    }
+
+    private Subscription subscribe(RequestType type, String description, StreamListener listener, IntConsumer issue,
+                                   IntConsumer cancel) {
+        Stream stream = new Stream(nextReqId.getAndIncrement(), type, description, listener, issue, cancel);
+        streams.put(stream.reqId, stream);
+        stream.submit();
+        return stream;
+    }
+
+    /**
+     * @return The number of open streaming subscriptions.
+     */
+    public int streamCount() {
+        return streams.size();
+    }
+
+    /**
+     * Requests the price increments of a market rule, as listed in {@link ContractDetails#marketRuleIds()}.
+     *
+     * @param marketRuleId The market rule id.
+     * @return A future completed with the increments, or failed on timeout.
+     */
+    public CompletableFuture<PriceIncrement[]> marketRule(int marketRuleId) {
+        CompletableFuture<PriceIncrement[]> future = new CompletableFuture<>();
+        CompletableFuture<PriceIncrement[]> existing = marketRules.putIfAbsent(marketRuleId, future);
+        if (existing != null) {
+            return existing;
+        }
+        long[] startNanos = new long[1];
+        future.whenComplete((increments, error) -> {
+            marketRules.remove(marketRuleId, future);
+            if (Metrics.ENABLED && startNanos[0] != 0) {
+                Metrics.recordRoundTrip(RequestType.MARKET_RULE, System.nanoTime() - startNanos[0]);
+            }
+            if (error instanceof TimeoutException) {
+                logger.warn("{} request for rule {} timed out after {}", RequestType.MARKET_RULE, box(marketRuleId), DEFAULT_TIMEOUT);
+            }
+        });
+        pacer.submit(RequestType.MARKET_RULE, future, () -> {
+            startNanos[0] = System.nanoTime();
+            future.orTimeout(DEFAULT_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+            issueMarketRule(marketRuleId, future);
+        });
+        return future;
+    }
+
+    private void issueMarketRule(int marketRuleId, CompletableFuture<PriceIncrement[]> future) {
+        try {
+            wrapper.getClient().reqMarketRule(marketRuleId);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Registers the request and queues it with the pacer. The timeout runs from when the request is sent; a request
+     * whose future is cancelled while queued is never sent.
+     */
+    private <T> RequestFuture<T> send(PendingRequest<T> request, Duration timeout, IntConsumer issue) {
+        int reqId = nextReqId.getAndIncrement();
+        request.issue = issue;
+        request.reqId = reqId;
+        // Registered before issuing, so that no callback can arrive for an unknown id
+        pending.put(reqId, request);
+        request.future.whenComplete((result, error) -> {
+            int lastReqId = request.reqId;
+            pending.remove(lastReqId, request);
+            if (!request.issued) {
+                return;
+            }
+            if (Metrics.ENABLED) {
+                Metrics.recordRoundTrip(request.type, System.nanoTime() - request.startNanos);
+            }
+            if (!request.ended) {
+                request.cancel(lastReqId);
+            }
+            if (error instanceof TimeoutException) {
+                logger.warn("{} request {} for {} timed out after {}", request.type, box(lastReqId), request.description, timeout);
+            }
+        });
+        pacer.submit(request.type, request.future, () -> {
+            request.startNanos = System.nanoTime();
+            request.issued = true;
+            request.future.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            issue(reqId, request);
+        });
+        return request.future;
+    }
+
+    private void issue(int reqId, PendingRequest<?> request) {
+        try {
+            request.issue.accept(reqId);
+        } catch (RuntimeException e) {
+            request.ended = true;
+            request.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Sends every outstanding request again under its original id, after a reconnect lost the server side state.
+     * Partial results are discarded; timeouts keep running from the first send. Requests still queued in the pacer
+     * are sent normally.
+     *
+     * @return The number of requests replayed.
+     */
+    public int replayOutstanding() {
+        int replayed = 0;
+        for (Map.Entry<Integer, PendingRequest<?>> entry : pending.entrySet()) {
+            int reqId = entry.getKey();
+            PendingRequest<?> request = entry.getValue();
+            if (!request.issued || request.ended || request.future.isDone()) {
+                continue;
+            }
+            request.reset();
+            pacer.submit(request.type, request.future, () -> issue(reqId, request));
+            replayed++;
+        }
+        for (Stream stream : streams.values()) {
+            if (stream.issued && stream.isActive()) {
+                stream.submit();
+                replayed++;
+            }
+        }
+        // Also re-requests rules still queued in the pacer; the second answer is ignored
+        for (Map.Entry<Integer, CompletableFuture<PriceIncrement[]>> entry : marketRules.entrySet()) {
+            int marketRuleId = entry.getKey();
+            CompletableFuture<PriceIncrement[]> future = entry.getValue();
+            pacer.submit(RequestType.MARKET_RULE, future, () -> issueMarketRule(marketRuleId, future));
+            replayed++;
+        }
+        return replayed;
+    }
+
+    /**
+     * @return Whether the request id belongs to a request of this client that is still outstanding.
+     */
+    public boolean isPending(int reqId) {
+        return pending.containsKey(reqId);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    public RequestPacer getPacer() {
+        return pacer;
+    }
+
+    // --- Callbacks, forwarded by EWrapperImpl ---
+
+    void onContractDetails(int reqId, ContractDetails contractDetails) {
+        if (pending.get(reqId) instanceof ContractDetailsRequest request && request.first == null) {
+            request.first = contractDetails;
+        }
+    }
+
+    void onContractDetailsEnd(int reqId) {
+        if (pending.get(reqId) instanceof ContractDetailsRequest request) {
+            request.ended = true;
+            if (request.first != null) {
+                request.future.complete(request.first);
+            } else {
+                request.future.completeExceptionally(new IllegalStateException("No contract details returned for " + request.description));
+            }
+        }
+    }
+
+    /**
+     * @return Whether the bar belonged to an outstanding historical request.
+     */
+    boolean onHistoricalBar(int reqId, Bar bar) {
+        if (pending.get(reqId) instanceof HistoricalRequest request) {
+            request.bars.add(bar);
+            return true;
+        }
+        return false;
+    }
+
+    void onHistoricalDataEnd(int reqId) {
+        if (pending.get(reqId) instanceof HistoricalRequest request) {
+            request.ended = true;
+            logger.info("Finished receiving {} for {}", request.type, request.description);
+            request.future.complete(Collections.unmodifiableList(request.bars));
+        }
+    }
+
+    /**
+     * @return Whether the parameters belonged to an outstanding option chain request.
+     */
+    boolean onOptionChainParameter(int reqId, Set<String> expirations, Set<Double> strikes) {
+        if (pending.get(reqId) instanceof OptionChainRequest request) {
+            request.expirations.addAll(expirations);
+            request.strikes.addAll(strikes);
+            return true;
+        }
+        logger.debug("reqId {}. No option chain request pending.", box(reqId));
+        return false;
+    }
+
+    void onOptionChainParameterEnd(int reqId) {
+        if (pending.get(reqId) instanceof OptionChainRequest request) {
+            request.ended = true;
+            request.future.complete(new OptionChainParams(request.expirations, request.strikes));
+        }
+    }
+
+    /**
+     * @return Whether the tick resolved an outstanding snapshot or belonged to an option snapshot or subscription.
+     */
+    boolean onTickPrice(int reqId, int field, double price) {
+        StreamListener listener = tickListener(reqId);
+        if (listener != null) {
+            listener.onTickPrice(field, price);
+            return true;
+        }
+        if ((field == TickType.LAST.ordinal() || field == TickType.CLOSE.ordinal())
+                && pending.get(reqId) instanceof SnapshotRequest request) {
+            return request.future.complete(price);
+        }
+        return false;
+    }
+
+    boolean onTickSize(int reqId, int field, long size) {
+        StreamListener listener = tickListener(reqId);
+        if (listener == null) {
+            return false;
+        }
+        listener.onTickSize(field, size);
+        return true;
+    }
+
+    boolean onTickGeneric(int reqId, int field, double value) {
+        StreamListener listener = tickListener(reqId);
+        if (listener == null) {
+            return false;
+        }
+        listener.onTickGeneric(field, value);
+        return true;
+    }
+
+    /**
+     * @return The listener for the market data ticks of a subscription or option snapshot, or null.
+     */
+    private StreamListener tickListener(int reqId) {
+        Stream stream = streams.get(reqId);
+        if (stream != null) {
+            return stream.listener;
+        }
+        return pending.get(reqId) instanceof OptionSnapshotRequest request ? request.ticks : null;
+    }
+
+    /**
+     * @return Whether the computation belonged to an outstanding option snapshot or a subscription.
+     */
+    boolean onTickOptionComputation(int reqId, int field, double impliedVol, double delta, double optionPrice, double underlyingPrice) {
+        Stream stream = streams.get(reqId);
+        PendingRequest<?> request = stream == null ? pending.get(reqId) : null;
+        if (stream == null && !(request instanceof OptionSnapshotRequest)) {
+            return false;
+        }
+        // TWS reports unavailable values as Double.MAX_VALUE, or -1 for the implied volatility
+        if (impliedVol <= 0 || impliedVol == Double.MAX_VALUE || delta == Double.MAX_VALUE) {
+            return true;
+        }
+        if (stream != null) {
+            stream.listener.onOptionComputation(field, impliedVol, delta, optionPrice, underlyingPrice);
+            return true;
+        }
+        OptionSnapshotRequest snapshot = (OptionSnapshotRequest) request;
+        OptionQuote quote = new OptionQuote(impliedVol, delta, optionPrice, underlyingPrice);
+        if (field == TickType.MODEL_OPTION.index()) {
+            snapshot.model = quote;
+        } else {
+            snapshot.latest = quote;
+        }
+        return true;
+    }
+
+    void onTickSnapshotEnd(int reqId) {
+        PendingRequest<?> pendingRequest = pending.get(reqId);
+        if (pendingRequest instanceof SnapshotRequest request) {
+            request.ended = true;
+            request.future.completeExceptionally(new IllegalStateException("No price in snapshot for " + request.description));
+        } else if (pendingRequest instanceof OptionSnapshotRequest request) {
+            request.ended = true;
+            OptionQuote quote = request.model != null ? request.model : request.latest;
+            if (quote != null) {
+                request.future.complete(quote);
+            } else {
+                request.future.completeExceptionally(new IllegalStateException("No option computation in snapshot for " + request.description));
+            }
+        }
+    }
+
+    /**
+     * @return Whether the bar belonged to an open subscription.
+     */
+    boolean onRealtimeBar(int reqId, long time, double open, double high, double low, double close, long volume) {
+        Stream stream = streams.get(reqId);
+        if (stream == null) {
+            return false;
+        }
+        stream.listener.onRealtimeBar(time, open, high, low, close, volume);
+        return true;
+    }
+
+    boolean onTickByTickTrade(int reqId, long time, double price, long size) {
+        Stream stream = streams.get(reqId);
+        if (stream == null) {
+            return false;
+        }
+        stream.listener.onTrade(time, price, size);
+        return true;
+    }
+
+    boolean onTickByTickQuote(int reqId, long time, double bidPrice, double askPrice, long bidSize, long askSize) {
+        Stream stream = streams.get(reqId);
+        if (stream == null) {
+            return false;
+        }
+        stream.listener.onQuote(time, bidPrice, askPrice, bidSize, askSize);
+        return true;
+    }
+
+    boolean onTickByTickMidPoint(int reqId, long time, double midPoint) {
+        Stream stream = streams.get(reqId);
+        if (stream == null) {
+            return false;
+        }
+        stream.listener.onMidPoint(time, midPoint);
+        return true;
+    }
+
+    void onMarketRule(int marketRuleId, PriceIncrement[] priceIncrements) {
+        CompletableFuture<PriceIncrement[]> future = marketRules.get(marketRuleId);
+        if (future != null) {
+            future.complete(priceIncrements);
+        }
+    }
+
+    /**
+     * Fails the outstanding request an error refers to. Warnings and farm status messages (codes 2100-2199, and
+     * 10167 for delayed data) leave the request running.
+     */
+    void onError(int reqId, int errorCode, String errorMsg, IbErrors.Severity severity) {
+        if (reqId < 0 || severity == IbErrors.Severity.INFO || severity == IbErrors.Severity.CONNECTIVITY) {
+            return;
+        }
+        Stream stream = streams.get(reqId);
+        if (stream != null) {
+            onStreamError(stream, errorCode, errorMsg, severity);
+            return;
+        }
+        PendingRequest<?> request = pending.get(reqId);
+        if (request == null) {
+            return;
+        }
+        request.ended = true;
+        if (severity == IbErrors.Severity.TRANSIENT && request.retries < MAX_RETRIES) {
+            retry(reqId, request, errorCode);
+        } else {
+            request.future.completeExceptionally(new IbApiException(reqId, errorCode, errorMsg));
+        }
+    }
+
+    /**
+     * Re-requests a subscription that failed with a transient error, after the same backoff as requests and under
+     * the same id; the error ended it at TWS.
+     */
+    private void onStreamError(Stream stream, int errorCode, String errorMsg, IbErrors.Severity severity) {
+        if (severity != IbErrors.Severity.TRANSIENT || stream.retries >= MAX_RETRIES) {
+            logger.warn("{} subscription {} for {} closed: {} {}", stream.type, box(stream.reqId), stream.description,
+                    box(errorCode), errorMsg);
+            stream.close();
+            return;
+        }
+        long baseMillis = errorCode == IbErrors.PACING_VIOLATION ? RETRY_DELAY_MILLIS * 10 : RETRY_DELAY_MILLIS;
+        long delayMillis = baseMillis << stream.retries;
+        stream.retries++;
+        logger.warn("Resubscribing {} for {} in {} ms (retry {} of {})", stream.type, stream.description,
+                box(delayMillis), box(stream.retries), box(MAX_RETRIES));
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(stream::submit);
+    }
+
+    /**
+     * Sends a failed request again after a backoff, under a new id since TWS may still associate the old one with
+     * the failure.
+     */
+    private void retry(int failedReqId, PendingRequest<?> request, int errorCode) {
+        long baseMillis = errorCode == IbErrors.PACING_VIOLATION ? RETRY_DELAY_MILLIS * 10 : RETRY_DELAY_MILLIS;
+        long delayMillis = baseMillis << request.retries;
+        request.retries++;
+        int reqId = nextReqId.getAndIncrement();
+        request.reset();
+        request.reqId = reqId;
+        pending.put(reqId, request);
+        pending.remove(failedReqId, request);
+        if (request.future.isDone()) {
+            // Timed out concurrently; its cleanup may have missed the new id
+            pending.remove(reqId, request);
+            return;
+        }
+        logger.warn("Retrying {} request for {} as {} in {} ms (retry {} of {})", request.type, request.description,
+                box(reqId), box(delayMillis), box(request.retries), box(MAX_RETRIES));
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() ->
+                pacer.submit(request.type, request.future, () -> {
+                    request.ended = false;
+                    issue(reqId, request);
+                }));
+    }
+}
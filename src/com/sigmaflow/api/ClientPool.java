@@ -0,0 +1,144 @@
+package com.sigmaflow.api;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Several TWS connections with consecutive client ids, each with its own socket, reader thread, request pacer and
+ * request ids. Tickers are assigned to connections by consistent hashing, so each connection carries a share of the
+ * universe within its own per-client pacing limits, and resizing the pool moves only about 1/N of the tickers.
+ */
+public class ClientPool {
+
+    private static final Logger logger = LogManager.getLogger(ClientPool.class);
+
+    // Points per connection on the hash ring; more points give a more even split
+    private static final int VIRTUAL_NODES = 128;
+
+    private final List<EWrapperImpl> connections;
+    private final NavigableMap<Long, Integer> ring = new TreeMap<>();
+
+    /**
+     * @param size Number of connections.
+     */
+    public ClientPool(int size) {
+        this(createConnections(size));
+    }
+
+    private ClientPool(List<EWrapperImpl> connections) {
+        if (connections.isEmpty()) {
+            throw new IllegalArgumentException("A client pool needs at least one connection");
+        }
+        this.connections = Collections.unmodifiableList(connections);
+        for (int shard = 0; shard < connections.size(); shard++) {
+            for (int node = 0; node < VIRTUAL_NODES; node++) {
+                ring.put(hash("shard-" + shard + "#" + node), shard);
+            }
+        }
+    }
+
+    /**
+     * @return A pool over a single existing connection.
+     */
+    public static ClientPool of(EWrapperImpl connection) {
+        return new ClientPool(List.of(connection));
+    }
+
+    private static List<EWrapperImpl> createConnections(int size) {
+        List<EWrapperImpl> connections = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            connections.add(new EWrapperImpl());
+        }
+        return connections;
+    }
+
+    /**
+     * Connects every connection, using client ids {@code firstClientId} to {@code firstClientId + size - 1}.
+     *
+     * @return A future completed once every connection is ready.
+     */
+    public CompletableFuture<Void> connect(String host, int port, int firstClientId) {
+        logger.info("Opening {} TWS connections with client ids {}-{}", box(connections.size()), box(firstClientId),
+                box(firstClientId + connections.size() - 1));
+        CompletableFuture<?>[] ready = new CompletableFuture<?>[connections.size()];
+        for (int shard = 0; shard < connections.size(); shard++) {
+            ready[shard] = connections.get(shard).connect(host, port, firstClientId + shard);
+        }
+        return CompletableFuture.allOf(ready);
+    }
+
+    /**
+     * Waits until every connection is ready.
+     *
+     * @return Whether all became ready within the timeout.
+     */
+    public boolean awaitReady(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (EWrapperImpl connection : connections) {
+            Duration remaining = Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+            if (!connection.getConnection().awaitReady(remaining)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void disconnect() {
+        for (EWrapperImpl connection : connections) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * @return The index of the connection the ticker is assigned to.
+     */
+    public int shardFor(String ticker) {
+        if (connections.size() == 1) {
+            return 0;
+        }
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash(ticker));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * @return The request API of the connection the ticker is assigned to.
+     */
+    public AsyncIbClient clientFor(String ticker) {
+        return connections.get(shardFor(ticker)).getAsyncClient();
+    }
+
+    public EWrapperImpl connection(int shard) {
+        return connections.get(shard);
+    }
+
+    public int size() {
+        return connections.size();
+    }
+
+    /**
+     * 64-bit FNV-1a with a final avalanche step; String.hashCode clusters similar short ticker symbols.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
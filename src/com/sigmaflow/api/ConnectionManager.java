@@ -0,0 +1,244 @@
+package com.sigmaflow.api;
+
+import com.ib.client.EClientSocket;
+import com.ib.client.EReader;
+import com.ib.client.EReaderSignal;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Keeps the TWS connection up. The connection counts as ready once TWS has sent {@code nextValidId}; until then, and
+ * while disconnected, the request pacer holds back requests. A lost connection is re-established with exponential
+ * backoff ({@code sigmaflow.reconnect.initialDelayMillis}, default 1000, doubling up to
+ * {@code sigmaflow.reconnect.maxDelayMillis}, default 60000, with up to 20% jitter), and the requests that were
+ * outstanding are then replayed. Only {@link #disconnect()} stops reconnecting.
+ */
+public class ConnectionManager {
+
+    private static final Logger logger = LogManager.getLogger(ConnectionManager.class);
+
+    private static final long INITIAL_DELAY_MILLIS = Long.getLong("sigmaflow.reconnect.initialDelayMillis", 1_000);
+    private static final long MAX_DELAY_MILLIS = Long.getLong("sigmaflow.reconnect.maxDelayMillis", 60_000);
+
+    private final EClientSocket client;
+    private final EReaderSignal readerSignal;
+    private final AsyncIbClient asyncClient;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ib-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private String host;
+    private int port;
+    private int clientId;
+    private boolean shutdown = true;
+    private boolean connected;
+    // Incremented per socket connection, so that the reader loop of a lost connection cannot affect its successor
+    private int generation;
+    private int attempt;
+    private int sessions;
+    private CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    ConnectionManager(EClientSocket client, EReaderSignal readerSignal, AsyncIbClient asyncClient) {
+        this.client = client;
+        this.readerSignal = readerSignal;
+        this.asyncClient = asyncClient;
+    }
+
+    /**
+     * Starts connecting, and keeps reconnecting until {@link #disconnect()}.
+     *
+     * @return A future completed once the connection is ready for requests.
+     */
+    public synchronized CompletableFuture<Void> connect(String host, int port, int clientId) {
+        this.host = host;
+        this.port = port;
+        this.clientId = clientId;
+        if (shutdown) {
+            shutdown = false;
+            asyncClient.getPacer().pause();
+            scheduler.execute(this::attemptConnect);
+        }
+        return ready;
+    }
+
+    /**
+     * Waits until the connection is ready.
+     *
+     * @return Whether it became ready within the timeout.
+     */
+    public boolean awaitReady(Duration timeout) throws InterruptedException {
+        CompletableFuture<Void> current;
+        synchronized (this) {
+            current = ready;
+        }
+        try {
+            current.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public synchronized boolean isReady() {
+        return ready.isDone();
+    }
+
+    /**
+     * Closes the connection for good.
+     */
+    public void disconnect() {
+        synchronized (this) {
+            shutdown = true;
+            connected = false;
+        }
+        logger.info("Disconnecting from TWS...");
+        client.eDisconnect();
+        scheduler.shutdownNow();
+    }
+
+    private void attemptConnect() {
+        String targetHost;
+        int targetPort;
+        int targetClientId;
+        synchronized (this) {
+            if (shutdown || connected) {
+                return;
+            }
+            targetHost = host;
+            targetPort = port;
+            targetClientId = clientId;
+        }
+        logger.info("Connecting to TWS at {}:{} (attempt {})...", targetHost, box(targetPort), box(attempt + 1));
+        client.eConnect(targetHost, targetPort, targetClientId);
+        if (!client.isConnected()) {
+            scheduleReconnect();
+            return;
+        }
+        int session;
+        synchronized (this) {
+            connected = true;
+            session = ++generation;
+        }
+
+        final EReader reader = new EReader(client, readerSignal);
+        reader.start();
+        new Thread(() -> {
+            while (client.isConnected() && isCurrent(session)) {
+                readerSignal.waitForSignal();
+                try {
+                    reader.processMsgs();
+                } catch (Exception e) {
+                    logger.error("Exception in EReader", e);
+                }
+            }
+            connectionLost(session);
+        }, "ib-reader-" + targetClientId).start();
+    }
+
+    private void scheduleReconnect() {
+        long delayMillis;
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            long backoff = Math.min(MAX_DELAY_MILLIS, INITIAL_DELAY_MILLIS << Math.min(attempt, 16));
+            delayMillis = backoff + (long) (backoff * 0.2 * ThreadLocalRandom.current().nextDouble());
+            attempt++;
+        }
+        logger.warn("TWS not reachable, retrying in {} ms", box(delayMillis));
+        scheduler.schedule(this::attemptConnect, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Called for {@code nextValidId}, which TWS sends once the connection is ready.
+     */
+    void connectionReady() {
+        int replayed = 0;
+        synchronized (this) {
+            if (ready.isDone()) {
+                return;
+            }
+            attempt = 0;
+            sessions++;
+            if (sessions > 1) {
+                replayed = asyncClient.replayOutstanding();
+            }
+            ready.complete(null);
+        }
+        asyncClient.getPacer().resume();
+        if (replayed > 0) {
+            logger.info("Reconnected to TWS, replayed {} outstanding requests", box(replayed));
+        }
+    }
+
+    private synchronized boolean isCurrent(int session) {
+        return session == generation;
+    }
+
+    /**
+     * Called for {@code connectionClosed}; reconnects unless shut down.
+     */
+    void connectionLost() {
+        int session;
+        synchronized (this) {
+            session = generation;
+        }
+        connectionLost(session);
+    }
+
+    private void connectionLost(int session) {
+        synchronized (this) {
+            if (!connected || session != generation) {
+                return;
+            }
+            connected = false;
+            if (ready.isDone()) {
+                ready = new CompletableFuture<>();
+            }
+        }
+        asyncClient.getPacer().pause();
+        logger.warn("Connection to TWS lost");
+        // May be called from within the client's own disconnect, so the old socket is released on the connection thread
+        scheduler.execute(() -> {
+            client.eDisconnect();
+            scheduleReconnect();
+        });
+    }
+
+    /**
+     * Handles TWS system messages about its connectivity to IB.
+     *
+     * @return Whether the error code was a connectivity message.
+     */
+    boolean connectivityMessage(int errorCode) {
+        switch (errorCode) {
+            case IbErrors.CONNECTIVITY_LOST -> asyncClient.getPacer().pause();
+            case IbErrors.CONNECTIVITY_RESTORED_DATA_LOST -> {
+                int replayed = asyncClient.replayOutstanding();
+                asyncClient.getPacer().resume();
+                logger.info("TWS connectivity restored, replayed {} outstanding requests", box(replayed));
+            }
+            case IbErrors.CONNECTIVITY_RESTORED_DATA_MAINTAINED -> asyncClient.getPacer().resume();
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+}
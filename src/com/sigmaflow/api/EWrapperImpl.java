@@ -1,7 +1,7 @@
 package com.sigmaflow.api;
 
 import com.ib.client.protobuf.*;
-import com.sigmaflow.data.MarketData;
+import com.sigmaflow.metrics.Metrics;
 import com.ib.client.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -9,44 +9,56 @@ import org.apache.logging.log4j.Logger;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.apache.logging.log4j.util.Unbox.box;
 
 public class EWrapperImpl implements EWrapper {
 
     private static final Logger logger = LogManager.getLogger(EWrapperImpl.class);
+    // Per-event messages go to a child logger so they can be enabled independently of the rest of the API logging
+    private static final Logger tickLogger = LogManager.getLogger(EWrapperImpl.class.getName() + ".ticks");
 
     private final EClientSocket client;
     private final EReaderSignal readerSignal;
-    private MarketData marketData; // Reference to the MarketData instance
+    private final AsyncIbClient asyncClient = new AsyncIbClient(this);
+    private final ConnectionManager connection;
+
+    private final LogRateLimiter tickPriceLogLimiter = LogRateLimiter.forTicks();
+    private final LogRateLimiter tickSizeLogLimiter = LogRateLimiter.forTicks();
+    private final LogRateLimiter tickStringLogLimiter = LogRateLimiter.forTicks();
+    private final LogRateLimiter realtimeBarLogLimiter = LogRateLimiter.forTicks();
+    // Set by the first protobuf message from TWS
+    private volatile boolean protoBufReceived;
 
     public EWrapperImpl() {
         this.readerSignal = new EJavaSignal();
         this.client = new EClientSocket(this, readerSignal);
+        this.connection = new ConnectionManager(client, readerSignal, asyncClient);
     }
 
-    public void setMarketData(MarketData marketData) {
-        this.marketData = marketData;
+    /**
+     * @return The future-based request API; its requests are correlated with the callbacks received here.
+     */
+    public AsyncIbClient getAsyncClient() {
+        return asyncClient;
     }
 
-    public void connect(String host, int port, int clientId) {
-        logger.info("Connecting to TWS...");
-        client.eConnect(host, port, clientId);
-        final EReader reader = new EReader(client, readerSignal);
-        reader.start();
-        new Thread(() -> {
-            while (client.isConnected()) {
-                readerSignal.waitForSignal();
-                try {
-                    reader.processMsgs();
-                } catch (Exception e) {
-                    logger.error("Exception in EReader", e);
-                }
-            }
-        }).start();
+    /**
+     * Connects to TWS, reconnecting whenever the connection is lost until {@link #disconnect()}.
+     *
+     * @return A future completed once the connection is ready for requests.
+     */
+    public CompletableFuture<Void> connect(String host, int port, int clientId) {
+        return connection.connect(host, port, clientId);
     }
 
     public void disconnect() {
-        logger.info("Disconnecting from TWS...");
-        client.eDisconnect();
+        connection.disconnect();
+    }
+
+    public ConnectionManager getConnection() {
+        return connection;
     }
 
     public EClientSocket getClient() {
@@ -63,6 +75,7 @@ public class EWrapperImpl implements EWrapper {
     @Override
     public void connectionClosed() {
         logger.info("API connection closed.");
+        connection.connectionLost();
     }
 
     @Override
@@ -72,107 +85,162 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void error(String str) {
-        logger.error("Error: " + str);
+        logger.error("Error: {}", str);
     }
 
     @Override
-    public void error(int i, long l, int i1, String s, String s1) {
-
+    public void error(int id, long errorTime, int errorCode, String errorMsg, String advancedOrderRejectJson) {
+        error(id, errorCode, errorMsg, advancedOrderRejectJson);
     }
 
+    /**
+     * Classifies the error (see {@link IbErrors}), logs it at a level matching its severity and routes it to the
+     * request it belongs to, which is retried or failed.
+     */
     public void error(int id, int errorCode, String errorMsg, String advancedOrderRejectJson) {
-        String error = "API Error. Id: " + id + ", Code: " + errorCode + ", Msg: " + errorMsg;
-        if (advancedOrderRejectJson != null && !advancedOrderRejectJson.isEmpty()) {
-            error += ", AdvancedJson: " + advancedOrderRejectJson;
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.ERROR);
+        }
+        IbErrors.Severity severity = IbErrors.classify(errorCode, errorMsg);
+        String details = advancedOrderRejectJson != null && !advancedOrderRejectJson.isEmpty()
+                ? ", AdvancedJson: " + advancedOrderRejectJson : "";
+        switch (severity) {
+            case INFO -> logger.info("API Notice. Id: {}, Code: {}, Msg: {}{}", box(id), box(errorCode), errorMsg, details);
+            case CONNECTIVITY, TRANSIENT -> logger.warn("API {} Error. Id: {}, Code: {}, Msg: {}{}", severity, box(id),
+                    box(errorCode), errorMsg, details);
+            case PERMANENT -> logger.error("API Error. Id: {}, Code: {}, Msg: {}{}", box(id), box(errorCode), errorMsg, details);
         }
-        logger.error(error);
+        if (connection.connectivityMessage(errorCode)) {
+            return;
+        }
+        asyncClient.onError(id, errorCode, errorMsg, severity);
     }
 
     // --- Market Data and Contract Details ---
 
     @Override
     public void nextValidId(int orderId) {
-        logger.info("Connection successful. Next valid order ID: " + orderId);
+        logger.info("Connection successful. Next valid order ID: {}", box(orderId));
+        connection.connectionReady();
     }
 
     @Override
     public void contractDetails(int reqId, ContractDetails contractDetails) {
-        logger.info("Contract Details Received for ReqId: " + reqId);
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.CONTRACT_DETAILS);
+        }
         String ticker = contractDetails.contract().symbol();
         int conId = contractDetails.contract().conid();
-        logger.info(ticker + " ConId: " + conId);
-        
-        if (marketData != null) {
-            marketData.handleContractDetails(ticker, contractDetails);
-        }
+        logger.info("Contract Details Received for ReqId: {}. {} ConId: {}", box(reqId), ticker, box(conId));
+        asyncClient.onContractDetails(reqId, contractDetails);
     }
 
     @Override
     public void contractDetailsEnd(int reqId) {
-        logger.info("Finished receiving contract details for ReqId: " + reqId);
+        logger.info("Finished receiving contract details for ReqId: {}", box(reqId));
+        asyncClient.onContractDetailsEnd(reqId);
     }
 
     @Override
     public void securityDefinitionOptionalParameter(int reqId, String exchange, int underlyingConId, String tradingClass, String multiplier, Set<String> expirations, Set<Double> strikes) {
-        logger.debug("Received Option Chain Parameters for ReqId: {}", reqId);
-        if (marketData != null) {
-            marketData.processOptionChainParameters(reqId, expirations, strikes);
+        long start = 0;
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.SECURITY_DEFINITION_OPTION_PARAMETER);
+            start = System.nanoTime();
+        }
+        logger.debug("Received Option Chain Parameters for ReqId: {}", box(reqId));
+        if (asyncClient.onOptionChainParameter(reqId, expirations, strikes) && Metrics.ENABLED) {
+            Metrics.recordStage(Metrics.Stage.REPLY_TO_UPDATE, System.nanoTime() - start);
         }
     }
 
     @Override
     public void securityDefinitionOptionalParameterEnd(int reqId) {
-        logger.info("Finished receiving option chain parameters for ReqId: {}", reqId);
+        logger.info("Finished receiving option chain parameters for ReqId: {}", box(reqId));
+        asyncClient.onOptionChainParameterEnd(reqId);
     }
 
     @Override
     public void realtimeBar(int reqId, long time, double open, double high, double low, double close, Decimal volume, Decimal wap, int count) {
-         logger.info(String.format("Real-time bar. ReqId: %d, Time: %d, O: %f, H: %f, L: %f, C: %f, Vol: %s",
-                reqId, time, open, high, low, close, volume));
+        long start = 0;
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.REALTIME_BAR);
+            start = System.nanoTime();
+        }
+        if (tickLogger.isDebugEnabled() && realtimeBarLogLimiter.tryAcquire()) {
+            tickLogger.debug("Real-time bar. ReqId: {}, Time: {}, O: {}, H: {}, L: {}, C: {}, Vol: {} ({} suppressed)",
+                    box(reqId), box(time), box(open), box(high), box(low), box(close), volume,
+                    box(realtimeBarLogLimiter.drainSuppressed()));
+        }
+        if (asyncClient.onRealtimeBar(reqId, time, open, high, low, close, shares(volume)) && Metrics.ENABLED) {
+            Metrics.recordStage(Metrics.Stage.TICK_TO_UPDATE, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return The size in whole shares, or 0 if IB sent none.
+     */
+    private static long shares(Decimal size) {
+        return size != null && size.isValid() ? size.longValue() : 0;
     }
 
     @Override
     public void tickPrice(int tickerId, int field, double price, TickAttrib attrib) {
-        logger.debug(String.format("Tick Price. Ticker Id: %d, Field: %s, Price: %f", tickerId, TickType.getField(field), price));
-        if (marketData != null) {
-            MarketData.RequestType requestType = marketData.getRequestType(tickerId);
-            if (requestType == MarketData.RequestType.UNDERLYING_MARKET_DATA) {
-                if (field == TickType.LAST.ordinal() || field == TickType.CLOSE.ordinal()) {
-                    marketData.setUnderlyingPrice(tickerId, price);
-                }
-            }
+        long start = 0;
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.TICK_PRICE);
+            start = System.nanoTime();
+        }
+        if (tickLogger.isDebugEnabled() && tickPriceLogLimiter.tryAcquire()) {
+            tickLogger.debug("Tick Price. Ticker Id: {}, Field: {}, Price: {} ({} suppressed)",
+                    box(tickerId), TickType.getField(field), box(price), box(tickPriceLogLimiter.drainSuppressed()));
+        }
+        if (asyncClient.onTickPrice(tickerId, field, price) && Metrics.ENABLED) {
+            Metrics.recordStage(Metrics.Stage.TICK_TO_UPDATE, System.nanoTime() - start);
         }
     }
 
     @Override
     public void tickSize(int tickerId, int field, Decimal size) {
-        logger.debug(String.format("Tick Size. Ticker Id: %d, Field: %s, Size: %s", tickerId, TickType.getField(field), size));
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.TICK_SIZE);
+        }
+        if (tickLogger.isDebugEnabled() && tickSizeLogLimiter.tryAcquire()) {
+            tickLogger.debug("Tick Size. Ticker Id: {}, Field: {}, Size: {} ({} suppressed)",
+                    box(tickerId), TickType.getField(field), size, box(tickSizeLogLimiter.drainSuppressed()));
+        }
+        asyncClient.onTickSize(tickerId, field, shares(size));
     }
 
     @Override
     public void tickString(int tickerId, int tickType, String value) {
-        logger.info(String.format("Tick String. Ticker Id: %d, Type: %s, Value: %s", tickerId, TickType.getField(tickType), value));
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.TICK_STRING);
+        }
+        if (tickLogger.isDebugEnabled() && tickStringLogLimiter.tryAcquire()) {
+            tickLogger.debug("Tick String. Ticker Id: {}, Type: {}, Value: {} ({} suppressed)",
+                    box(tickerId), TickType.getField(tickType), value, box(tickStringLogLimiter.drainSuppressed()));
+        }
     }
 
     @Override
     public void historicalData(int reqId, Bar bar) {
-        if (marketData != null) {
-            MarketData.RequestType requestType = marketData.getRequestType(reqId);
-            if (requestType == MarketData.RequestType.HISTORICAL_DATA) {
-                marketData.addHistoricalBar(reqId, bar);
-            } else if (requestType == MarketData.RequestType.HISTORICAL_VOLATILITY) {
-                marketData.setHistoricalVolatility(reqId, bar.time(), bar.close());
-            } else if (requestType == MarketData.RequestType.OPTION_IMPLIED_VOLATILITY) {
-                marketData.setOptionImpliedVolatility(reqId, bar.time(), bar.close());
-            }
+        long start = 0;
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.HISTORICAL_DATA);
+            start = System.nanoTime();
+        }
+        if (asyncClient.onHistoricalBar(reqId, bar) && Metrics.ENABLED) {
+            Metrics.recordStage(Metrics.Stage.REPLY_TO_UPDATE, System.nanoTime() - start);
         }
     }
 
     @Override
     public void historicalDataEnd(int reqId, String startDateStr, String endDateStr) {
-        if (marketData != null) {
-            marketData.historicalDataEnd(reqId, startDateStr, endDateStr);
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.HISTORICAL_DATA_END);
         }
+        asyncClient.onHistoricalDataEnd(reqId);
     }
 
     // --- Empty Implementations for the rest of EWrapper ---
@@ -181,10 +249,20 @@ public class EWrapperImpl implements EWrapper {
     public void orderStatus(int orderId, String status, Decimal filled, Decimal remaining, double avgFillPrice, long permId, int parentId, double lastFillPrice, int clientId, String whyHeld, double mktCapa) {}
 
     @Override
-    public void tickOptionComputation(int tickerId, int field, int tickAttrib, double impliedVol, double delta, double optPrice, double pvDividend, double gamma, double vega, double theta, double undPrice) {}
+    public void tickOptionComputation(int tickerId, int field, int tickAttrib, double impliedVol, double delta, double optPrice, double pvDividend, double gamma, double vega, double theta, double undPrice) {
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.TICK_OPTION_COMPUTATION);
+        }
+        asyncClient.onTickOptionComputation(tickerId, field, impliedVol, delta, optPrice, undPrice);
+    }
 
     @Override
-    public void tickGeneric(int tickerId, int tickType, double value) {}
+    public void tickGeneric(int tickerId, int tickType, double value) {
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.TICK_GENERIC);
+        }
+        asyncClient.onTickGeneric(tickerId, tickType, value);
+    }
 
     @Override
     public void tickEFP(int tickerId, int tickType, double basisPoints, String formattedBasisPoints, double impliedFuture, int holdDays, String futureLastTradeDate, double dividendImpact, double dividendsToLastTradeDate) {}
@@ -250,7 +328,9 @@ public class EWrapperImpl implements EWrapper {
     public void deltaNeutralValidation(int reqId, DeltaNeutralContract deltaNeutralContract) {}
 
     @Override
-    public void tickSnapshotEnd(int reqId) {}
+    public void tickSnapshotEnd(int reqId) {
+        asyncClient.onTickSnapshotEnd(reqId);
+    }
 
     @Override
     public void marketDataType(int reqId, int marketDataType) {}
@@ -346,7 +426,9 @@ public class EWrapperImpl implements EWrapper {
     public void rerouteMktDepthReq(int reqId, int conId, String exchange) {}
 
     @Override
-    public void marketRule(int marketRuleId, PriceIncrement[] priceIncrements) {}
+    public void marketRule(int marketRuleId, PriceIncrement[] priceIncrements) {
+        asyncClient.onMarketRule(marketRuleId, priceIncrements);
+    }
 
     @Override
     public void pnl(int reqId, double dailyPnL, double unrealizedPnL, double realizedPnL) {}
@@ -364,13 +446,40 @@ public class EWrapperImpl implements EWrapper {
     public void historicalTicksLast(int reqId, List<HistoricalTickLast> ticks, boolean done) {}
 
     @Override
-    public void tickByTickAllLast(int reqId, int tickType, long time, double price, Decimal size, TickAttribLast tickAttribLast, String exchange, String specialConditions) {}
+    public void tickByTickAllLast(int reqId, int tickType, long time, double price, Decimal size, TickAttribLast tickAttribLast, String exchange, String specialConditions) {
+        long start = 0;
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.TICK_BY_TICK);
+            start = System.nanoTime();
+        }
+        if (asyncClient.onTickByTickTrade(reqId, time, price, shares(size)) && Metrics.ENABLED) {
+            Metrics.recordStage(Metrics.Stage.TICK_TO_UPDATE, System.nanoTime() - start);
+        }
+    }
 
     @Override
-    public void tickByTickBidAsk(int reqId, long time, double bidPrice, double askPrice, Decimal bidSize, Decimal askSize, TickAttribBidAsk tickAttribBidAsk) {}
+    public void tickByTickBidAsk(int reqId, long time, double bidPrice, double askPrice, Decimal bidSize, Decimal askSize, TickAttribBidAsk tickAttribBidAsk) {
+        long start = 0;
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.TICK_BY_TICK);
+            start = System.nanoTime();
+        }
+        if (asyncClient.onTickByTickQuote(reqId, time, bidPrice, askPrice, shares(bidSize), shares(askSize)) && Metrics.ENABLED) {
+            Metrics.recordStage(Metrics.Stage.TICK_TO_UPDATE, System.nanoTime() - start);
+        }
+    }
 
     @Override
-    public void tickByTickMidPoint(int reqId, long time, double midPoint) {}
+    public void tickByTickMidPoint(int reqId, long time, double midPoint) {
+        long start = 0;
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.TICK_BY_TICK);
+            start = System.nanoTime();
+        }
+        if (asyncClient.onTickByTickMidPoint(reqId, time, midPoint) && Metrics.ENABLED) {
+            Metrics.recordStage(Metrics.Stage.TICK_TO_UPDATE, System.nanoTime() - start);
+        }
+    }
 
     @Override
     public void orderBound(long orderId, int apiClientId, int apiOrderId) {}
@@ -401,6 +510,21 @@ public class EWrapperImpl implements EWrapper {
 
     }
 
+    /**
+     * Counts a protobuf message of a type the pipeline consumes. EDecoder hands each protobuf message to its
+     * {@code *ProtoBuf} callback and then, decoded, to the legacy callback, which feeds the pipeline; applying
+     * the protobuf variant as well would apply every update twice.
+     */
+    private void protoBuf() {
+        if (Metrics.ENABLED) {
+            Metrics.countCallback(Metrics.CallbackType.PROTOBUF);
+        }
+        if (!protoBufReceived) {
+            protoBufReceived = true;
+            logger.info("TWS is sending protobuf messages; their updates are applied through the legacy callbacks");
+        }
+    }
+
     @Override
     public void orderStatusProtoBuf(OrderStatusProto.OrderStatus orderStatus) {
 
@@ -418,7 +542,7 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void errorProtoBuf(ErrorMessageProto.ErrorMessage errorMessage) {
-
+        protoBuf();
     }
 
     @Override
@@ -448,7 +572,7 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void contractDataProtoBuf(ContractDataProto.ContractData contractData) {
-
+        protoBuf();
     }
 
     @Override
@@ -458,37 +582,37 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void contractDataEndProtoBuf(ContractDataEndProto.ContractDataEnd contractDataEnd) {
-
+        protoBuf();
     }
 
     @Override
     public void tickPriceProtoBuf(TickPriceProto.TickPrice tickPrice) {
-
+        protoBuf();
     }
 
     @Override
     public void tickSizeProtoBuf(TickSizeProto.TickSize tickSize) {
-
+        protoBuf();
     }
 
     @Override
     public void tickOptionComputationProtoBuf(TickOptionComputationProto.TickOptionComputation tickOptionComputation) {
-
+        protoBuf();
     }
 
     @Override
     public void tickGenericProtoBuf(TickGenericProto.TickGeneric tickGeneric) {
-
+        protoBuf();
     }
 
     @Override
     public void tickStringProtoBuf(TickStringProto.TickString tickString) {
-
+        protoBuf();
     }
 
     @Override
     public void tickSnapshotEndProtoBuf(TickSnapshotEndProto.TickSnapshotEnd tickSnapshotEnd) {
-
+        protoBuf();
     }
 
     @Override
@@ -578,7 +702,7 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void historicalDataProtoBuf(HistoricalDataProto.HistoricalData historicalData) {
-
+        protoBuf();
     }
 
     @Override
@@ -588,12 +712,12 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void historicalDataEndProtoBuf(HistoricalDataEndProto.HistoricalDataEnd historicalDataEnd) {
-
+        protoBuf();
     }
 
     @Override
     public void realTimeBarTickProtoBuf(RealTimeBarTickProto.RealTimeBarTick realTimeBarTick) {
-
+        protoBuf();
     }
 
     @Override
@@ -623,7 +747,7 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void tickByTickDataProtoBuf(TickByTickDataProto.TickByTickData tickByTickData) {
-
+        protoBuf();
     }
 
     @Override
@@ -723,12 +847,12 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void secDefOptParameterProtoBuf(SecDefOptParameterProto.SecDefOptParameter secDefOptParameter) {
-
+        protoBuf();
     }
 
     @Override
     public void secDefOptParameterEndProtoBuf(SecDefOptParameterEndProto.SecDefOptParameterEnd secDefOptParameterEnd) {
-
+        protoBuf();
     }
 
     @Override
@@ -753,7 +877,7 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void marketRuleProtoBuf(MarketRuleProto.MarketRule marketRule) {
-
+        protoBuf();
     }
 
     @Override
@@ -0,0 +1,26 @@
+package com.sigmaflow.api;
+
+/**
+ * An error reported by TWS for a request, completing the request's future exceptionally.
+ */
+public class IbApiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int reqId;
+    private final int errorCode;
+
+    public IbApiException(int reqId, int errorCode, String message) {
+        super("IB error " + errorCode + " for request " + reqId + ": " + message);
+        this.reqId = reqId;
+        this.errorCode = errorCode;
+    }
+
+    public int getReqId() {
+        return reqId;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+}
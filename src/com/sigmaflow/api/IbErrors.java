@@ -0,0 +1,69 @@
+package com.sigmaflow.api;
+
+import java.util.Locale;
+
+/**
+ * Classification of the error codes TWS sends through {@code EWrapper.error}.
+ */
+public final class IbErrors {
+
+    public enum Severity {
+        /** Status notices (farm connection OK, delayed data in use, ...); the request, if any, keeps running. */
+        INFO,
+        /** Data or farm connectivity is impaired but recovers on its own; not tied to a request. */
+        CONNECTIVITY,
+        /** The request failed but the same request is expected to succeed later. */
+        TRANSIENT,
+        /** The request can never succeed as issued, e.g. an unknown symbol. */
+        PERMANENT
+    }
+
+    public static final int MAX_TICKER_IDS = 101;
+    public static final int PACING_VIOLATION = 162;
+    public static final int NO_SECURITY_DEFINITION = 200;
+    public static final int REQUEST_PROCESSING_ERROR = 322;
+    public static final int HISTORICAL_QUERY_NOT_FOUND = 366;
+    public static final int REALTIME_PACING = 420;
+    public static final int NOT_CONNECTED = 504;
+    public static final int CONNECTIVITY_LOST = 1100;
+    public static final int CONNECTIVITY_RESTORED_DATA_LOST = 1101;
+    public static final int CONNECTIVITY_RESTORED_DATA_MAINTAINED = 1102;
+    public static final int SOCKET_PORT_RESET = 1300;
+    public static final int MARKET_DATA_FARM_BROKEN = 2103;
+    public static final int HISTORICAL_FARM_BROKEN = 2105;
+    public static final int SEC_DEF_FARM_BROKEN = 2157;
+    public static final int PARTIALLY_SUBSCRIBED = 10090;
+    public static final int DELAYED_DATA = 10167;
+    public static final int COMPETING_SESSION = 10197;
+
+    private IbErrors() {
+    }
+
+    /**
+     * @param errorCode The TWS error code.
+     * @param errorMsg  The message; code 162 covers both pacing violations and empty results.
+     */
+    public static Severity classify(int errorCode, String errorMsg) {
+        switch (errorCode) {
+            case MARKET_DATA_FARM_BROKEN, HISTORICAL_FARM_BROKEN, SEC_DEF_FARM_BROKEN, CONNECTIVITY_LOST, SOCKET_PORT_RESET:
+                return Severity.CONNECTIVITY;
+            case PACING_VIOLATION:
+                // "Historical Market Data Service error message:HMDS query returned no data" is final
+                return errorMsg != null && errorMsg.toLowerCase(Locale.ROOT).contains("no data")
+                        ? Severity.PERMANENT : Severity.TRANSIENT;
+            case MAX_TICKER_IDS, REQUEST_PROCESSING_ERROR, REALTIME_PACING, NOT_CONNECTED, COMPETING_SESSION:
+                return Severity.TRANSIENT;
+            case NO_SECURITY_DEFINITION:
+                return Severity.PERMANENT;
+            case HISTORICAL_QUERY_NOT_FOUND, CONNECTIVITY_RESTORED_DATA_LOST, CONNECTIVITY_RESTORED_DATA_MAINTAINED,
+                 PARTIALLY_SUBSCRIBED, DELAYED_DATA:
+                return Severity.INFO;
+            default:
+                break;
+        }
+        if (errorCode >= 2100 && errorCode < 2200) {
+            return Severity.INFO;
+        }
+        return Severity.PERMANENT;
+    }
+}
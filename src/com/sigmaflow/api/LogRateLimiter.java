@@ -0,0 +1,61 @@
+package com.sigmaflow.api;
+
+/**
+ * Caps how many per-event log messages are written per second, so logging cost stays flat as tick rates grow.
+ * <p>
+ * Instances are confined to the EReader thread that owns the {@link EWrapperImpl}, so no synchronization is used.
+ * Messages dropped in one window are reported by {@link #drainSuppressed()} once the next message gets through.
+ */
+public class LogRateLimiter {
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final int maxPerSecond;
+    private long windowStart;
+    private int permitsUsed;
+    private long suppressed;
+
+    /**
+     * @param maxPerSecond Messages allowed per second; 0 or less disables limiting.
+     */
+    public LogRateLimiter(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+        this.windowStart = System.nanoTime();
+    }
+
+    /**
+     * Creates a limiter configured by {@code -Dsigmaflow.log.ticksPerSecond} (default 20, 0 for unlimited).
+     */
+    public static LogRateLimiter forTicks() {
+        return new LogRateLimiter(Integer.getInteger("sigmaflow.log.ticksPerSecond", 20));
+    }
+
+    /**
+     * @return true if the caller may log this event.
+     */
+    public boolean tryAcquire() {
+        if (maxPerSecond <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - windowStart >= WINDOW_NANOS) {
+            windowStart = now;
+            permitsUsed = 0;
+        }
+        if (permitsUsed < maxPerSecond) {
+            permitsUsed++;
+            return true;
+        }
+        suppressed++;
+        return false;
+    }
+
+    /**
+     * @return The number of messages suppressed since the last call.
+     */
+    public long drainSuppressed() {
+        long count = suppressed;
+        suppressed = 0;
+        return count;
+    }
+}
@@ -0,0 +1,29 @@
+package com.sigmaflow.api;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntSupplier;
+
+/**
+ * The future of a request to TWS, carrying the id the request is sent under. Stages derived from it are plain
+ * {@link CompletableFuture}s.
+ */
+public final class RequestFuture<T> extends CompletableFuture<T> {
+
+    private final IntSupplier reqId;
+
+    RequestFuture(IntSupplier reqId) {
+        this.reqId = reqId;
+    }
+
+    /**
+     * @return The id the request was last sent under; callbacks for it arrive under this id. A retry changes it.
+     */
+    public int reqId() {
+        return reqId.getAsInt();
+    }
+
+    @Override
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,211 @@
+package com.sigmaflow.api;
+
+import com.sigmaflow.data.MarketData.RequestType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Issues API requests no faster than TWS allows. Requests are queued and sent from a single scheduler thread,
+ * subject to three limits (all configurable through system properties):
+ * <ul>
+ *   <li>{@code sigmaflow.pacing.messagesPerSecond} (default 40): spacing between any two requests, below the
+ *       50 messages per second at which TWS disconnects the client.</li>
+ *   <li>{@code sigmaflow.pacing.historicalInFlight} (default 50): open historical requests.</li>
+ *   <li>{@code sigmaflow.pacing.historicalPer10Minutes} (default 60): historical requests started in any 10 minutes,
+ *       beyond which TWS answers with pacing violations.</li>
+ * </ul>
+ * Historical requests waiting for a slot do not hold up other request types queued behind them. While paused (e.g.
+ * disconnected) requests are queued but not sent.
+ */
+public class RequestPacer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(RequestPacer.class);
+
+    private static final int MESSAGES_PER_SECOND = Integer.getInteger("sigmaflow.pacing.messagesPerSecond", 40);
+    private static final int HISTORICAL_IN_FLIGHT = Integer.getInteger("sigmaflow.pacing.historicalInFlight", 50);
+    private static final int HISTORICAL_PER_WINDOW = Integer.getInteger("sigmaflow.pacing.historicalPer10Minutes", 60);
+    private static final long HISTORICAL_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private record Request(RequestType type, CompletableFuture<?> completion, Runnable issue) {
+        boolean historical() {
+            return isHistorical(type);
+        }
+    }
+
+    private final long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, MESSAGES_PER_SECOND);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "request-pacer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private final Deque<Request> queue = new ArrayDeque<>();
+    private final Deque<Request> historicalQueue = new ArrayDeque<>();
+    private final Deque<Long> historicalStarts = new ArrayDeque<>();
+    // Completions of the open historical requests; a replayed request keeps its slot
+    private final Set<CompletableFuture<?>> historicalOpen = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean paused;
+    private long nextSendNanos = System.nanoTime();
+    // When the earliest scheduled drain runs; later requests for a drain that would not run sooner are dropped
+    private long drainAtNanos = Long.MAX_VALUE;
+
+    /**
+     * Queues a request.
+     *
+     * @param type       The request type; historical types are subject to the historical limits.
+     * @param completion Completes when the request is answered. A request whose completion is already done when its
+     *                   turn comes (e.g. timed out while queued) is dropped.
+     * @param issue      Sends the request; runs on the pacer thread.
+     */
+    public void submit(RequestType type, CompletableFuture<?> completion, Runnable issue) {
+        Request request = new Request(type, completion, issue);
+        synchronized (this) {
+            (request.historical() ? historicalQueue : queue).add(request);
+            scheduleDrain(System.nanoTime());
+        }
+    }
+
+    private synchronized void scheduleDrain(long atNanos) {
+        if (atNanos >= drainAtNanos) {
+            return;
+        }
+        drainAtNanos = atNanos;
+        scheduler.schedule(this::drain, Math.max(0, atNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops sending; submitted requests stay queued.
+     */
+    public synchronized void pause() {
+        paused = true;
+    }
+
+    /**
+     * Resumes sending queued requests.
+     */
+    public synchronized void resume() {
+        paused = false;
+        scheduleDrain(System.nanoTime());
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    private void drain() {
+        synchronized (this) {
+            drainAtNanos = Long.MAX_VALUE;
+        }
+        while (true) {
+            Request next = null;
+            boolean newlyOpen = false;
+            synchronized (this) {
+                if (paused) {
+                    return;
+                }
+                long now = System.nanoTime();
+                long historicalWait = historicalWaitNanos(now);
+                if (historicalWait == 0) {
+                    next = historicalQueue.poll();
+                }
+                if (next == null) {
+                    next = queue.poll();
+                }
+                if (next == null) {
+                    // Nothing sendable: wait for the historical window; a completed request or a submit drains again
+                    if (historicalWait != Long.MAX_VALUE) {
+                        scheduleDrain(now + historicalWait);
+                    }
+                    return;
+                }
+                if (next.completion.isDone()) {
+                    continue;
+                }
+                if (now < nextSendNanos) {
+                    // Put it back and wait for the next message slot
+                    (next.historical() ? historicalQueue : queue).addFirst(next);
+                    scheduleDrain(nextSendNanos);
+                    return;
+                }
+                nextSendNanos = now + intervalNanos;
+                if (next.historical()) {
+                    newlyOpen = historicalOpen.add(next.completion);
+                    historicalStarts.add(now);
+                }
+            }
+            if (newlyOpen) {
+                CompletableFuture<?> completion = next.completion;
+                completion.whenComplete((result, error) -> historicalCompleted(completion));
+            }
+            try {
+                next.issue.run();
+            } catch (RuntimeException e) {
+                next.completion.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * @return 0 if a queued historical request may start now, the time until it may, or Long.MAX_VALUE if it waits
+     * for an open request to complete (or none is queued).
+     */
+    private long historicalWaitNanos(long now) {
+        if (historicalQueue.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        if (historicalOpen.size() >= HISTORICAL_IN_FLIGHT && !historicalOpen.contains(historicalQueue.peekFirst().completion)) {
+            return Long.MAX_VALUE;
+        }
+        while (!historicalStarts.isEmpty() && now - historicalStarts.peekFirst() >= HISTORICAL_WINDOW_NANOS) {
+            historicalStarts.pollFirst();
+        }
+        if (historicalStarts.size() >= HISTORICAL_PER_WINDOW) {
+            long waitNanos = historicalStarts.peekFirst() + HISTORICAL_WINDOW_NANOS - now;
+            if (logger.isDebugEnabled()) {
+                logger.debug("Historical pacing window full, {} requests waiting {} ms", box(historicalQueue.size()),
+                        box(TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+            }
+            return waitNanos;
+        }
+        return 0;
+    }
+
+    private void historicalCompleted(CompletableFuture<?> completion) {
+        synchronized (this) {
+            historicalOpen.remove(completion);
+            scheduleDrain(System.nanoTime());
+        }
+    }
+
+    public synchronized int queuedCount() {
+        return queue.size() + historicalQueue.size();
+    }
+
+    public synchronized int historicalInFlight() {
+        return historicalOpen.size();
+    }
+
+    static boolean isHistorical(RequestType type) {
+        return type == RequestType.HISTORICAL_DATA
+                || type == RequestType.HISTORICAL_VOLATILITY
+                || type == RequestType.OPTION_IMPLIED_VOLATILITY;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,40 @@
+package com.sigmaflow.api;
+
+/**
+ * Receives the events of a streaming subscription or market data snapshot, on the EReader thread. Arguments are primitives, so delivering
+ * an event allocates nothing; implementations should be as cheap. Times are epoch seconds, sizes whole shares.
+ */
+public interface StreamListener {
+
+    /** A 5-second real-time bar. */
+    default void onRealtimeBar(long time, double open, double high, double low, double close, long volume) {
+    }
+
+    /** A tick-by-tick trade. */
+    default void onTrade(long time, double price, long size) {
+    }
+
+    /** A tick-by-tick change of the best bid or ask. */
+    default void onQuote(long time, double bidPrice, double askPrice, long bidSize, long askSize) {
+    }
+
+    /** A tick-by-tick change of the bid/ask midpoint. */
+    default void onMidPoint(long time, double midPoint) {
+    }
+
+    /** A price tick of a market data request; the field is a {@code TickType} index. */
+    default void onTickPrice(int field, double price) {
+    }
+
+    /** A size tick of a market data request, e.g. bid size, volume or open interest. */
+    default void onTickSize(int field, long size) {
+    }
+
+    /** A generic tick of a market data request, e.g. a trading halt. */
+    default void onTickGeneric(int field, double value) {
+    }
+
+    /** An option computation of a market data request, with TWS's placeholders for unavailable values removed. */
+    default void onOptionComputation(int field, double impliedVol, double delta, double optionPrice, double underlyingPrice) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.sigmaflow.api;
+
+/**
+ * An open streaming subscription. It stays open across reconnects, and is re-requested after transient errors,
+ * until cancelled or failed with a permanent error.
+ */
+public interface Subscription {
+
+    /**
+     * @return The request id the subscription streams under.
+     */
+    int reqId();
+
+    /**
+     * @return Whether the subscription is still open.
+     */
+    boolean isActive();
+
+    /**
+     * Cancels the subscription at IB. Events already queued may still be delivered; calling again has no effect.
+     */
+    void cancel();
+}
@@ -0,0 +1,277 @@
+package com.sigmaflow.archive;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Archived daily closes, historical volatility and implied volatility for a universe of tickers,
+ * aligned on a common trading calendar, with each ticker's peer group.
+ * <p>
+ * The archive is a directory with one CSV file per ticker named {@code <TICKER>.csv}. Each file has a header
+ * containing at least the columns {@code date} (yyyyMMdd), {@code close}, {@code hv} and {@code iv}, and optionally
+ * {@code group}; the last non-empty group applies to the whole history. Missing values are stored as NaN.
+ * <p>
+ * Live runs append to the archive and the backtester reads it, so the format depends on neither.
+ */
+public class HistoricalArchive {
+
+    private static final Logger logger = LogManager.getLogger(HistoricalArchive.class);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final String[] tickers;
+    private final String[] peerGroups;
+    private final int[] calendar;
+    private final double[][] close;
+    private final double[][] historicalVolatility;
+    private final double[][] impliedVolatility;
+
+    private HistoricalArchive(String[] tickers, String[] peerGroups, int[] calendar, double[][] close,
+                              double[][] historicalVolatility, double[][] impliedVolatility) {
+        this.tickers = tickers;
+        this.peerGroups = peerGroups;
+        this.calendar = calendar;
+        this.close = close;
+        this.historicalVolatility = historicalVolatility;
+        this.impliedVolatility = impliedVolatility;
+    }
+
+    /**
+     * Loads every {@code *.csv} file in the given directory. Files are parsed in parallel.
+     *
+     * @param directory The archive directory.
+     * @return The loaded archive.
+     * @throws IOException If the directory cannot be listed or a file cannot be read.
+     */
+    public static HistoricalArchive load(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.csv")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+
+        List<TickerSeries> series;
+        try {
+            series = files.parallelStream().map(HistoricalArchive::readSeries).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        TreeSet<Integer> allDays = new TreeSet<>();
+        for (TickerSeries s : series) {
+            allDays.addAll(s.rows.keySet());
+        }
+        int[] calendar = allDays.stream().mapToInt(Integer::intValue).toArray();
+
+        String[] tickers = new String[series.size()];
+        String[] peerGroups = new String[series.size()];
+        double[][] close = new double[series.size()][];
+        double[][] hv = new double[series.size()][];
+        double[][] iv = new double[series.size()][];
+        for (int t = 0; t < series.size(); t++) {
+            TickerSeries s = series.get(t);
+            tickers[t] = s.ticker;
+            peerGroups[t] = s.group;
+            close[t] = nanArray(calendar.length);
+            hv[t] = nanArray(calendar.length);
+            iv[t] = nanArray(calendar.length);
+            for (Map.Entry<Integer, double[]> row : s.rows.entrySet()) {
+                int d = Arrays.binarySearch(calendar, row.getKey());
+                close[t][d] = row.getValue()[0];
+                hv[t][d] = row.getValue()[1];
+                iv[t][d] = row.getValue()[2];
+            }
+        }
+
+        logger.info("Loaded archive with {} tickers and {} trading days from {}", tickers.length, calendar.length, directory);
+        return new HistoricalArchive(tickers, peerGroups, calendar, close, hv, iv);
+    }
+
+    /**
+     * Writes one ticker to the archive format read by {@link #load(Path)}.
+     * Rows already archived for other dates are kept, so repeated runs extend the history.
+     *
+     * @param directory            The archive directory.
+     * @param ticker               The ticker symbol.
+     * @param closes               Daily closes keyed by date.
+     * @param historicalVolatility Historical volatility keyed by date (may be null).
+     * @param impliedVolatility    Implied volatility keyed by date (may be null).
+     * @param peerGroup            The peer group the live ranking measures the ticker against (may be null, keeping
+     *                             the archived one).
+     * @throws IOException If the file cannot be read or written.
+     */
+    public static void write(Path directory, String ticker, NavigableMap<LocalDate, Double> closes,
+                             Map<LocalDate, Double> historicalVolatility, Map<LocalDate, Double> impliedVolatility,
+                             String peerGroup) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(ticker + ".csv");
+
+        TreeMap<Integer, double[]> rows = new TreeMap<>();
+        String group = peerGroup;
+        if (Files.exists(file)) {
+            try {
+                TickerSeries existing = readSeries(file);
+                rows = existing.rows;
+                if (group == null || group.isEmpty()) {
+                    group = existing.group;
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        // Rows are split on commas, which some industry names contain
+        String groupColumn = group != null ? group.replace(',', ';') : "";
+        for (Map.Entry<LocalDate, Double> entry : closes.entrySet()) {
+            Double hv = historicalVolatility != null ? historicalVolatility.get(entry.getKey()) : null;
+            Double iv = impliedVolatility != null ? impliedVolatility.get(entry.getKey()) : null;
+            rows.put((int) entry.getKey().toEpochDay(), new double[]{
+                    entry.getValue(), hv != null ? hv : Double.NaN, iv != null ? iv : Double.NaN});
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("date,close,hv,iv,group");
+            writer.newLine();
+            for (Map.Entry<Integer, double[]> row : rows.entrySet()) {
+                double[] values = row.getValue();
+                writer.write(LocalDate.ofEpochDay(row.getKey()).format(DATE_FORMAT) + "," + formatOrEmpty(values[0]) + ","
+                        + formatOrEmpty(values[1]) + "," + formatOrEmpty(values[2]) + "," + groupColumn);
+                writer.newLine();
+            }
+        }
+    }
+
+    private static String formatOrEmpty(double value) {
+        return Double.isNaN(value) ? "" : Double.toString(value);
+    }
+
+    private static TickerSeries readSeries(Path file) {
+        String fileName = file.getFileName().toString();
+        String ticker = fileName.substring(0, fileName.length() - ".csv".length());
+        TreeMap<Integer, double[]> rows = new TreeMap<>();
+        String group = null;
+        try (BufferedReader br = Files.newBufferedReader(file)) {
+            String header = br.readLine();
+            if (header == null) {
+                return new TickerSeries(ticker, null, rows);
+            }
+            List<String> columns = Arrays.asList(header.toLowerCase().split(","));
+            int dateCol = columns.indexOf("date");
+            int closeCol = columns.indexOf("close");
+            int hvCol = columns.indexOf("hv");
+            int ivCol = columns.indexOf("iv");
+            int groupCol = columns.indexOf("group");
+            if (dateCol < 0 || closeCol < 0) {
+                logger.warn("Skipping archive file without date/close columns: {}", file);
+                return new TickerSeries(ticker, null, rows);
+            }
+
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] values = line.split(",", -1);
+                try {
+                    int epochDay = (int) LocalDate.parse(values[dateCol].trim(), DATE_FORMAT).toEpochDay();
+                    rows.put(epochDay, new double[]{
+                            parseOrNaN(values, closeCol), parseOrNaN(values, hvCol), parseOrNaN(values, ivCol)});
+                    if (groupCol >= 0 && groupCol < values.length && !values[groupCol].isBlank()) {
+                        group = values[groupCol].trim();
+                    }
+                } catch (Exception e) {
+                    logger.debug("Skipping malformed archive row in {}: {}", file, line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new TickerSeries(ticker, group, rows);
+    }
+
+    private static double parseOrNaN(String[] values, int column) {
+        if (column < 0 || column >= values.length || values[column].isBlank()) {
+            return Double.NaN;
+        }
+        return Double.parseDouble(values[column].trim());
+    }
+
+    private static double[] nanArray(int length) {
+        double[] array = new double[length];
+        Arrays.fill(array, Double.NaN);
+        return array;
+    }
+
+    public int tickerCount() {
+        return tickers.length;
+    }
+
+    public int dayCount() {
+        return calendar.length;
+    }
+
+    public String ticker(int t) {
+        return tickers[t];
+    }
+
+    /** The ticker's peer group, or null if none was archived. */
+    public String peerGroup(int t) {
+        return peerGroups[t];
+    }
+
+    /** Trading day at the given calendar index, as epoch day. */
+    public int epochDay(int d) {
+        return calendar[d];
+    }
+
+    public LocalDate date(int d) {
+        return LocalDate.ofEpochDay(calendar[d]);
+    }
+
+    /**
+     * Returns the index of the first trading day on or after the given date.
+     */
+    public int indexOnOrAfter(LocalDate date) {
+        long epochDay = Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, date.toEpochDay()));
+        int idx = Arrays.binarySearch(calendar, (int) epochDay);
+        return idx >= 0 ? idx : -idx - 1;
+    }
+
+    public double close(int t, int d) {
+        return close[t][d];
+    }
+
+    public double historicalVolatility(int t, int d) {
+        return historicalVolatility[t][d];
+    }
+
+    public double impliedVolatility(int t, int d) {
+        return impliedVolatility[t][d];
+    }
+
+    private static class TickerSeries {
+        final String ticker;
+        final String group;
+        final TreeMap<Integer, double[]> rows;
+
+        TickerSeries(String ticker, String group, TreeMap<Integer, double[]> rows) {
+            this.ticker = ticker;
+            this.group = group;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.sigmaflow.backtest;
+
+/**
+ * Parameter set for one backtest run. Instances are immutable; use the {@code with*} methods to derive variants
+ * for a parameter sweep.
+ */
+public class BacktestConfig {
+
+    private final int lookbackDays;
+    private final int holdingDays;
+    private final int targetDaysToExpiration;
+    private final int contracts;
+    private final int hedgeShares;
+    private final double strikeIncrement;
+    private final double riskFreeRate;
+    private final double optionSlippage;
+    private final double stockSlippage;
+    private final double commissionPerContract;
+    private final double commissionPerShare;
+    private final double weightA;
+    private final double weightB;
+    private final double weightC;
+
+    /**
+     * Defaults mirror the live recommendation: one-month (21 trading day) lookback, 1 call hedged with 50 shares,
+     * two-week expiry.
+     */
+    public BacktestConfig() {
+        this(21, 10, 14, 1, 50, 1.0, 0.045, 0.02, 0.0005, 0.65, 0.005, 1.0, 1.0, 1.0);
+    }
+
+    public BacktestConfig(int lookbackDays, int holdingDays, int targetDaysToExpiration, int contracts, int hedgeShares,
+                          double strikeIncrement, double riskFreeRate, double optionSlippage, double stockSlippage,
+                          double commissionPerContract, double commissionPerShare,
+                          double weightA, double weightB, double weightC) {
+        if (lookbackDays < 1 || holdingDays < 1 || targetDaysToExpiration < 1) {
+            throw new IllegalArgumentException("lookbackDays, holdingDays and targetDaysToExpiration must be positive");
+        }
+        this.lookbackDays = lookbackDays;
+        this.holdingDays = holdingDays;
+        this.targetDaysToExpiration = targetDaysToExpiration;
+        this.contracts = contracts;
+        this.hedgeShares = hedgeShares;
+        this.strikeIncrement = strikeIncrement;
+        this.riskFreeRate = riskFreeRate;
+        this.optionSlippage = optionSlippage;
+        this.stockSlippage = stockSlippage;
+        this.commissionPerContract = commissionPerContract;
+        this.commissionPerShare = commissionPerShare;
+        this.weightA = weightA;
+        this.weightB = weightB;
+        this.weightC = weightC;
+    }
+
+    public BacktestConfig withLookbackDays(int value) {
+        return new BacktestConfig(value, holdingDays, targetDaysToExpiration, contracts, hedgeShares, strikeIncrement,
+                riskFreeRate, optionSlippage, stockSlippage, commissionPerContract, commissionPerShare, weightA, weightB, weightC);
+    }
+
+    public BacktestConfig withHoldingDays(int value) {
+        return new BacktestConfig(lookbackDays, value, targetDaysToExpiration, contracts, hedgeShares, strikeIncrement,
+                riskFreeRate, optionSlippage, stockSlippage, commissionPerContract, commissionPerShare, weightA, weightB, weightC);
+    }
+
+    public BacktestConfig withTargetDaysToExpiration(int value) {
+        return new BacktestConfig(lookbackDays, holdingDays, value, contracts, hedgeShares, strikeIncrement,
+                riskFreeRate, optionSlippage, stockSlippage, commissionPerContract, commissionPerShare, weightA, weightB, weightC);
+    }
+
+    public BacktestConfig withWeights(double a, double b, double c) {
+        return new BacktestConfig(lookbackDays, holdingDays, targetDaysToExpiration, contracts, hedgeShares, strikeIncrement,
+                riskFreeRate, optionSlippage, stockSlippage, commissionPerContract, commissionPerShare, a, b, c);
+    }
+
+    /** Trading days between the first and last implied volatility used for diffA. */
+    public int getLookbackDays() {
+        return lookbackDays;
+    }
+
+    /** Trading days a position is held; a new pair of trades is opened every {@code holdingDays}. */
+    public int getHoldingDays() {
+        return holdingDays;
+    }
+
+    /** Calendar days from entry to option expiration. */
+    public int getTargetDaysToExpiration() {
+        return targetDaysToExpiration;
+    }
+
+    public int getContracts() {
+        return contracts;
+    }
+
+    public int getHedgeShares() {
+        return hedgeShares;
+    }
+
+    public double getStrikeIncrement() {
+        return strikeIncrement;
+    }
+
+    public double getRiskFreeRate() {
+        return riskFreeRate;
+    }
+
+    /** Fraction of the option price paid on every fill. */
+    public double getOptionSlippage() {
+        return optionSlippage;
+    }
+
+    /** Fraction of the stock price paid on every fill. */
+    public double getStockSlippage() {
+        return stockSlippage;
+    }
+
+    public double getCommissionPerContract() {
+        return commissionPerContract;
+    }
+
+    public double getCommissionPerShare() {
+        return commissionPerShare;
+    }
+
+    public double getWeightA() {
+        return weightA;
+    }
+
+    public double getWeightB() {
+        return weightB;
+    }
+
+    public double getWeightC() {
+        return weightC;
+    }
+
+    @Override
+    public String toString() {
+        return "lookback=" + lookbackDays + " hold=" + holdingDays + " dte=" + targetDaysToExpiration
+                + " weights=" + weightA + "/" + weightB + "/" + weightC;
+    }
+}
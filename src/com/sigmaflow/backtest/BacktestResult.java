@@ -0,0 +1,85 @@
+package com.sigmaflow.backtest;
+
+import java.time.LocalDate;
+
+/**
+ * Outcome of one backtest run: the daily P&L curve and summary statistics.
+ */
+public class BacktestResult {
+
+    private final BacktestConfig config;
+    private final LocalDate[] dates;
+    private final double[] dailyPnL;
+    private final double[] equityCurve;
+    private final int trades;
+    private final int winningTrades;
+
+    public BacktestResult(BacktestConfig config, LocalDate[] dates, double[] dailyPnL, int trades, int winningTrades) {
+        this.config = config;
+        this.dates = dates;
+        this.dailyPnL = dailyPnL;
+        this.trades = trades;
+        this.winningTrades = winningTrades;
+        this.equityCurve = new double[dailyPnL.length];
+        double equity = 0;
+        for (int i = 0; i < dailyPnL.length; i++) {
+            equity += dailyPnL[i];
+            equityCurve[i] = equity;
+        }
+    }
+
+    public BacktestConfig getConfig() {
+        return config;
+    }
+
+    public LocalDate[] getDates() {
+        return dates;
+    }
+
+    public double[] getDailyPnL() {
+        return dailyPnL;
+    }
+
+    /** Cumulative P&L per trading day. */
+    public double[] getEquityCurve() {
+        return equityCurve;
+    }
+
+    public double getTotalPnL() {
+        return equityCurve.length > 0 ? equityCurve[equityCurve.length - 1] : 0;
+    }
+
+    public int getTrades() {
+        return trades;
+    }
+
+    public double getWinRate() {
+        return trades > 0 ? (double) winningTrades / trades : 0;
+    }
+
+    /** Largest peak-to-trough decline of the equity curve, as a positive number. */
+    public double getMaxDrawdown() {
+        double peak = 0;
+        double maxDrawdown = 0;
+        for (double equity : equityCurve) {
+            peak = Math.max(peak, equity);
+            maxDrawdown = Math.max(maxDrawdown, peak - equity);
+        }
+        return maxDrawdown;
+    }
+
+    /** Annualized Sharpe ratio of the daily P&L (assuming 252 trading days in a year). */
+    public double getSharpeRatio() {
+        int n = dailyPnL.length;
+        if (n < 2) {
+            return 0;
+        }
+        double mean = getTotalPnL() / n;
+        double sumOfSquaredDifferences = 0;
+        for (double pnl : dailyPnL) {
+            sumOfSquaredDifferences += (pnl - mean) * (pnl - mean);
+        }
+        double stdDev = Math.sqrt(sumOfSquaredDifferences / (n - 1));
+        return stdDev > 0 ? mean / stdDev * Math.sqrt(252) : 0;
+    }
+}
@@ -0,0 +1,282 @@
+package com.sigmaflow.backtest;
+
+import com.sigmaflow.analytics.PeerGroupStats;
+import com.sigmaflow.analytics.Volatility;
+import com.sigmaflow.archive.HistoricalArchive;
+import com.sigmaflow.strategy.TradeCandidate;
+import com.sigmaflow.strategy.VolatilityArbitrage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Walks an {@link HistoricalArchive} day by day and replays the volatility arbitrage ranking.
+ * <p>
+ * Every {@code holdingDays} trading days the universe is scored with {@link VolatilityArbitrage}, each ticker against
+ * the median implied volatility of its archived peer group as the live ranking does (or of the universe, if the group
+ * is unknown or too small for {@link PeerGroupStats}); the lowest sum is
+ * traded long volatility (buy ATM call, sell stock) and the highest sum short volatility (sell ATM call, buy stock),
+ * mirroring the live trade recommendation. Positions are marked to market daily with Black-Scholes at the archived
+ * implied volatility and closed after {@code holdingDays} or at expiration, whichever comes first.
+ * <p>
+ * Because entries happen on a fixed grid, trades are independent of each other. Runs are split into date-range chunks
+ * that execute in parallel on a {@link ForkJoinPool}, and parameter sweeps fan out over all chunks of all configs.
+ */
+public class Backtester {
+
+    private static final Logger logger = LogManager.getLogger(Backtester.class);
+
+    private static final int OPTION_MULTIPLIER = 100;
+
+    private final HistoricalArchive archive;
+    private final ForkJoinPool pool;
+    private final Volatility volatility = new Volatility();
+
+    public Backtester(HistoricalArchive archive) {
+        this(archive, new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    public Backtester(HistoricalArchive archive, ForkJoinPool pool) {
+        this.archive = archive;
+        this.pool = pool;
+    }
+
+    public BacktestResult run(BacktestConfig config, LocalDate from, LocalDate to) {
+        return runSweep(List.of(config), from, to).get(0);
+    }
+
+    /**
+     * Runs every config over the same date range. All date-range chunks of all configs are scheduled together,
+     * so a sweep keeps every core busy.
+     *
+     * @param configs The parameter sets to evaluate.
+     * @param from    First trading day (inclusive).
+     * @param to      Last trading day (exclusive).
+     * @return One result per config, in the same order.
+     */
+    public List<BacktestResult> runSweep(List<BacktestConfig> configs, LocalDate from, LocalDate to) {
+        long startTime = System.nanoTime();
+        int start = archive.indexOnOrAfter(from);
+        int end = archive.indexOnOrAfter(to);
+        int days = Math.max(0, end - start);
+
+        List<List<Future<ChunkResult>>> futures = new ArrayList<>();
+        for (BacktestConfig config : configs) {
+            List<Future<ChunkResult>> configFutures = new ArrayList<>();
+            int chunkSize = chunkSize(days, config.getHoldingDays());
+            for (int chunkStart = start; chunkStart < end; chunkStart += chunkSize) {
+                int chunkEnd = Math.min(end, chunkStart + chunkSize);
+                configFutures.add(pool.submit(new ChunkTask(config, start, end, chunkStart, chunkEnd)));
+            }
+            futures.add(configFutures);
+        }
+
+        LocalDate[] dates = new LocalDate[days];
+        for (int i = 0; i < days; i++) {
+            dates[i] = archive.date(start + i);
+        }
+
+        List<BacktestResult> results = new ArrayList<>();
+        for (int c = 0; c < configs.size(); c++) {
+            double[] dailyPnL = new double[days];
+            int trades = 0;
+            int wins = 0;
+            for (Future<ChunkResult> future : futures.get(c)) {
+                ChunkResult chunk = join(future);
+                for (int i = 0; i < days; i++) {
+                    dailyPnL[i] += chunk.dailyPnL[i];
+                }
+                trades += chunk.trades;
+                wins += chunk.winningTrades;
+            }
+            results.add(new BacktestResult(configs.get(c), dates, dailyPnL, trades, wins));
+        }
+        logger.info("Backtested {} parameter sets over {} trading days in {} ms", configs.size(), days,
+                (System.nanoTime() - startTime) / 1_000_000);
+        return results;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private int chunkSize(int days, int holdingDays) {
+        int targetChunks = pool.getParallelism() * 4;
+        int size = Math.max(holdingDays, (days + targetChunks - 1) / Math.max(1, targetChunks));
+        // Align chunks on the entry grid so every chunk starts on an entry day
+        return ((size + holdingDays - 1) / holdingDays) * holdingDays;
+    }
+
+    private static ChunkResult join(Future<ChunkResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Backtest interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Backtest chunk failed", e.getCause());
+        }
+    }
+
+    private class ChunkTask implements Callable<ChunkResult> {
+        private final BacktestConfig config;
+        private final VolatilityArbitrage strategy;
+        private final int runStart;
+        private final int runEnd;
+        private final int chunkStart;
+        private final int chunkEnd;
+
+        ChunkTask(BacktestConfig config, int runStart, int runEnd, int chunkStart, int chunkEnd) {
+            this.config = config;
+            this.strategy = new VolatilityArbitrage(config.getWeightA(), config.getWeightB(), config.getWeightC());
+            this.runStart = runStart;
+            this.runEnd = runEnd;
+            this.chunkStart = chunkStart;
+            this.chunkEnd = chunkEnd;
+        }
+
+        @Override
+        public ChunkResult call() {
+            ChunkResult result = new ChunkResult(runEnd - runStart);
+            int holdingDays = config.getHoldingDays();
+            for (int d = chunkStart; d < chunkEnd; d++) {
+                if ((d - runStart) % holdingDays != 0 || d < config.getLookbackDays() || d + holdingDays >= runEnd) {
+                    continue;
+                }
+                rebalance(d, result);
+            }
+            return result;
+        }
+
+        private void rebalance(int d, ChunkResult result) {
+            int lookback = config.getLookbackDays();
+            PeerGroupStats peerStats = new PeerGroupStats();
+            for (int t = 0; t < archive.tickerCount(); t++) {
+                double iv = archive.impliedVolatility(t, d);
+                if (!Double.isNaN(iv) && !Double.isNaN(archive.close(t, d))) {
+                    peerStats.update(archive.ticker(t), archive.peerGroup(t), iv);
+                }
+            }
+            if (peerStats.size() == 0) {
+                return;
+            }
+
+            int bestLong = -1;
+            int bestShort = -1;
+            double minSum = Double.POSITIVE_INFINITY;
+            double maxSum = Double.NEGATIVE_INFINITY;
+            for (int t = 0; t < archive.tickerCount(); t++) {
+                double lastImpVol = archive.impliedVolatility(t, d);
+                if (Double.isNaN(lastImpVol) || Double.isNaN(archive.close(t, d))) {
+                    continue;
+                }
+                PeerGroupStats.Peers peers = peerStats.peersOf(archive.ticker(t));
+                TradeCandidate candidate = strategy.score(archive.ticker(t), archive.impliedVolatility(t, d - lookback),
+                        lastImpVol, archive.historicalVolatility(t, d), peers.median());
+                if (candidate.getSum() < minSum) {
+                    minSum = candidate.getSum();
+                    bestLong = t;
+                }
+                if (candidate.getSum() > maxSum) {
+                    maxSum = candidate.getSum();
+                    bestShort = t;
+                }
+            }
+
+            if (bestLong >= 0) {
+                simulateTrade(bestLong, d, true, result);
+            }
+            if (bestShort >= 0 && bestShort != bestLong) {
+                simulateTrade(bestShort, d, false, result);
+            }
+        }
+
+        /**
+         * Opens an ATM call hedged with stock at day {@code d}, marks it daily and closes it at the exit day.
+         * Fill costs (slippage and commissions) are charged on entry and exit.
+         */
+        private void simulateTrade(int t, int d, boolean isLongVolatility, ChunkResult result) {
+            double spot = archive.close(t, d);
+            double impVol = archive.impliedVolatility(t, d);
+            double strike = Math.max(config.getStrikeIncrement(),
+                    Math.round(spot / config.getStrikeIncrement()) * config.getStrikeIncrement());
+            int expirationDay = archive.epochDay(d) + config.getTargetDaysToExpiration();
+            double optionSign = isLongVolatility ? 1 : -1;
+            double stockSign = -optionSign;
+            double optionQty = config.getContracts() * OPTION_MULTIPLIER;
+            double shares = config.getHedgeShares();
+
+            int exit = d + config.getHoldingDays();
+            for (int k = d + 1; k < exit; k++) {
+                if (archive.epochDay(k) >= expirationDay) {
+                    exit = k;
+                    break;
+                }
+            }
+
+            double optionPrice = optionValue(spot, strike, expirationDay - archive.epochDay(d), impVol);
+            double entryCost = transactionCost(optionPrice, spot, optionQty, shares);
+            double previousValue = optionSign * optionPrice * optionQty + stockSign * spot * shares;
+            double tradePnL = -entryCost;
+            result.dailyPnL[d - runStart] -= entryCost;
+
+            double lastSpot = spot;
+            double lastImpVol = impVol;
+            for (int k = d + 1; k <= exit; k++) {
+                double close = archive.close(t, k);
+                double iv = archive.impliedVolatility(t, k);
+                if (!Double.isNaN(close)) {
+                    lastSpot = close;
+                }
+                if (!Double.isNaN(iv)) {
+                    lastImpVol = iv;
+                }
+                double price = optionValue(lastSpot, strike, expirationDay - archive.epochDay(k), lastImpVol);
+                double value = optionSign * price * optionQty + stockSign * lastSpot * shares;
+                double pnl = value - previousValue;
+                if (k == exit) {
+                    pnl -= transactionCost(price, lastSpot, optionQty, shares);
+                }
+                result.dailyPnL[k - runStart] += pnl;
+                tradePnL += pnl;
+                previousValue = value;
+            }
+
+            result.trades++;
+            if (tradePnL > 0) {
+                result.winningTrades++;
+            }
+        }
+
+        private double optionValue(double spot, double strike, int daysToExpiration, double impVol) {
+            if (daysToExpiration <= 0 || impVol <= 0) {
+                return Math.max(0, spot - strike);
+            }
+            return volatility.calculateOptionPrice(spot, strike, daysToExpiration / 365.0, config.getRiskFreeRate(), impVol, "C");
+        }
+
+        private double transactionCost(double optionPrice, double spot, double optionQty, double shares) {
+            return optionPrice * config.getOptionSlippage() * optionQty
+                    + spot * config.getStockSlippage() * shares
+                    + config.getCommissionPerContract() * config.getContracts()
+                    + config.getCommissionPerShare() * shares;
+        }
+    }
+
+    private static class ChunkResult {
+        final double[] dailyPnL;
+        int trades;
+        int winningTrades;
+
+        ChunkResult(int days) {
+            this.dailyPnL = new double[days];
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.sigmaflow.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Size-bounded LRU cache whose entries expire a fixed time after they were written, with de-duplication of
+ * concurrent loads for the same key.
+ * <p>
+ * Meant to sit in front of slow, paced lookups (IB reference data requests): {@link #get(Object, Function)} returns
+ * the cached value if it is fresh, joins a load already in flight for the key, or starts a new load. Only the last
+ * case costs a request. Values are stamped with epoch-millisecond write times so entries restored from disk keep
+ * their original age.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public class ExpiringCache<K, V> {
+
+    private final String name;
+    private final int maximumSize;
+    private final long ttlMillis;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final SingleFlight<K, V> loads;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private record Entry<V>(V value, long writtenAtMillis) {
+    }
+
+    /**
+     * @param name        Name used in metrics.
+     * @param maximumSize Maximum number of entries; the least recently used entry is evicted beyond it.
+     * @param ttl         Time after writing at which an entry expires.
+     */
+    public ExpiringCache(String name, int maximumSize, Duration ttl) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.name = name;
+        this.maximumSize = maximumSize;
+        this.ttlMillis = ttl.toMillis();
+        this.loads = new SingleFlight<>(name);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > ExpiringCache.this.maximumSize) {
+                    sizeEvictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return The fresh cached value, or null. Does not count towards hit/miss statistics.
+     */
+    public V getIfPresent(K key) {
+        Entry<V> entry = freshEntry(key, System.currentTimeMillis());
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Returns the cached value, or loads it. Concurrent callers for a key that is being loaded share the same
+     * future; a failed load is not cached.
+     *
+     * @param key    The key.
+     * @param loader Starts the load, e.g. by issuing an API request, and returns a future completed with its result.
+     * @return A future completed with the value.
+     */
+    public CompletableFuture<V> get(K key, Function<? super K, ? extends CompletableFuture<V>> loader) {
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return loads.execute(key, k -> {
+            // Another caller may have finished loading between the lookup and claiming the key
+            V loaded = getIfPresent(k);
+            if (loaded != null) {
+                hits.increment();
+                return CompletableFuture.completedFuture(loaded);
+            }
+            misses.increment();
+            // Stored before the key is released, so later callers hit the cache
+            return loader.apply(k).thenApply(value -> {
+                if (value != null) {
+                    put(k, value);
+                }
+                return value;
+            });
+        });
+    }
+
+    public void put(K key, V value) {
+        put(key, value, System.currentTimeMillis());
+    }
+
+    /**
+     * Stores a value that was obtained at the given time, e.g. one restored from a persisted snapshot. Values
+     * already older than the TTL are ignored.
+     */
+    public void put(K key, V value, long writtenAtMillis) {
+        if (System.currentTimeMillis() - writtenAtMillis > ttlMillis) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, writtenAtMillis));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * @return When the fresh entry for the key was written (epoch millis), or 0 if there is none.
+     */
+    public long writtenAt(K key) {
+        Entry<V> entry = freshEntry(key, System.currentTimeMillis());
+        return entry != null ? entry.writtenAtMillis : 0;
+    }
+
+    /**
+     * Drops every expired entry. Expired entries are otherwise only dropped when looked up or evicted by size.
+     */
+    public void cleanUp() {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Iterator<Entry<V>> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (now - it.next().writtenAtMillis > ttlMillis) {
+                    it.remove();
+                    expirations.increment();
+                }
+            }
+        }
+    }
+
+    private Entry<V> freshEntry(K key, long now) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && now - entry.writtenAtMillis > ttlMillis) {
+                entries.remove(key);
+                expirations.increment();
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public int inFlightCount() {
+        return loads.inFlightCount();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /** Requests that joined a load already in flight instead of issuing their own. */
+    public long coalescedCount() {
+        return loads.coalescedCount();
+    }
+
+    public long sizeEvictionCount() {
+        return sizeEvictions.sum();
+    }
+
+    public long expirationCount() {
+        return expirations.sum();
+    }
+}
@@ -0,0 +1,89 @@
+package com.sigmaflow.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Collapses concurrent identical calls into one: while a call for a key is in flight, further callers for the same
+ * key get the same future instead of starting another call, and its result (or failure) fans out to all of them.
+ * Once the call completes the key is released and the next caller starts a new one.
+ *
+ * @param <K> Key identifying identical calls; must implement equals and hashCode.
+ * @param <V> Result type.
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param name Name used in metrics.
+     */
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param key  The call's identity.
+     * @param call Starts the call and returns a future completed with its result. Only invoked if no call for the
+     *             key is in flight.
+     * @return A future completed with the result of the in-flight or newly started call.
+     */
+    public CompletableFuture<V> execute(K key, Function<? super K, ? extends CompletableFuture<V>> call) {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, result);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        issued.increment();
+        CompletableFuture<V> started;
+        try {
+            started = call.apply(key);
+        } catch (RuntimeException e) {
+            inFlight.remove(key, result);
+            result.completeExceptionally(e);
+            return result;
+        }
+        started.whenComplete((value, error) -> {
+            inFlight.remove(key, result);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return Whether a call for the key is in flight.
+     */
+    public boolean isInFlight(K key) {
+        return inFlight.containsKey(key);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /** Calls actually started. */
+    public long issuedCount() {
+        return issued.sum();
+    }
+
+    /** Callers that joined a call already in flight. */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+}
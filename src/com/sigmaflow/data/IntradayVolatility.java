@@ -0,0 +1,142 @@
+package com.sigmaflow.data;
+
+import com.sigmaflow.analytics.BarAggregator;
+import com.sigmaflow.analytics.RealizedVolatility;
+import com.sigmaflow.analytics.RealizedVolatility.Estimator;
+import com.sigmaflow.api.StreamListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Intraday realized volatility of one underlying, fed by its streaming subscription: 5-second bars or trades are
+ * aggregated into 1- and 5-minute bars, each feeding a rolling realized volatility estimator. Quotes keep the latest
+ * midpoint and spread. Events arrive on the EReader thread and readers may be anywhere, so access is synchronized.
+ */
+public class IntradayVolatility implements StreamListener {
+
+    private static final Logger logger = LogManager.getLogger(IntradayVolatility.class);
+
+    // Length of a real-time bar
+    private static final long REALTIME_BAR_SECONDS = 5;
+    // Bars in the estimator windows (-Dsigmaflow.intraday.window): an hour of 1-minute bars, five hours of 5-minute
+    // bars (a regular session is 78)
+    private static final int WINDOW = Integer.getInteger("sigmaflow.intraday.window", 60);
+
+    private final String ticker;
+    private final Runnable onFiveMinuteBar;
+    private final RealizedVolatility oneMinute = new RealizedVolatility(60, WINDOW);
+    private final RealizedVolatility fiveMinute = new RealizedVolatility(300, WINDOW);
+    private final BarAggregator oneMinuteBars = new BarAggregator(60, (start, open, high, low, close, volume) ->
+            oneMinute.add(open, high, low, close));
+    private final BarAggregator fiveMinuteBars = new BarAggregator(300, this::onFiveMinuteBar);
+    private double midPoint = Double.NaN;
+    private double relativeSpread = Double.NaN;
+    private long lastEventTime;
+
+    public IntradayVolatility(String ticker) {
+        this(ticker, () -> { });
+    }
+
+    /**
+     * @param onFiveMinuteBar Called on the EReader thread after each completed 5-minute bar has been added; it must
+     *                        not block.
+     */
+    public IntradayVolatility(String ticker, Runnable onFiveMinuteBar) {
+        this.ticker = ticker;
+        this.onFiveMinuteBar = onFiveMinuteBar;
+    }
+
+    @Override
+    public synchronized void onRealtimeBar(long time, double open, double high, double low, double close, long volume) {
+        oneMinuteBars.addBar(time, open, high, low, close, volume);
+        fiveMinuteBars.addBar(time, open, high, low, close, volume);
+        // The bar ends 5 seconds after it starts; the last one of a minute completes the minute
+        oneMinuteBars.advanceTo(time + REALTIME_BAR_SECONDS);
+        fiveMinuteBars.advanceTo(time + REALTIME_BAR_SECONDS);
+        lastEventTime = time;
+    }
+
+    @Override
+    public synchronized void onTrade(long time, double price, long size) {
+        oneMinuteBars.addTrade(time, price, size);
+        fiveMinuteBars.addTrade(time, price, size);
+        lastEventTime = time;
+    }
+
+    @Override
+    public synchronized void onQuote(long time, double bidPrice, double askPrice, long bidSize, long askSize) {
+        if (bidPrice > 0 && askPrice >= bidPrice) {
+            midPoint = (bidPrice + askPrice) / 2;
+            relativeSpread = (askPrice - bidPrice) / midPoint;
+        }
+        advanceTo(time);
+    }
+
+    @Override
+    public synchronized void onMidPoint(long time, double midPoint) {
+        if (midPoint > 0) {
+            this.midPoint = midPoint;
+        }
+        advanceTo(time);
+    }
+
+    private void advanceTo(long time) {
+        // A quiet trade stream still completes its bars as quotes move the clock
+        oneMinuteBars.advanceTo(time);
+        fiveMinuteBars.advanceTo(time);
+        lastEventTime = Math.max(lastEventTime, time);
+    }
+
+    private void onFiveMinuteBar(long start, double open, double high, double low, double close, long volume) {
+        fiveMinute.add(open, high, low, close);
+        if (logger.isDebugEnabled()) {
+            logger.debug("{} 5m bar at {}: close {}, volume {}, RV 1m {}, RV 5m {}", ticker, box(start), box(close),
+                    box(volume), box(oneMinute.value(Estimator.GARMAN_KLASS)), box(fiveMinute.value(Estimator.GARMAN_KLASS)));
+        }
+        onFiveMinuteBar.run();
+    }
+
+    /**
+     * @return The annualized realized volatility over the last {@code sigmaflow.intraday.window} 1-minute bars, or
+     * NaN before two bars.
+     */
+    public synchronized double oneMinute(Estimator estimator) {
+        return oneMinute.value(estimator);
+    }
+
+    /**
+     * @return The annualized realized volatility over the last {@code sigmaflow.intraday.window} 5-minute bars, or
+     * NaN before two bars.
+     */
+    public synchronized double fiveMinute(Estimator estimator) {
+        return fiveMinute.value(estimator);
+    }
+
+    public synchronized int getOneMinuteBarCount() {
+        return oneMinute.getCount();
+    }
+
+    public synchronized int getFiveMinuteBarCount() {
+        return fiveMinute.getCount();
+    }
+
+    public synchronized double getMidPoint() {
+        return midPoint;
+    }
+
+    /**
+     * @return Bid/ask spread over the midpoint, from tick-by-tick quotes; NaN without quotes.
+     */
+    public synchronized double getRelativeSpread() {
+        return relativeSpread;
+    }
+
+    /**
+     * @return Time of the latest event, in epoch seconds; 0 before any.
+     */
+    public synchronized long getLastEventTime() {
+        return lastEventTime;
+    }
+}
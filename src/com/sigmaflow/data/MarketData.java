@@ -1,26 +1,98 @@
 package com.sigmaflow.data;
 
+import com.sigmaflow.analytics.MonteCarloEngine;
+import com.sigmaflow.analytics.MonteCarloResult;
+import com.sigmaflow.analytics.PeerGroupStats;
+import com.sigmaflow.analytics.RealizedVolatility;
+import com.sigmaflow.analytics.VolSurface;
 import com.sigmaflow.analytics.Volatility;
+import com.sigmaflow.api.AsyncIbClient;
+import com.sigmaflow.api.ClientPool;
 import com.sigmaflow.api.EWrapperImpl;
+import com.sigmaflow.api.StreamListener;
+import com.sigmaflow.api.Subscription;
+import com.sigmaflow.archive.HistoricalArchive;
+import com.sigmaflow.cache.ExpiringCache;
+import com.sigmaflow.cache.SingleFlight;
+import com.sigmaflow.metrics.Metrics;
+import com.sigmaflow.report.ReportPublisher;
+import com.sigmaflow.report.StatisticsTable;
+import com.sigmaflow.report.TickerSnapshot;
+import com.sigmaflow.report.TradeRecommendation;
+import com.sigmaflow.report.VolatilitySummary;
+import com.sigmaflow.snapshot.DatedSeries;
+import com.sigmaflow.snapshot.SnapshotColumn;
+import com.sigmaflow.snapshot.SnapshotReader;
+import com.sigmaflow.snapshot.SnapshotWriter;
+import com.sigmaflow.snapshot.TickerState;
+import com.sigmaflow.strategy.SignalGraph;
+import com.sigmaflow.strategy.TradeCandidate;
+import com.sigmaflow.strategy.VolatilityArbitrage;
+import com.sigmaflow.trading.MarketRule;
+import com.sigmaflow.trading.MarketRules;
+import com.sigmaflow.trading.Price;
 import com.ib.client.Bar;
 import com.ib.client.Contract;
 import com.ib.client.ContractDetails;
+import com.ib.client.TickType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.apache.logging.log4j.util.Unbox.box;
 
 public class MarketData {
 
     private static final Logger logger = LogManager.getLogger(MarketData.class);
 
+    // Reference data lifetimes and cache bounds (-Dsigmaflow.cache.contractTtlHours, chainTtlHours, maxEntries)
+    private static final Duration CONTRACT_TTL = Duration.ofHours(Long.getLong("sigmaflow.cache.contractTtlHours", 24 * 7));
+    private static final Duration CHAIN_TTL = Duration.ofHours(Long.getLong("sigmaflow.cache.chainTtlHours", 24));
+    private static final int CACHE_MAX_ENTRIES = Integer.getInteger("sigmaflow.cache.maxEntries", 10_000);
+    // Run each ticker's workflow on its own virtual thread instead of as a callback chain (-Dsigmaflow.virtualThreads)
+    private static final boolean VIRTUAL_THREADS = Boolean.getBoolean("sigmaflow.virtualThreads");
+    // Sample each underlying's implied volatility surface from option snapshots (-Dsigmaflow.surface), with this many
+    // strikes on either side of spot per expiry (-Dsigmaflow.surface.strikesPerSide), and trade the expiry between
+    // minDays and maxDays out with the best ATM implied volatility (-Dsigmaflow.surface.minDays, maxDays)
+    private static final boolean SURFACE = Boolean.getBoolean("sigmaflow.surface");
+    private static final int SURFACE_STRIKES_PER_SIDE = Integer.getInteger("sigmaflow.surface.strikesPerSide", 3);
+    private static final int SURFACE_MIN_DAYS = Integer.getInteger("sigmaflow.surface.minDays", 7);
+    private static final int SURFACE_MAX_DAYS = Integer.getInteger("sigmaflow.surface.maxDays", 45);
+    // Stream each live underlying for intraday realized volatility (-Dsigmaflow.intraday): 5-second bars, or
+    // tick-by-tick trades and quotes (-Dsigmaflow.intraday.tickByTick), of which TWS allows only a few
+    private static final boolean INTRADAY = Boolean.getBoolean("sigmaflow.intraday");
+    private static final boolean INTRADAY_TICK_BY_TICK = Boolean.getBoolean("sigmaflow.intraday.tickByTick");
+    // Quote quality score below which an option is not traded, nor requested again if its last quote scored below it
+    // (-Dsigmaflow.liquidity.minScore)
+    private static final double LIQUIDITY_MIN_SCORE = Double.parseDouble(System.getProperty("sigmaflow.liquidity.minScore", "0.3"));
+    // Keep the filtered option chains of live underlyings quoted by rotating market data lines through them once the
+    // universe is ranked (-Dsigmaflow.lines)
+    private static final boolean LINES = Boolean.getBoolean("sigmaflow.lines");
+    // Inputs refreshed after the universe is ranked are rescored together, at most this often
+    // (-Dsigmaflow.signals.batchMillis)
+    private static final long SIGNAL_BATCH_MILLIS = Long.getLong("sigmaflow.signals.batchMillis", 250);
+    // Once the universe is ranked, the statistics table is republished at most this often; a whole table per signal
+    // batch would reprint a large universe several times a second (-Dsigmaflow.signals.tableMillis)
+    private static final long TABLE_MILLIS = Long.getLong("sigmaflow.signals.tableMillis", 5_000);
+    // Monte Carlo paths per trade recommendation, simulated on the report renderer thread; the P&L distribution takes
+    // 8 bytes per path (-Dsigmaflow.simulation.paths)
+    private static final int SIMULATION_PATHS = Integer.getInteger("sigmaflow.simulation.paths", 100_000);
+
     public enum DataSource {
         SIMULATED,
         LIVE
@@ -33,18 +105,21 @@ public class MarketData {
         HISTORICAL_DATA,
         OPTION_MARKET_DATA,
         HISTORICAL_VOLATILITY,
-        OPTION_IMPLIED_VOLATILITY
+        OPTION_IMPLIED_VOLATILITY,
+        MARKET_RULE,
+        REALTIME_BARS,
+        TICK_BY_TICK
     }
 
     private final List<String> tickers;
     private final DataSource dataSource;
-    private final EWrapperImpl api;
-    private static final AtomicInteger nextReqId = new AtomicInteger(1);
+    private final ClientPool clients;
+    private final VolatilityArbitrage strategy = new VolatilityArbitrage();
+    private final MonteCarloEngine monteCarloEngine = new MonteCarloEngine(SIMULATION_PATHS);
+    private final ReportPublisher reportPublisher;
 
     private final Map<String, Double> underlyingPrices = new ConcurrentHashMap<>();
-    private final Map<Integer, String> reqIdToTickerMap = new ConcurrentHashMap<>();
     private final Map<String, Integer> tickerToConIdMap = new ConcurrentHashMap<>();
-    private final Map<Integer, RequestType> reqIdToRequestType = new ConcurrentHashMap<>();
     
     // Data storage for report
     private final Map<String, ContractDetails> contractDetailsMap = new ConcurrentHashMap<>();
@@ -53,19 +128,79 @@ public class MarketData {
     private final Map<String, Map<LocalDate, Double>> optionImpliedVolatility = new ConcurrentHashMap<>();
     private final Map<String, String> optionChainSummary = new ConcurrentHashMap<>();
     
-    // Store filtered option chain parameters for trade recommendation
-    private final Map<String, Set<String>> filteredExpirationsMap = new ConcurrentHashMap<>();
-    private final Map<String, Set<Double>> filteredStrikesMap = new ConcurrentHashMap<>();
+    // Option chains filtered around the underlying price, for trade recommendation
+    private final Map<String, OptionChainIndex> filteredChains = new ConcurrentHashMap<>();
     
-    // Track completed tickers
+    // Reference data lookups, cached by ticker and underlying conId
+    private final ExpiringCache<String, ContractDetails> contractDetailsCache =
+            new ExpiringCache<>("contract_details", CACHE_MAX_ENTRIES, CONTRACT_TTL);
+    private final ExpiringCache<Integer, OptionChainParams> optionChainCache =
+            new ExpiringCache<>("option_chain_params", CACHE_MAX_ENTRIES, CHAIN_TTL);
+
+    // Identical in-flight market data and historical requests are issued once and shared by all callers
+    private final SingleFlight<RequestKey, Double> priceRequests = new SingleFlight<>("underlying_price");
+    private final SingleFlight<RequestKey, List<Bar>> historicalRequests = new SingleFlight<>("historical_data");
+
+    // Peer group (industry) per ticker from the screener, and the last implied volatility of completed tickers by group
+    private final Map<String, String> peerGroups = new ConcurrentHashMap<>();
+    private final PeerGroupStats peerStats = new PeerGroupStats();
+    // Scores and ranking of the completed tickers, recomputed only where inputs changed; guarded by this
+    private final SignalGraph signals;
+    private final Set<String> refreshedSignals = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean signalFlushScheduled = new AtomicBoolean();
+    // System.nanoTime of the refresh that started the pending batch, when metrics are enabled
+    private volatile long signalBatchNanos;
+    private boolean statisticsPublished;
+    private long tablePublishedNanos;
+    private boolean tableRepublishScheduled;
+    // Tickers whose recommendation is published or on its way; cleared if it turns out unavailable, so that the
+    // next flush retries it. Set under this, cleared from the report renderer thread
+    private final AtomicReference<String> recommendedLong = new AtomicReference<>();
+    private final AtomicReference<String> recommendedShort = new AtomicReference<>();
+    private final Map<String, VolSurface> surfaces = new ConcurrentHashMap<>();
+    private final Map<String, IntradayVolatility> intradayVolatility = new ConcurrentHashMap<>();
+    private final Map<OptionKey, QuoteQuality> quoteQuality = new ConcurrentHashMap<>();
+    private final Map<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    // Price increments for limit prices; null for simulated data, which uses the defaults
+    private final MarketRules marketRules;
+    // Streaming lines and snapshot sweeps over the filtered chains; null unless enabled for live data
+    private final MarketDataLines lines;
+
+    // Track completed tickers, and those whose contract or price could not be obtained
     private final Set<String> completedTickers = ConcurrentHashMap.newKeySet();
+    private final Set<String> failedTickers = ConcurrentHashMap.newKeySet();
 
 
-    public MarketData(DataSource dataSource, String[] tickers, EWrapperImpl api) {
+    public MarketData(DataSource dataSource, String[] tickers, EWrapperImpl api, ReportPublisher reportPublisher) {
+        this(dataSource, tickers, ClientPool.of(api), reportPublisher);
+    }
+
+    /**
+     * @param clients         The connections; each ticker's requests go to the connection it is assigned to, while
+     *                        its results land in the shared per-ticker maps so that ranking spans the whole universe.
+     * @param reportPublisher Receives ticker reports, the statistics table and trade recommendations for rendering.
+     */
+    public MarketData(DataSource dataSource, String[] tickers, ClientPool clients, ReportPublisher reportPublisher) {
         this.dataSource = dataSource;
-        this.tickers = new ArrayList<>(Arrays.asList(tickers));
-        this.api = api;
-        this.api.setMarketData(this);
+        // Duplicates (e.g. a ticker listed twice in the CSV) would never all complete
+        this.tickers = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(tickers)));
+        this.clients = clients;
+        this.reportPublisher = reportPublisher;
+        this.signals = new SignalGraph(strategy, peerStats, this.tickers);
+        this.marketRules = dataSource == DataSource.LIVE ? new MarketRules(clients.connection(0).getAsyncClient()) : null;
+        this.lines = LINES && dataSource == DataSource.LIVE
+                ? new MarketDataLines(clients::clientFor, t -> underlyingPrices.getOrDefault(t, Double.NaN))
+                : null;
+        if (Metrics.ENABLED) {
+            Metrics.registerCache(contractDetailsCache);
+            Metrics.registerCache(optionChainCache);
+            Metrics.registerSingleFlight(priceRequests);
+            Metrics.registerSingleFlight(historicalRequests);
+        }
+    }
+
+    public ReportPublisher getReportPublisher() {
+        return reportPublisher;
     }
 
     public void fetchMarketData() {
@@ -76,408 +211,931 @@ public class MarketData {
         }
     }
 
+    /**
+     * Starts every ticker's pipeline at once; the requests of all tickers are in flight concurrently, sent as fast
+     * as the request pacer allows.
+     */
     private void fetchLiveMarketData() {
+        if (VIRTUAL_THREADS) {
+            ThreadFactory factory = Thread.ofVirtual().name("ticker-", 0).factory();
+            for (String ticker : tickers) {
+                factory.newThread(() -> runTickerWorkflow(ticker)).start();
+            }
+        } else {
+            for (String ticker : tickers) {
+                fetchTicker(ticker);
+            }
+        }
+    }
+
+    /**
+     * Seeds the contract details and option chain caches from a previously persisted snapshot, keeping each entry's
+     * original fetch time. Entries younger than their TTL are served from the cache and their API requests are
+     * skipped; stale or missing entries are fetched by the normal request flow and persisted again at exit.
+     *
+     * @param store The persisted state.
+     */
+    public void warmStart(SnapshotReader store) {
         for (String ticker : tickers) {
-            fetchContractDetails(ticker);
+            int row = store.indexOf(ticker);
+            if (row < 0) {
+                continue;
+            }
+            TickerState state = store.state(row);
+            if (state.getConId() == 0) {
+                continue;
+            }
+            // Snapshots from before the category, industry and market rules were kept would put the ticker in another
+            // peer group and price its stock at the default tick, so their contracts are fetched again
+            if (state.getContractFetchedAt() > 0 && store.hasColumn(SnapshotColumn.INDUSTRY)
+                    && store.hasColumn(SnapshotColumn.MARKET_RULE_IDS)) {
+                Contract contract = createStockContract(ticker);
+                contract.conid(state.getConId());
+                contract.primaryExch(state.getPrimaryExchange());
+                ContractDetails contractDetails = new ContractDetails();
+                contractDetails.contract(contract);
+                contractDetails.longName(state.getCompanyName());
+                contractDetails.category(state.getCategory());
+                contractDetails.industry(state.getIndustry());
+                contractDetails.validExchanges(state.getValidExchanges());
+                contractDetails.marketRuleIds(state.getMarketRuleIds());
+                contractDetailsCache.put(ticker, contractDetails, state.getContractFetchedAt());
+            }
+            if (state.getChainFetchedAt() > 0 && state.getStrikes().length > 0) {
+                optionChainCache.put(state.getConId(), new OptionChainParams(state.expirationSet(), state.strikeSet()),
+                        state.getChainFetchedAt());
+            }
         }
+        logger.info("Warm start: {} contracts and {} option chains fresh for {} tickers",
+                box(contractDetailsCache.size()), box(optionChainCache.size()), box(tickers.size()));
     }
 
-    public void fetchContractDetails(String ticker) {
-        Contract contract = createStockContract(ticker);
-        int reqId = nextReqId.getAndIncrement();
-        reqIdToTickerMap.put(reqId, ticker);
-        reqIdToRequestType.put(reqId, RequestType.CONTRACT_DETAILS);
-        api.getClient().reqContractDetails(reqId, contract);
+    /**
+     * Runs a ticker's request pipeline: contract, then the underlying price, then the option chain and the three
+     * historical series concurrently. The ticker is reported once all of them have arrived or failed; a ticker
+     * without a contract or price is counted as failed, so it cannot hold up the statistics table.
+     *
+     * @return A future completed when the ticker has been reported, or failed with the contract or price error.
+     */
+    public CompletableFuture<Void> fetchTicker(String ticker) {
+        return contractDetailsCache.get(ticker, t -> clients.clientFor(t).contractDetails(createStockContract(t)))
+                .thenCompose(contractDetails -> {
+                    int conId = contractDetails.contract().conid();
+                    contractDetailsMap.put(ticker, contractDetails);
+                    setConId(ticker, conId);
+                    startIntraday(ticker, conId);
+                    return requestUnderlyingPrice(ticker, conId)
+                            .thenCompose(price -> requestUnderlyingDependents(ticker, conId));
+                })
+                .thenRun(() -> completeTicker(ticker))
+                .whenComplete((done, error) -> {
+                    if (error != null) {
+                        failTicker(ticker, error);
+                    }
+                });
     }
 
-    public void handleContractDetails(String ticker, ContractDetails contractDetails) {
-        contractDetailsMap.put(ticker, contractDetails);
-        setConId(ticker, contractDetails.contract().conid());
-        requestUnderlyingMarketData(ticker, contractDetails.contract().conid());
+    /**
+     * The same steps as {@link #fetchTicker}, written as a blocking workflow for a virtual thread: each step waits
+     * for its requests, and the analytics and report run on this thread rather than on the EReader thread, so a
+     * slow ticker does not hold up the others.
+     */
+    private void runTickerWorkflow(String ticker) {
+        try {
+            ContractDetails contractDetails = contractDetailsCache.get(ticker, t -> clients.clientFor(t).contractDetails(createStockContract(t))).join();
+            int conId = contractDetails.contract().conid();
+            contractDetailsMap.put(ticker, contractDetails);
+            setConId(ticker, conId);
+            startIntraday(ticker, conId);
+
+            requestUnderlyingPrice(ticker, conId).join();
+            requestUnderlyingDependents(ticker, conId).join();
+
+            completeTicker(ticker);
+        } catch (RuntimeException e) {
+            // Any failure, including a cancelled request or an error in the analytics, must count the ticker as
+            // failed, or the statistics table would wait for it forever
+            failTicker(ticker, e);
+        }
     }
 
-    public void requestUnderlyingMarketData(String ticker, int conId) {
-        int reqId = nextReqId.getAndIncrement();
-        reqIdToTickerMap.put(reqId, ticker);
-        reqIdToRequestType.put(reqId, RequestType.UNDERLYING_MARKET_DATA);
-        Contract contract = createStockContract(ticker);
-        contract.conid(conId);
-        api.getClient().reqMktData(reqId, contract, "", true, false, null);
+    /**
+     * @return Whether the option may be traded: true unless it has been quoted and its quote scored below
+     * {@code sigmaflow.liquidity.minScore}. The quote's age does not count; a stale quote is refreshed instead.
+     */
+    public boolean isLiquid(OptionKey key) {
+        QuoteQuality quality = quoteQuality.get(key);
+        return quality == null || !quality.isQuoted() || quality.quoteScore() >= LIQUIDITY_MIN_SCORE;
     }
 
-    public void requestHistoricalData(String ticker, int conId) {
-        int reqId = nextReqId.getAndIncrement();
-        reqIdToTickerMap.put(reqId, ticker);
-        reqIdToRequestType.put(reqId, RequestType.HISTORICAL_DATA);
-        Contract contract = createStockContract(ticker);
-        contract.conid(conId);
+    /**
+     * @return The option's quote quality, or null if it has not been requested.
+     */
+    public QuoteQuality getQuoteQuality(OptionKey key) {
+        return quoteQuality.get(key);
+    }
 
-        String endDateTime = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + " 16:00:00";
-        api.getClient().reqHistoricalData(reqId, contract, endDateTime, "1 M", "1 day", "TRADES", 1, 1, false, null);
+    /**
+     * Subscribes the underlying's intraday stream, if enabled, once per ticker. The stream keeps running after the
+     * ticker is reported, until {@link #stopStreaming()}.
+     */
+    private void startIntraday(String ticker, int conId) {
+        if (!INTRADAY || dataSource != DataSource.LIVE) {
+            return;
+        }
+        subscriptions.computeIfAbsent(ticker, t -> {
+            // Each completed 5-minute bar moves the intraday realized volatility, and with it the ticker's signals
+            IntradayVolatility volatility = intradayVolatility.computeIfAbsent(t,
+                    t2 -> new IntradayVolatility(t2, () -> refreshSignals(t2)));
+            AsyncIbClient client = clients.clientFor(t);
+            Contract contract = stockContract(t, conId);
+            return INTRADAY_TICK_BY_TICK
+                    ? List.of(client.tickByTick(contract, "AllLast", volatility), client.tickByTick(contract, "BidAsk", volatility))
+                    : List.of(client.realtimeBars(contract, "TRADES", true, volatility));
+        });
     }
 
-    public void requestHistoricalVolatility(String ticker, int conId) {
-        int reqId = nextReqId.getAndIncrement();
-        reqIdToTickerMap.put(reqId, ticker);
-        reqIdToRequestType.put(reqId, RequestType.HISTORICAL_VOLATILITY);
-        Contract contract = createStockContract(ticker);
-        contract.conid(conId);
+    /**
+     * Cancels every intraday subscription and market data line.
+     */
+    public void stopStreaming() {
+        for (List<Subscription> tickerSubscriptions : subscriptions.values()) {
+            tickerSubscriptions.forEach(Subscription::cancel);
+        }
+        subscriptions.clear();
+        if (lines != null) {
+            lines.close();
+        }
+    }
 
-        String endDateTime = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + " 16:00:00";
-        api.getClient().reqHistoricalData(reqId, contract, endDateTime, "30 D", "1 day", "HISTORICAL_VOLATILITY", 1, 1, false, null);
+    /**
+     * @return The market data line manager, e.g. to pin the contracts of open positions; null unless enabled.
+     */
+    public MarketDataLines getMarketDataLines() {
+        return lines;
     }
 
-    public void requestStockImpliedVolatility(String ticker, int conId) {
-        int reqId = nextReqId.getAndIncrement();
-        reqIdToTickerMap.put(reqId, ticker);
-        reqIdToRequestType.put(reqId, RequestType.OPTION_IMPLIED_VOLATILITY);
-        Contract contract = createStockContract(ticker);
-        contract.conid(conId);
+    /**
+     * @return The ticker's intraday realized volatility, or null if it is not streamed.
+     */
+    public IntradayVolatility getIntradayVolatility(String ticker) {
+        return intradayVolatility.get(ticker);
+    }
 
-        String endDateTime = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + " 16:00:00";
-        api.getClient().reqHistoricalData(reqId, contract, endDateTime, "30 D", "1 day", "OPTION_IMPLIED_VOLATILITY", 1, 1, false, null);
+    /**
+     * Requests a snapshot price for the underlying, joining an identical request already in flight.
+     */
+    private CompletableFuture<Double> requestUnderlyingPrice(String ticker, int conId) {
+        RequestKey key = new RequestKey(conId, RequestType.UNDERLYING_MARKET_DATA, "snapshot");
+        return priceRequests.execute(key, k -> clients.clientFor(ticker).snapshot(stockContract(ticker, conId)))
+                .thenApply(price -> {
+                    underlyingPrices.put(ticker, price);
+                    logger.info("Updated underlying price for {} to {}", ticker, box(price));
+                    return price;
+                });
     }
 
-    public void setUnderlyingPrice(int reqId, double price) {
-        String ticker = reqIdToTickerMap.get(reqId);
-        if (ticker != null) {
-            underlyingPrices.put(ticker, price);
-            logger.info("Updated underlying price for " + ticker + " to " + price);
-            
-            Integer conId = tickerToConIdMap.get(ticker);
-            if (conId != null) {
-                int optionReqId = nextReqId.getAndIncrement();
-                reqIdToTickerMap.put(optionReqId, ticker);
-                reqIdToRequestType.put(optionReqId, RequestType.OPTION_CHAIN_PARAMS);
-                api.getClient().reqSecDefOptParams(optionReqId, ticker, "", "STK", conId);
-
-                requestHistoricalData(ticker, conId);
-                requestHistoricalVolatility(ticker, conId);
-                requestStockImpliedVolatility(ticker, conId);
+    /**
+     * Requests the option chain and historical series. Each may fail on its own; the ticker is then reported
+     * without it.
+     */
+    private CompletableFuture<Void> requestUnderlyingDependents(String ticker, int conId) {
+        CompletableFuture<OptionChainParams> chainParams = optionChainCache.get(conId, id -> clients.clientFor(ticker).optionChainParams(ticker, id));
+        CompletableFuture<Void> optionChain = chainParams.thenAccept(params -> applyOptionChain(ticker, params));
+        CompletableFuture<Void> surface = SURFACE
+                ? optionChain.thenCompose(v -> requestVolSurface(ticker, chainParams.join()))
+                : CompletableFuture.completedFuture(null);
+
+        return CompletableFuture.allOf(
+                degradable(ticker, "option chain", optionChain),
+                degradable(ticker, "volatility surface", surface),
+                degradable(ticker, "price history", requestHistoricalData(ticker, conId)),
+                degradable(ticker, "historical volatility", requestHistoricalVolatility(ticker, conId)),
+                degradable(ticker, "implied volatility", requestStockImpliedVolatility(ticker, conId)));
+    }
+
+    private static CompletableFuture<Void> degradable(String ticker, String part, CompletableFuture<Void> request) {
+        return request.exceptionally(error -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            logger.warn("{}: {} unavailable, reporting without it ({})", ticker, part, cause.getMessage());
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> requestHistoricalData(String ticker, int conId) {
+        return requestHistorical(ticker, conId, RequestType.HISTORICAL_DATA, "1 M", "TRADES")
+                .thenAccept(bars -> historicalBars.put(ticker, bars));
+    }
+
+    public CompletableFuture<Void> requestHistoricalVolatility(String ticker, int conId) {
+        return requestHistorical(ticker, conId, RequestType.HISTORICAL_VOLATILITY, "30 D", "HISTORICAL_VOLATILITY")
+                .thenAccept(bars -> {
+                    historicalVolatility.put(ticker, toDailySeries(ticker, bars));
+                    refreshSignals(ticker);
+                });
+    }
+
+    public CompletableFuture<Void> requestStockImpliedVolatility(String ticker, int conId) {
+        return requestHistorical(ticker, conId, RequestType.OPTION_IMPLIED_VOLATILITY, "30 D", "OPTION_IMPLIED_VOLATILITY")
+                .thenAccept(bars -> {
+                    optionImpliedVolatility.put(ticker, toDailySeries(ticker, bars));
+                    refreshSignals(ticker);
+                });
+    }
+
+    /**
+     * Samples the implied volatility surface: a snapshot of the calls and puts at the strikes nearest spot, for every
+     * expiry within a month. Options without a computation are left out; the surface is updated as each arrives.
+     */
+    private CompletableFuture<Void> requestVolSurface(String ticker, OptionChainParams params) {
+        Double underlyingPrice = underlyingPrices.get(ticker);
+        if (underlyingPrice == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        VolSurface surface = surfaces.computeIfAbsent(ticker, t -> new VolSurface());
+        surface.setSpot(underlyingPrice);
+
+        OptionChainIndex chain = filterChain(params.index(), LocalDate.now(), underlyingPrice);
+        int nearest = chain.nearestStrike(underlyingPrice);
+        int fromStrike = Math.max(0, nearest - SURFACE_STRIKES_PER_SIDE);
+        int toStrike = nearest < 0 ? 0 : Math.min(chain.strikeCount(), nearest + SURFACE_STRIKES_PER_SIDE + 1);
+
+        List<CompletableFuture<Void>> quotes = new ArrayList<>();
+        for (int e = 0; e < chain.expirationCount(); e++) {
+            LocalDate expirationDate = chain.expiration(e);
+            String expiration = chain.expirationString(e);
+            for (int k = fromStrike; k < toStrike; k++) {
+                double strike = chain.strike(k);
+                for (boolean call : new boolean[]{true, false}) {
+                    OptionKey key = OptionKey.of(ticker, expirationDate, strike, call);
+                    QuoteQuality known = quoteQuality.get(key);
+                    if (known != null && known.isQuoted() && known.quoteScore() < LIQUIDITY_MIN_SCORE) {
+                        continue;
+                    }
+                    QuoteQuality quality = quoteQuality.computeIfAbsent(key, k2 -> new QuoteQuality());
+                    Contract contract = optionContract(ticker, expiration, strike, call);
+                    // Through the market data lines when they are on, so that the sweep stays within their budget
+                    CompletableFuture<OptionQuote> snapshot = lines != null
+                            ? lines.snapshot(key, contract, quality)
+                            : clients.clientFor(ticker).optionSnapshot(contract, quality);
+                    quotes.add(snapshot
+                            .thenAccept(quote -> {
+                                surface.update(expirationDate, strike, call, quote.impliedVol(), quote.delta());
+                                refreshSignals(ticker);
+                            })
+                            .exceptionally(error -> null));
+                }
             }
-            api.getClient().cancelMktData(reqId);
-            reqIdToTickerMap.remove(reqId);
-            reqIdToRequestType.remove(reqId);
         }
+        return CompletableFuture.allOf(quotes.toArray(new CompletableFuture<?>[0]));
     }
 
-    public void setConId(String ticker, int conId) {
-        tickerToConIdMap.put(ticker, conId);
+    /**
+     * Issues a daily-bar historical request unless an identical one is in flight.
+     */
+    private CompletableFuture<List<Bar>> requestHistorical(String ticker, int conId, RequestType type, String duration, String whatToShow) {
+        String endDateTime = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + " 16:00:00";
+        RequestKey key = new RequestKey(conId, type, endDateTime + "|" + duration + "|1 day|" + whatToShow);
+        return historicalRequests.execute(key, k ->
+                clients.clientFor(ticker).historicalBars(type, stockContract(ticker, conId), endDateTime, duration, "1 day", whatToShow));
     }
 
-    public void addHistoricalBar(int reqId, Bar bar) {
-        String ticker = reqIdToTickerMap.get(reqId);
-        if (ticker != null) {
-            historicalBars.computeIfAbsent(ticker, k -> new ArrayList<>()).add(bar);
+    /**
+     * Keys the bar closes by date; used for the volatility series, whose bars carry the volatility as close.
+     */
+    private static NavigableMap<LocalDate, Double> toDailySeries(String ticker, List<Bar> bars) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
+        NavigableMap<LocalDate, Double> series = new ConcurrentSkipListMap<>();
+        for (Bar bar : bars) {
+            try {
+                series.put(LocalDate.parse(bar.time(), formatter), bar.close());
+            } catch (Exception e) {
+                logger.error("Error parsing date {} in volatility series for {}", bar.time(), ticker, e);
+            }
         }
+        return series;
     }
 
-    public void historicalDataEnd(int reqId, String startDateStr, String endDateStr) {
-        String ticker = reqIdToTickerMap.get(reqId);
-        if (ticker != null) {
-            logger.info("Finished receiving " + reqIdToRequestType.get(reqId) + " for " + ticker);
-            reqIdToTickerMap.remove(reqId);
-            reqIdToRequestType.remove(reqId);
-            checkAndDisplay(ticker);
-        }
+    /**
+     * Records an underlying price without requesting it.
+     */
+    public void setUnderlyingPrice(String ticker, double price) {
+        underlyingPrices.put(ticker, price);
     }
 
-    public void processOptionChainParameters(int reqId, Set<String> expirations, Set<Double> strikes) {
-        String ticker = reqIdToTickerMap.get(reqId);
+    /**
+     * Sets the group a ticker's implied volatility is compared with, e.g. its industry from the screener export.
+     * Without one, the industry classification of its contract details is used.
+     */
+    public void setPeerGroup(String ticker, String group) {
+        peerGroups.put(ticker, group);
+    }
 
-        if (ticker == null) {
-            logger.debug("reqId {}. Ticker or price not found.", reqId);
-            return;
+    private String peerGroupOf(String ticker) {
+        String group = peerGroups.get(ticker);
+        if (group != null && !group.isEmpty()) {
+            return group;
         }
+        ContractDetails cd = contractDetailsMap.get(ticker);
+        if (cd == null) {
+            return null;
+        }
+        // IB's category is the finer classification (e.g. "Semiconductors" within "Technology")
+        if (cd.category() != null && !cd.category().isEmpty()) {
+            return cd.category();
+        }
+        return cd.industry() != null && !cd.industry().isEmpty() ? cd.industry() : null;
+    }
 
+    public void setConId(String ticker, int conId) {
+        tickerToConIdMap.put(ticker, conId);
+    }
+
+    /**
+     * Filters an underlying's option chain around the current price and records it for the report.
+     */
+    public void applyOptionChain(String ticker, OptionChainParams params) {
         Double underlyingPrice = underlyingPrices.get(ticker);
         if (underlyingPrice == null) {
-            logger.debug("reqId {}. Ticker or price not found.", reqId);
+            logger.debug("{}. Price not found.", ticker);
             return;
         }
+        OptionChainIndex filtered = filterChain(params.index(), LocalDate.now(), underlyingPrice);
 
-        LocalDate today = LocalDate.now();
-        LocalDate oneMonthFromNow = today.plusMonths(1);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
+        StringBuilder summary = new StringBuilder(64 + 12 * (filtered.expirationCount() + filtered.strikeCount()));
+        summary.append("Expirations (<= 1 Month): [");
+        for (int i = 0; i < filtered.expirationCount(); i++) {
+            summary.append(i > 0 ? ", " : "").append(filtered.expirationString(i));
+        }
+        summary.append("]\nStrikes (+/- 20%): [");
+        for (int i = 0; i < filtered.strikeCount(); i++) {
+            summary.append(i > 0 ? ", " : "").append(filtered.strike(i));
+        }
+        optionChainSummary.put(ticker, summary.append(']').toString());
 
-        Set<String> filteredExpirations = expirations.stream()
-                .filter(exp -> {
-                    try {
-                        LocalDate expDate = LocalDate.parse(exp, formatter);
-                        return !expDate.isBefore(today) && !expDate.isAfter(oneMonthFromNow);
-                    } catch (Exception e) { return false; }
-                })
-                .collect(Collectors.toCollection(TreeSet::new));
+        filteredChains.put(ticker, filtered);
+        trackLines(ticker, filtered);
+    }
+
+    /**
+     * Hands every call and put of a filtered chain to the market data lines, sharing their quote quality with the
+     * surface sweep and contract selection.
+     */
+    private void trackLines(String ticker, OptionChainIndex chain) {
+        if (lines == null) {
+            return;
+        }
+        for (int e = 0; e < chain.expirationCount(); e++) {
+            LocalDate expirationDate = chain.expiration(e);
+            String expiration = chain.expirationString(e);
+            for (int k = 0; k < chain.strikeCount(); k++) {
+                double strike = chain.strike(k);
+                for (boolean call : new boolean[]{true, false}) {
+                    OptionKey key = OptionKey.of(ticker, expirationDate, strike, call);
+                    QuoteQuality quality = quoteQuality.computeIfAbsent(key, k2 -> new QuoteQuality());
+                    lines.track(key, optionContract(ticker, expiration, strike, call), quality,
+                            optionListener(ticker, expirationDate, strike, call, quality));
+                }
+            }
+        }
+    }
 
-        double lowerBound = underlyingPrice * 0.8;
-        double upperBound = underlyingPrice * 1.2;
-        Set<Double> filteredStrikes = strikes.stream()
-                .filter(strike -> strike >= lowerBound && strike <= upperBound)
-                .collect(Collectors.toCollection(TreeSet::new));
+    /**
+     * Receives a tracked contract's events: its quotes update the quality, its model computations the ticker's
+     * volatility surface, which then refreshes the ticker's signals.
+     */
+    private StreamListener optionListener(String ticker, LocalDate expirationDate, double strike, boolean call, QuoteQuality quality) {
+        int modelOption = TickType.MODEL_OPTION.index();
+        return new StreamListener() {
+            @Override
+            public void onTickPrice(int field, double price) {
+                quality.onTickPrice(field, price);
+            }
 
-        String summary = String.format("Expirations (<= 1 Month): %s\nStrikes (+/- 20%%): %s", filteredExpirations, filteredStrikes);
-        optionChainSummary.put(ticker, summary);
-        
-        filteredExpirationsMap.put(ticker, expirations);
-        filteredStrikesMap.put(ticker, strikes);
+            @Override
+            public void onTickSize(int field, long size) {
+                quality.onTickSize(field, size);
+            }
 
-        reqIdToTickerMap.remove(reqId);
-        reqIdToRequestType.remove(reqId);
-        checkAndDisplay(ticker);
+            @Override
+            public void onTickGeneric(int field, double value) {
+                quality.onTickGeneric(field, value);
+            }
+
+            @Override
+            public void onOptionComputation(int field, double impliedVol, double delta, double optionPrice, double underlyingPrice) {
+                if (field != modelOption) {
+                    return;
+                }
+                surfaces.computeIfAbsent(ticker, t -> {
+                    VolSurface surface = new VolSurface();
+                    Double price = underlyingPrices.get(t);
+                    if (price != null) {
+                        surface.setSpot(price);
+                    }
+                    return surface;
+                }).update(expirationDate, strike, call, impliedVol, delta);
+                refreshSignals(ticker);
+            }
+        };
     }
 
-    public void setHistoricalVolatility(int reqId, String dateStr, double volatility) {
-        String ticker = reqIdToTickerMap.get(reqId);
-        if (ticker != null) {
+    /**
+     * Keeps the expirations between today and one month from today, and the strikes within +/- 20% of the
+     * underlying price.
+     */
+    public static OptionChainIndex filterChain(OptionChainIndex chain, LocalDate today, double underlyingPrice) {
+        return chain.slice((int) today.toEpochDay(), (int) today.plusMonths(1).toEpochDay(),
+                underlyingPrice * 0.8, underlyingPrice * 1.2);
+    }
+
+    /**
+     * Reports a ticker whose pipeline has finished, and the statistics table once every ticker has.
+     */
+    private synchronized void completeTicker(String ticker) {
+        long updateNanos = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (completedTickers.add(ticker)) {
+            TickerSnapshot snapshot;
             try {
-                LocalDate date = LocalDate.parse(dateStr, DateTimeFormatter.ofPattern("yyyyMMdd"));
-                historicalVolatility.computeIfAbsent(ticker, k -> new ConcurrentSkipListMap<>()).put(date, volatility);
-            } catch (Exception e) {
-                logger.error("Error parsing date for historical volatility: " + dateStr, e);
+                snapshot = snapshotTicker(ticker);
+                setSignalInputs(snapshot);
+            } catch (RuntimeException e) {
+                // Not completed after all, so that failTicker can count it
+                completedTickers.remove(ticker);
+                throw e;
             }
+            reportPublisher.publish(snapshot);
+            publishFinalStatisticsTableIfDone(updateNanos);
         }
     }
 
-    public void setOptionImpliedVolatility(int reqId, String dateStr, double volatility) {
-        String ticker = reqIdToTickerMap.get(reqId);
-        if (ticker != null) {
-            try {
-                LocalDate date = LocalDate.parse(dateStr, DateTimeFormatter.ofPattern("yyyyMMdd"));
-                optionImpliedVolatility.computeIfAbsent(ticker, k -> new ConcurrentSkipListMap<>()).put(date, volatility);
-            } catch (Exception e) {
-                logger.error("Error parsing date for implied volatility: " + dateStr, e);
+    private void setSignalInputs(TickerSnapshot snapshot) {
+        VolatilitySummary impVol = snapshot.getImpliedVolatility();
+        signals.setInputs(snapshot.getTicker(), impVol.getFirstValue(), impVol.getLastValue(),
+                snapshot.getHistoricalVolatility().getLastValue(), peerGroupOf(snapshot.getTicker()), snapshot.getSurface(),
+                snapshot.getIntradayRealizedVol());
+    }
+
+    /**
+     * Re-reads a completed ticker's signal inputs from the live maps, e.g. after its implied volatility or surface
+     * was updated. Refreshes are batched for {@code sigmaflow.signals.batchMillis}; the batch rescores only the
+     * tickers it affects, and once the universe is ranked republishes the statistics table, and the recommendations
+     * whose ticker changed.
+     */
+    public void refreshSignals(String ticker) {
+        if (!completedTickers.contains(ticker)) {
+            return;
+        }
+        refreshedSignals.add(ticker);
+        if (signalFlushScheduled.compareAndSet(false, true)) {
+            if (Metrics.ENABLED) {
+                signalBatchNanos = System.nanoTime();
             }
+            CompletableFuture.delayedExecutor(SIGNAL_BATCH_MILLIS, TimeUnit.MILLISECONDS).execute(this::flushSignals);
         }
     }
-    
-    public RequestType getRequestType(int reqId) {
-        return reqIdToRequestType.get(reqId);
-    }
-
-    private synchronized void checkAndDisplay(String ticker) {
-        if (contractDetailsMap.containsKey(ticker) &&
-            historicalBars.containsKey(ticker) &&
-            historicalVolatility.containsKey(ticker) &&
-            optionImpliedVolatility.containsKey(ticker) &&
-            optionChainSummary.containsKey(ticker)) {
-
-            completedTickers.add(ticker);
-            printTickerReport(ticker);
-            
-            if (completedTickers.size() == tickers.size()) {
-                printFinalStatisticsTable();
+
+    private synchronized void flushSignals() {
+        // Measured from the batch's first refresh, so that UPDATE_TO_SIGNAL includes the batching delay; read before
+        // the next batch can start
+        long updateNanos = signalBatchNanos;
+        signalFlushScheduled.set(false);
+        for (Iterator<String> it = refreshedSignals.iterator(); it.hasNext(); ) {
+            String ticker = it.next();
+            it.remove();
+            setSignalInputs(snapshotTicker(ticker));
+        }
+        if (statisticsPublished) {
+            publishFinalStatisticsTable(updateNanos);
+        }
+    }
+
+    /**
+     * Gives up on a ticker whose contract or price could not be obtained; it is left out of the statistics table.
+     */
+    private synchronized void failTicker(String ticker, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (!completedTickers.contains(ticker) && failedTickers.add(ticker)) {
+            logger.error("Could not complete {}: {}", ticker, cause.getMessage());
+            publishFinalStatisticsTableIfDone(Metrics.ENABLED ? System.nanoTime() : 0);
+        }
+    }
+
+    private void publishFinalStatisticsTableIfDone(long updateNanos) {
+        if (completedTickers.size() + failedTickers.size() == tickers.size() && !completedTickers.isEmpty()) {
+            if (!failedTickers.isEmpty()) {
+                logger.warn("Ranking {} of {} tickers; failed: {}", box(completedTickers.size()), box(tickers.size()),
+                        failedTickers);
             }
+            publishFinalStatisticsTable(updateNanos);
         }
     }
 
-    private void printTickerReport(String ticker) {
+    /**
+     * Copies everything the report needs for a ticker out of the live maps.
+     *
+     * @param ticker The ticker symbol.
+     * @return An immutable snapshot that can be rendered on another thread.
+     */
+    public TickerSnapshot snapshotTicker(String ticker) {
         ContractDetails cd = contractDetailsMap.get(ticker);
         List<Bar> bars = historicalBars.get(ticker);
-        Map<LocalDate, Double> histVolMap = historicalVolatility.get(ticker);
-        Map<LocalDate, Double> impVolMap = optionImpliedVolatility.get(ticker);
-        String chainSummary = optionChainSummary.get(ticker);
-
-        System.out.println("\n==================================================");
-        System.out.println("REPORT FOR TICKER: " + ticker);
-        System.out.println("==================================================");
-        System.out.println("1. Contract Details:");
-        System.out.println("   Company Name: " + cd.longName());
-        System.out.println("   Primary Exchange: " + cd.contract().primaryExch());
-        System.out.println("--------------------------------------------------");
-        System.out.println("2. Historical Daily Prices (Last 30 Days):");
+        Double price = underlyingPrices.get(ticker);
+        VolSurface surface = surfaces.get(ticker);
+        IntradayVolatility intraday = intradayVolatility.get(ticker);
+
+        int barCount = 0;
+        String firstBarTime = null;
+        double firstBarClose = Double.NaN;
+        String lastBarTime = null;
+        double lastBarClose = Double.NaN;
         if (bars != null && !bars.isEmpty()) {
-            System.out.println("   Total Bars: " + bars.size());
-            System.out.println("   First Bar: " + bars.get(0).time() + " Close: " + bars.get(0).close());
-            System.out.println("   Last Bar:  " + bars.get(bars.size()-1).time() + " Close: " + bars.get(bars.size()-1).close());
+            barCount = bars.size();
+            Bar first = bars.get(0);
+            Bar last = bars.get(barCount - 1);
+            firstBarTime = first.time();
+            firstBarClose = first.close();
+            lastBarTime = last.time();
+            lastBarClose = last.close();
         }
-        System.out.println("--------------------------------------------------");
-        
-        if (histVolMap != null && !histVolMap.isEmpty()) {
-            ConcurrentSkipListMap<LocalDate, Double> sortedMap = (ConcurrentSkipListMap<LocalDate, Double>) histVolMap;
-            System.out.println("3. Historical Volatility (30-day):");
-            System.out.println("   First Date: " + sortedMap.firstKey() + " Value: " + sortedMap.firstEntry().getValue());
-            System.out.println("   Last Date:  " + sortedMap.lastKey() + " Value: " + sortedMap.lastEntry().getValue());
-            System.out.println("   Data Points: " + histVolMap.size());
-        } else {
-             System.out.println("3. Historical Volatility (30-day): N/A");
+
+        return new TickerSnapshot(ticker,
+                cd != null ? cd.longName() : null,
+                cd != null ? cd.contract().primaryExch() : null,
+                price != null ? price : Double.NaN,
+                barCount, firstBarTime, firstBarClose, lastBarTime, lastBarClose,
+                VolatilitySummary.of((NavigableMap<LocalDate, Double>) historicalVolatility.get(ticker)),
+                VolatilitySummary.of((NavigableMap<LocalDate, Double>) optionImpliedVolatility.get(ticker)),
+                optionChainSummary.get(ticker),
+                surface != null ? surface.summary(LocalDate.now()) : VolSurface.Summary.EMPTY,
+                intraday != null ? intraday.fiveMinute(RealizedVolatility.Estimator.GARMAN_KLASS) : Double.NaN);
+    }
+
+    /**
+     * Publishes the statistics table from the signal graph, and a recommendation for each end of the ranking whose
+     * ticker differs from the one last recommended; an unavailable recommendation does not count as one. Nothing is
+     * published if no score changed since the last table.
+     */
+    private void publishFinalStatisticsTable(long updateNanos) {
+        if (signals.flush() == 0 && statisticsPublished) {
+            return;
         }
+        publishStatisticsTable();
 
-        System.out.println("--------------------------------------------------");
-        
-        if (impVolMap != null && !impVolMap.isEmpty()) {
-             ConcurrentSkipListMap<LocalDate, Double> sortedMap = (ConcurrentSkipListMap<LocalDate, Double>) impVolMap;
-             System.out.println("4. Implied Volatility (30-day):");
-             System.out.println("   First Date: " + sortedMap.firstKey() + " Value: " + sortedMap.firstEntry().getValue());
-             System.out.println("   Last Date:  " + sortedMap.lastKey() + " Value: " + sortedMap.lastEntry().getValue());
-             System.out.println("   Data Points: " + impVolMap.size());
-        } else {
-            System.out.println("4. Implied Volatility (30-day): N/A");
+        long signalNanos = 0;
+        if (Metrics.ENABLED) {
+            signalNanos = System.nanoTime();
+            Metrics.recordStage(Metrics.Stage.UPDATE_TO_SIGNAL, signalNanos - updateNanos);
+        }
+        // Chained so that the long recommendation is published before the short one, whichever rules arrive first
+        CompletableFuture<Void> published = CompletableFuture.completedFuture(null);
+        // Best long volatility candidate: the smallest sum
+        TradeCandidate bestLongVolCandidate = signals.bestLongVolatility();
+        if (bestLongVolCandidate != null && !bestLongVolCandidate.getTicker().equals(recommendedLong.get())) {
+            recommendedLong.set(bestLongVolCandidate.getTicker());
+            published = publishTradeRecommendation(bestLongVolCandidate.getTicker(), true, signalNanos, published);
         }
-        
-        System.out.println("--------------------------------------------------");
-        System.out.println("5. Underlying Option Chain (Filtered):");
-        System.out.println(chainSummary);
-        System.out.println("==================================================\n");
-    }
 
-    private void printFinalStatisticsTable() {
-        System.out.println("\n====================================================================================================");
-        System.out.println("FINAL STATISTICS TABLE");
-        System.out.println("====================================================================================================");
-        System.out.printf("%-10s | %-15s | %-15s | %-15s | %-15s%n", "Ticker", "Diff A (Last-First IV)", "Diff B (Last IV-HV)", "Diff C (Last IV-Ind Avg)", "Sum");
-        System.out.println("----------------------------------------------------------------------------------------------------");
+        // Best short volatility candidate: the largest sum
+        TradeCandidate bestShortVolCandidate = signals.bestShortVolatility();
+        if (bestShortVolCandidate != null && !bestShortVolCandidate.getTicker().equals(recommendedShort.get())) {
+            recommendedShort.set(bestShortVolCandidate.getTicker());
+            publishTradeRecommendation(bestShortVolCandidate.getTicker(), false, signalNanos, published);
+        }
+    }
 
-        double totalLastImpVol = 0;
-        int count = 0;
-        for (String ticker : tickers) {
-            Map<LocalDate, Double> impVolMap = optionImpliedVolatility.get(ticker);
-            if (impVolMap != null && !impVolMap.isEmpty()) {
-                ConcurrentSkipListMap<LocalDate, Double> sortedMap = (ConcurrentSkipListMap<LocalDate, Double>) impVolMap;
-                totalLastImpVol += sortedMap.lastEntry().getValue();
-                count++;
+    /**
+     * Publishes the statistics table and hands the ranking to the market data lines: at once the first time, then at
+     * most every {@code sigmaflow.signals.tableMillis}. Changes within the interval are published at its end, so the
+     * last table is always current.
+     */
+    private void publishStatisticsTable() {
+        long now = System.nanoTime();
+        long waitMillis = statisticsPublished ? TABLE_MILLIS - (now - tablePublishedNanos) / 1_000_000 : 0;
+        if (waitMillis > 0) {
+            if (!tableRepublishScheduled) {
+                tableRepublishScheduled = true;
+                CompletableFuture.delayedExecutor(waitMillis, TimeUnit.MILLISECONDS).execute(this::publishScheduledTable);
+            }
+            return;
+        }
+        statisticsPublished = true;
+        tablePublishedNanos = now;
+        reportPublisher.publish(new StatisticsTable(signals.industryAvgImpVol(), signals.rows()));
+        if (lines != null) {
+            // The extremes of the ranking are the long and short candidates; relevance falls off toward the middle
+            List<TradeCandidate> ranked = signals.ranked();
+            for (int i = 0; i < ranked.size(); i++) {
+                int fromEnd = Math.min(i, ranked.size() - 1 - i);
+                lines.setTickerWeight(ranked.get(i).getTicker(), 1.0 / (1 + fromEnd));
             }
+            lines.start();
         }
-        double industryAvgImpVol = count > 0 ? totalLastImpVol / count : 0;
-        System.out.println("Industry Average Implied Volatility: " + industryAvgImpVol);
-        System.out.println("----------------------------------------------------------------------------------------------------");
+    }
 
-        List<TradeCandidate> candidates = new ArrayList<>();
+    private synchronized void publishScheduledTable() {
+        tableRepublishScheduled = false;
+        publishStatisticsTable();
+    }
 
-        for (String ticker : tickers) {
-            Map<LocalDate, Double> impVolMap = optionImpliedVolatility.get(ticker);
-            Map<LocalDate, Double> histVolMap = historicalVolatility.get(ticker);
-
-            double diffA = 0;
-            double diffB = 0;
-            double diffC = 0;
-
-            if (impVolMap != null && !impVolMap.isEmpty()) {
-                ConcurrentSkipListMap<LocalDate, Double> sortedImpMap = (ConcurrentSkipListMap<LocalDate, Double>) impVolMap;
-                double lastImpVol = sortedImpMap.lastEntry().getValue();
-                double firstImpVol = sortedImpMap.firstEntry().getValue();
-                
-                diffA = lastImpVol - firstImpVol;
-
-                if (histVolMap != null && !histVolMap.isEmpty()) {
-                    ConcurrentSkipListMap<LocalDate, Double> sortedHistMap = (ConcurrentSkipListMap<LocalDate, Double>) histVolMap;
-                    double lastHistVol = sortedHistMap.lastEntry().getValue();
-                    diffB = lastImpVol - lastHistVol;
-                }
+    /**
+     * Selects the contract for a recommendation and, once the market rules of the option and the stock are known,
+     * defers pricing and simulation to the report renderer thread. The expiry, strike and implied volatility come
+     * from the surface; without one, the expiry nearest two weeks and the strike nearest spot are priced at the
+     * stock's implied volatility.
+     *
+     * @param previous Completes when the previous recommendation has been published.
+     * @return A future completed once this recommendation has been published.
+     */
+    private CompletableFuture<Void> publishTradeRecommendation(String ticker, boolean isLongVolatility, long signalNanos,
+                                                               CompletableFuture<Void> previous) {
+        OptionChainIndex chain = filteredChains.get(ticker);
+        Double underlyingPrice = underlyingPrices.get(ticker);
+        NavigableMap<LocalDate, Double> impVolMap = (NavigableMap<LocalDate, Double>) optionImpliedVolatility.get(ticker);
 
-                diffC = lastImpVol - industryAvgImpVol;
+        if (chain == null || underlyingPrice == null || impVolMap == null || impVolMap.isEmpty()) {
+            return previous.thenRun(() -> publishRecommendation(TradeRecommendation.unavailable(ticker, isLongVolatility,
+                    "Insufficient data to generate trade recommendation for " + ticker)));
+        }
+
+        LocalDate today = LocalDate.now();
+        VolSurface surface = surfaces.get(ticker);
+        VolSurface.ContractFilter liquidCalls = (expirationDay, strike) ->
+                isLiquid(new OptionKey(ticker, expirationDay, strike, true));
+        VolSurface.Selection selection = surface != null
+                ? surface.select(today, SURFACE_MIN_DAYS, SURFACE_MAX_DAYS, isLongVolatility, liquidCalls) : null;
+        if (selection == null) {
+            int bestExpiration = chain.nearestExpiration((int) today.plusWeeks(2).toEpochDay());
+            int bestStrike = bestExpiration < 0 ? -1 : nearestStrike(chain, underlyingPrice, chain.expirationDay(bestExpiration), liquidCalls);
+            if (bestStrike < 0) {
+                return previous.thenRun(() -> publishRecommendation(TradeRecommendation.unavailable(ticker,
+                        isLongVolatility, "Could not find suitable option contract.")));
+            }
+            selection = new VolSurface.Selection(chain.expiration(bestExpiration), chain.strike(bestStrike),
+                    impVolMap.lastEntry().getValue());
+        }
+        OptionKey selectedKey = OptionKey.of(ticker, selection.expiration(), selection.strike(), true);
+        QuoteQuality quality = quoteQuality.get(selectedKey);
+        if (quality != null) {
+            logger.info("{} {} {} call quote: {}, score {}", ticker, selection.expiration(), box(selection.strike()),
+                    quality, box(quality.score()));
+            if (quality.isStale(System.nanoTime())) {
+                refreshQuote(selectedKey, quality);
             }
+        }
 
-            double sum = diffA + diffB + diffC;
-            candidates.add(new TradeCandidate(ticker, sum));
+        VolSurface.Selection contract = selection;
+        CompletableFuture<MarketRule> optionRule = optionMarketRule(ticker, contract.expiration(), contract.strike());
+        CompletableFuture<MarketRule> stockRule = marketRules != null
+                ? marketRules.forContract(contractDetailsMap.get(ticker), MarketRule.STOCK_DEFAULT)
+                : CompletableFuture.completedFuture(MarketRule.STOCK_DEFAULT);
+        return CompletableFuture.allOf(previous, optionRule, stockRule)
+                .thenRun(() -> reportPublisher.publishDeferred(() ->
+                        checkAvailable(priceTradeRecommendation(ticker, isLongVolatility, today, contract.expiration(),
+                                contract.strike(), underlyingPrice, contract.impliedVol(), optionRule.join(),
+                                stockRule.join(), signalNanos))))
+                .whenComplete((v, error) -> {
+                    if (error != null) {
+                        forgetRecommended(ticker, isLongVolatility);
+                    }
+                });
+    }
 
-            System.out.printf("%-10s | %-15.4f | %-15.4f | %-15.4f | %-15.4f%n", ticker, diffA, diffB, diffC, sum);
-        }
-        System.out.println("====================================================================================================\n");
+    private void publishRecommendation(TradeRecommendation recommendation) {
+        reportPublisher.publish(checkAvailable(recommendation));
+    }
 
-        // Find best candidate (Smallest Sum -> Long Volatility)
-        candidates.sort(Comparator.comparingDouble(TradeCandidate::getSum));
-        if (!candidates.isEmpty()) {
-            TradeCandidate bestLongVolCandidate = candidates.get(0);
-            generateTradeRecommendation(bestLongVolCandidate.ticker, true);
-        }
-        
-        // Find best candidate (Largest Sum -> Short Volatility)
-        if (!candidates.isEmpty()) {
-            TradeCandidate bestShortVolCandidate = candidates.get(candidates.size() - 1);
-            generateTradeRecommendation(bestShortVolCandidate.ticker, false);
+    private TradeRecommendation checkAvailable(TradeRecommendation recommendation) {
+        if (!recommendation.isAvailable()) {
+            forgetRecommended(recommendation.getTicker(), recommendation.isLongVolatility());
         }
+        return recommendation;
     }
 
-    private void generateTradeRecommendation(String ticker, boolean isLongVolatility) {
-        System.out.println("==================================================");
-        System.out.println("RECOMMENDED TRADE (" + (isLongVolatility ? "LONG" : "SHORT") + " VOLATILITY)");
-        System.out.println("==================================================");
+    /**
+     * Stops counting a ticker as recommended after its recommendation turned out unavailable or failed, so that the
+     * next flush retries it.
+     */
+    private void forgetRecommended(String ticker, boolean isLongVolatility) {
+        (isLongVolatility ? recommendedLong : recommendedShort)
+                .updateAndGet(recommended -> ticker.equals(recommended) ? null : recommended);
+    }
 
-        Set<String> expirations = filteredExpirationsMap.get(ticker);
-        Set<Double> strikes = filteredStrikesMap.get(ticker);
-        Double underlyingPrice = underlyingPrices.get(ticker);
-        Map<LocalDate, Double> impVolMap = optionImpliedVolatility.get(ticker);
+    /**
+     * Requests a new snapshot of an option whose quote has aged, so that its quality is current for the next
+     * selection; through the market data lines when they are on.
+     */
+    private void refreshQuote(OptionKey key, QuoteQuality quality) {
+        Contract contract = optionContract(key.symbol(), key.expiration().format(DateTimeFormatter.BASIC_ISO_DATE),
+                key.strike(), key.call());
+        CompletableFuture<OptionQuote> snapshot = lines != null
+                ? lines.snapshot(key, contract, quality)
+                : clients.clientFor(key.symbol()).optionSnapshot(contract, quality);
+        snapshot.exceptionally(error -> {
+            logger.debug("Quote refresh of {} failed: {}", key, error.toString());
+            return null;
+        });
+    }
 
-        if (expirations == null || strikes == null || underlyingPrice == null || impVolMap == null || impVolMap.isEmpty()) {
-            System.out.println("Insufficient data to generate trade recommendation for " + ticker);
-            return;
+    /**
+     * Walks the chain's strikes outward from the price, the nearer side first.
+     *
+     * @return The index of the nearest strike passing the filter, or -1 if none does.
+     */
+    private static int nearestStrike(OptionChainIndex chain, double price, int expirationDay, VolSurface.ContractFilter filter) {
+        int nearest = chain.nearestStrike(price);
+        if (nearest < 0) {
+            return -1;
         }
+        int below = chain.strike(nearest) <= price ? nearest : nearest - 1;
+        int above = below + 1;
+        while (below >= 0 || above < chain.strikeCount()) {
+            boolean takeBelow = above >= chain.strikeCount()
+                    || (below >= 0 && price - chain.strike(below) <= chain.strike(above) - price);
+            int index = takeBelow ? below-- : above++;
+            if (filter.test(expirationDay, chain.strike(index))) {
+                return index;
+            }
+        }
+        return -1;
+    }
 
-        LocalDate today = LocalDate.now();
-        LocalDate twoWeeksFromNow = today.plusWeeks(2);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
-
-        String bestExpiration = expirations.stream()
-                .min(Comparator.comparingLong(exp -> {
-                    try {
-                        LocalDate expDate = LocalDate.parse(exp, formatter);
-                        return Math.abs(ChronoUnit.DAYS.between(twoWeeksFromNow, expDate));
-                    } catch (Exception e) { return Long.MAX_VALUE; }
-                }))
-                .orElse(null);
-
-        Double bestStrike = strikes.stream()
-                .min(Comparator.comparingDouble(strike -> Math.abs(strike - underlyingPrice)))
-                .orElse(null);
-
-        if (bestExpiration == null || bestStrike == null) {
-            System.out.println("Could not find suitable option contract.");
-            return;
+    /**
+     * Resolves the option contract for its market rule ids; on failure the conservative option default is used.
+     */
+    private CompletableFuture<MarketRule> optionMarketRule(String ticker, LocalDate expiration, double strike) {
+        if (marketRules == null) {
+            return CompletableFuture.completedFuture(MarketRule.OPTION_DEFAULT);
         }
+        Contract option = optionContract(ticker, expiration.format(DateTimeFormatter.BASIC_ISO_DATE), strike, true);
+        return clients.clientFor(ticker).contractDetails(option)
+                .exceptionally(e -> {
+                    logger.warn("Contract details unavailable for {} {} {} call: {}", ticker, expiration, box(strike), e.toString());
+                    return null;
+                })
+                .thenCompose(details -> marketRules.forContract(details, MarketRule.OPTION_DEFAULT));
+    }
 
-        double lastImpVol = ((ConcurrentSkipListMap<LocalDate, Double>) impVolMap).lastEntry().getValue();
-        
-        LocalDate expDate = LocalDate.parse(bestExpiration, formatter);
+    /**
+     * Prices the option at the model, rounds the option and stock limit prices onto their ticks toward the passive
+     * side, and simulates the position entered at the option limit.
+     */
+    private TradeRecommendation priceTradeRecommendation(String ticker, boolean isLongVolatility, LocalDate today,
+                                                         LocalDate expDate, double bestStrike, double underlyingPrice,
+                                                         double lastImpVol, MarketRule optionRule, MarketRule stockRule,
+                                                         long signalNanos) {
         double timeToExpiration = ChronoUnit.DAYS.between(today, expDate) / 365.0;
         double riskFreeRate = 0.045; 
+        if (!(lastImpVol > 0) || !(timeToExpiration > 0)) {
+            return TradeRecommendation.unavailable(ticker, isLongVolatility,
+                    "No positive implied volatility and time to expiration for " + ticker + ".");
+        }
         
         Volatility volatilityCalculator = new Volatility();
         double optionPrice = volatilityCalculator.calculateOptionPrice(underlyingPrice, bestStrike, timeToExpiration, riskFreeRate, lastImpVol, "C");
+        if (!Double.isFinite(optionPrice) || !Double.isFinite(underlyingPrice)) {
+            return TradeRecommendation.unavailable(ticker, isLongVolatility, "Could not price option contract.");
+        }
 
-        String formattedExpiration = expDate.format(DateTimeFormatter.ofPattern("M/d/yyyy"));
-        
-        double optionTotal = optionPrice * 100;
-        double stockTotal = underlyingPrice * 50;
+        // Long volatility buys the calls and sells the stock; short volatility the reverse
+        long optionLimitPrice = optionRule.round(Price.of(optionPrice), isLongVolatility);
+        long stockLimitPrice = stockRule.round(Price.of(underlyingPrice), !isLongVolatility);
+        if (optionLimitPrice <= 0) {
+            return TradeRecommendation.unavailable(ticker, isLongVolatility,
+                    "Option price " + Price.format(Price.of(optionPrice)) + " is below one tick.");
+        }
 
-        if (isLongVolatility) {
-            System.out.printf("Buy Qty 1 %s %s %.0f Call @ %.2f Total (%.0f)%n", ticker, formattedExpiration, bestStrike, optionPrice, optionTotal);
-            System.out.printf("Sell Qty 50 %s @ %.2f Total %.0f%n", ticker, underlyingPrice, stockTotal);
-        } else {
-            System.out.printf("Sell Qty 1 %s %s %.0f Call @ %.2f Total %.0f%n", ticker, formattedExpiration, bestStrike, optionPrice, optionTotal);
-            System.out.printf("Buy Qty 50 %s @ %.2f Total (%.0f)%n", ticker, underlyingPrice, stockTotal);
+        if (Metrics.ENABLED) {
+            Metrics.recordStage(Metrics.Stage.SIGNAL_TO_ORDER, System.nanoTime() - signalNanos);
         }
-        System.out.println("--------------------------------------------------");
-        
-        System.out.println("Scenario Analysis (Estimated Profit/Loss):");
-        double[] scenarios = {-0.10, -0.05, 0.0, 0.05, 0.10};
-        
-        for (double scenario : scenarios) {
-            double scenarioPrice = underlyingPrice * (1 + scenario);
-            
-            // Option Value at Expiration
-            double valueAtExpiration = Math.max(0, scenarioPrice - bestStrike) * 100;
-            
-            double optionPnL;
-            double stockPnL;
-            
-            if (isLongVolatility) {
-                // Long Call: Profit = Value at Expiration - Cost
-                optionPnL = valueAtExpiration - optionTotal;
-                // Short Stock: Profit = (Entry Price - Scenario Price) * Qty
-                stockPnL = (underlyingPrice - scenarioPrice) * 50;
-            } else {
-                // Short Call: Profit = Premium Received - Value at Expiration
-                optionPnL = optionTotal - valueAtExpiration;
-                // Long Stock: Profit = (Scenario Price - Entry Price) * Qty
-                stockPnL = (scenarioPrice - underlyingPrice) * 50;
+
+        // Simulate the position to expiration over stochastic price and volatility paths
+        double optionQuantity = isLongVolatility ? 100 : -100;
+        double stockQuantity = isLongVolatility ? -50 : 50;
+        MonteCarloResult simulation = monteCarloEngine.simulate(underlyingPrice, bestStrike, timeToExpiration, riskFreeRate,
+                lastImpVol, optionQuantity, Price.toDouble(optionLimitPrice), stockQuantity);
+
+        return TradeRecommendation.of(ticker, isLongVolatility, expDate, bestStrike, optionPrice, optionLimitPrice, 1,
+                underlyingPrice, stockLimitPrice, 50, simulation);
+    }
+
+    /**
+     * Appends the daily closes, historical and implied volatility of every completed ticker to the backtest archive.
+     *
+     * @param directory The archive directory.
+     */
+    public void archiveHistory(Path directory) {
+        for (String ticker : completedTickers) {
+            NavigableMap<LocalDate, Double> closes = dailyCloses(ticker);
+            if (closes.isEmpty()) {
+                continue;
+            }
+            try {
+                HistoricalArchive.write(directory, ticker, closes, historicalVolatility.get(ticker), optionImpliedVolatility.get(ticker),
+                        peerGroupOf(ticker));
+            } catch (IOException e) {
+                logger.error("Error archiving history for " + ticker, e);
+            }
+        }
+    }
+
+    private NavigableMap<LocalDate, Double> dailyCloses(String ticker) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
+        NavigableMap<LocalDate, Double> closes = new TreeMap<>();
+        List<Bar> bars = historicalBars.get(ticker);
+        if (bars == null) {
+            return closes;
+        }
+        for (Bar bar : bars) {
+            try {
+                closes.put(LocalDate.parse(bar.time().substring(0, 8), formatter), bar.close());
+            } catch (Exception e) {
+                logger.debug("Skipping bar with unparseable date {} for {}", bar.time(), ticker);
+            }
+        }
+        return closes;
+    }
+
+    private synchronized List<TradeCandidate> currentSignals() {
+        signals.flush();
+        return signals.rows();
+    }
+
+    /**
+     * Captures the state of every ticker whose contract has been resolved. Completed tickers are scored against
+     * each other as in the statistics table; the others have NaN scores.
+     *
+     * @return One state per resolved ticker, in ticker order.
+     */
+    public List<TickerState> captureState() {
+        Map<String, TradeCandidate> scores = new HashMap<>();
+        for (TradeCandidate candidate : currentSignals()) {
+            scores.put(candidate.getTicker(), candidate);
+        }
+
+        List<TickerState> states = new ArrayList<>(tickers.size());
+        for (String ticker : tickers) {
+            if (!contractDetailsMap.containsKey(ticker)) {
+                continue;
             }
-            
-            double totalPnL = optionPnL + stockPnL;
-            
-            System.out.printf("Scenario %+.0f%% (Price: %.2f): Option P&L: %.2f, Stock P&L: %.2f, Total P&L: %.2f%n", 
-                    scenario * 100, scenarioPrice, optionPnL, stockPnL, totalPnL);
+            TickerSnapshot snapshot = snapshotTicker(ticker);
+            TradeCandidate score = scores.get(ticker);
+            Integer conId = tickerToConIdMap.get(ticker);
+            // The full chain, so that a warm start can filter it around the next run's price and date
+            OptionChainParams chainParams = conId != null ? optionChainCache.getIfPresent(conId) : null;
+            OptionChainIndex chain = chainParams != null ? chainParams.index() : null;
+            ContractDetails cd = contractDetailsMap.get(ticker);
+            states.add(new TickerState(ticker, snapshot.getCompanyName(), snapshot.getPrimaryExchange(),
+                    cd.category(), cd.industry(), cd.validExchanges(), cd.marketRuleIds(),
+                    conId != null ? conId : 0, snapshot.getUnderlyingPrice(),
+                    DatedSeries.of(dailyCloses(ticker)),
+                    DatedSeries.of((NavigableMap<LocalDate, Double>) historicalVolatility.get(ticker)),
+                    DatedSeries.of((NavigableMap<LocalDate, Double>) optionImpliedVolatility.get(ticker)),
+                    chain != null ? chain.strikes() : new double[0],
+                    chain != null ? chain.expirationDays() : new int[0],
+                    snapshot.getOptionChainSummary(),
+                    score != null ? score.getDiffA() : Double.NaN,
+                    score != null ? score.getDiffB() : Double.NaN,
+                    score != null ? score.getDiffC() : Double.NaN,
+                    score != null ? score.getSum() : Double.NaN,
+                    contractDetailsCache.writtenAt(ticker),
+                    conId != null ? optionChainCache.writtenAt(conId) : 0L));
         }
-        System.out.println("==================================================");
+        return states;
+    }
+
+    /**
+     * Writes the state of every resolved ticker to a binary columnar snapshot, which also serves as the warm-start
+     * store for the next launch.
+     *
+     * @param file The snapshot file, replaced if it exists.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void exportSnapshot(Path file) throws IOException {
+        long start = System.nanoTime();
+        List<TickerState> states = captureState();
+        long bytes = SnapshotWriter.write(file, states);
+        logger.info("Exported snapshot of {} tickers ({} bytes) to {} in {} us", box(states.size()), box(bytes), file,
+                box((System.nanoTime() - start) / 1_000));
+    }
+
+    private Contract stockContract(String symbol, int conId) {
+        Contract contract = createStockContract(symbol);
+        contract.conid(conId);
+        return contract;
+    }
+
+    private Contract optionContract(String symbol, String expiration, double strike, boolean call) {
+        Contract contract = new Contract();
+        contract.symbol(symbol);
+        contract.secType("OPT");
+        contract.exchange("SMART");
+        contract.currency("USD");
+        contract.lastTradeDateOrContractMonth(expiration);
+        contract.strike(strike);
+        contract.right(call ? "C" : "P");
+        contract.multiplier("100");
+        return contract;
     }
 
     private Contract createStockContract(String symbol) {
@@ -510,18 +1168,4 @@ public class MarketData {
         public String getSymbol() { return symbol; }
         public double getStrikePrice() { return strikePrice; }
     }
-    
-    private static class TradeCandidate {
-        String ticker;
-        double sum;
-
-        public TradeCandidate(String ticker, double sum) {
-            this.ticker = ticker;
-            this.sum = sum;
-        }
-
-        public double getSum() {
-            return sum;
-        }
-    }
 }
@@ -0,0 +1,381 @@
+package com.sigmaflow.data;
+
+import com.ib.client.Contract;
+import com.ib.client.TickType;
+import com.sigmaflow.api.AsyncIbClient;
+import com.sigmaflow.api.StreamListener;
+import com.sigmaflow.api.Subscription;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Shares TWS's limited market data lines among the tracked option contracts. On every rotation the contracts are
+ * ranked by priority: pinned contracts (open positions) first, then by nearness to the money, the rank of their
+ * underlying and their quote quality. The top ones hold streaming lines; a line changes hands only when a contender
+ * outranks its holder by a margin, so rankings that merely jitter do not churn subscriptions. The remaining lines
+ * sweep the other contracts with snapshots, the most urgent (priority times quote age) first, so every contract is
+ * refreshed at a rate that follows its relevance. Other snapshots, e.g. of the volatility surface sweep, are queued
+ * for the same snapshot lines and take precedence over the rotation's. Quote freshness is reported per contract.
+ * <p>
+ * Lines are an account-wide TWS limit, so one instance serves every connection.
+ */
+public class MarketDataLines implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(MarketDataLines.class);
+
+    // Market data lines to use (-Dsigmaflow.lines.max); TWS allows 100 by default, some are left for other requests
+    private static final int MAX_LINES = Integer.getInteger("sigmaflow.lines.max", 90);
+    // Lines reserved for snapshot sweeps (-Dsigmaflow.lines.snapshot)
+    private static final int SNAPSHOT_LINES = Integer.getInteger("sigmaflow.lines.snapshot", 10);
+    private static final long ROTATION_MILLIS = Long.getLong("sigmaflow.lines.rotationMillis", 5_000);
+    // Factor by which a contender must outrank a streaming contract to take its line
+    private static final double HYSTERESIS = 1.25;
+    // Log-moneyness at which nearness to the money has decayed to 1/e
+    private static final double MONEYNESS_SCALE = 0.05;
+    // Option volume and open interest
+    private static final String GENERIC_TICKS = "100,101";
+    // Rotations between freshness reports
+    private static final int REPORT_EVERY = 12;
+
+    private static final class Entry {
+        final OptionKey key;
+        final Contract contract;
+        final QuoteQuality quality;
+        final StreamListener listener;
+        volatile boolean pinned;
+        volatile boolean sweeping;
+        // Written by the rotation thread only; volatile for isStreaming(OptionKey) on other threads
+        volatile Subscription subscription;
+        // Owned by the rotation thread
+        long lastSweepNanos;
+        double priority;
+        double urgency;
+
+        Entry(OptionKey key, Contract contract, QuoteQuality quality, StreamListener listener) {
+            this.key = key;
+            this.contract = contract;
+            this.quality = quality;
+            this.listener = listener;
+        }
+
+        boolean isStreaming() {
+            Subscription current = subscription;
+            return current != null && current.isActive();
+        }
+    }
+
+    private record QueuedSnapshot(String symbol, Contract contract, StreamListener ticks, CompletableFuture<OptionQuote> future) {
+    }
+
+    private final Function<String, AsyncIbClient> clients;
+    private final ToDoubleFunction<String> spot;
+    private final Map<OptionKey, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Double> tickerWeights = new ConcurrentHashMap<>();
+    private final AtomicInteger sweepsInFlight = new AtomicInteger();
+    private final Queue<QueuedSnapshot> queued = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "market-data-lines");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> rotation;
+    private int rotations;
+
+    /**
+     * @param clients Client for the requests of an underlying symbol.
+     * @param spot    Underlying price of a symbol, NaN if unknown.
+     */
+    public MarketDataLines(Function<String, AsyncIbClient> clients, ToDoubleFunction<String> spot) {
+        this.clients = clients;
+        this.spot = spot;
+    }
+
+    /**
+     * Adds a contract to the rotation. Its events, streamed or swept, go to the listener, which is expected to keep
+     * the given quality current; a swept snapshot's computation arrives as a {@code MODEL_OPTION} one. A contract
+     * already tracked keeps its state.
+     */
+    public void track(OptionKey key, Contract contract, QuoteQuality quality, StreamListener listener) {
+        entries.computeIfAbsent(key, k -> new Entry(k, contract, quality, listener));
+    }
+
+    /**
+     * Requests an option snapshot on one of the snapshot lines, waiting for a free one, as
+     * {@link AsyncIbClient#optionSnapshot(Contract, StreamListener)}. Cancelled if the lines are closed before it is
+     * sent.
+     */
+    public CompletableFuture<OptionQuote> snapshot(OptionKey key, Contract contract, StreamListener ticks) {
+        CompletableFuture<OptionQuote> future = new CompletableFuture<>();
+        queued.add(new QueuedSnapshot(key.symbol(), contract, ticks, future));
+        if (!execute(this::drainQueued)) {
+            cancelQueued();
+        }
+        return future;
+    }
+
+    /**
+     * Sets the relevance of an underlying for the strategy, from 0 to 1; underlyings without a weight count as 0.1.
+     */
+    public void setTickerWeight(String ticker, double weight) {
+        tickerWeights.put(ticker, weight);
+    }
+
+    /**
+     * Keeps a contract on a streaming line regardless of its rank, e.g. while a position is open in it.
+     */
+    public void pin(OptionKey key, boolean pinned) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.pinned = pinned;
+        }
+    }
+
+    /**
+     * Starts rotating, if not already.
+     */
+    public synchronized void start() {
+        if (rotation == null) {
+            rotation = scheduler.scheduleWithFixedDelay(this::rotateSafely, 0, ROTATION_MILLIS, TimeUnit.MILLISECONDS);
+            logger.info("Rotating {} market data lines ({} for snapshots) every {} ms over {} contracts",
+                    box(MAX_LINES), box(SNAPSHOT_LINES), box(ROTATION_MILLIS), box(entries.size()));
+        }
+    }
+
+    private void rotateSafely() {
+        try {
+            rotate();
+        } catch (RuntimeException e) {
+            logger.error("Market data line rotation failed", e);
+        }
+    }
+
+    private void rotate() {
+        long now = System.nanoTime();
+        Entry[] ranked = entries.values().toArray(new Entry[0]);
+        for (Entry entry : ranked) {
+            entry.priority = priority(entry);
+        }
+        Arrays.sort(ranked, Comparator.comparingDouble((Entry e) -> e.priority).reversed());
+        reassignLines(ranked);
+        drainQueued();
+        sweep(ranked, now);
+        if (++rotations % REPORT_EVERY == 0) {
+            logFreshness(now);
+        }
+    }
+
+    private double priority(Entry entry) {
+        if (entry.pinned) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double price = spot.applyAsDouble(entry.key.symbol());
+        double moneyness = price > 0 ? Math.exp(-Math.abs(Math.log(entry.key.strike() / price)) / MONEYNESS_SCALE) : 0.5;
+        double weight = tickerWeights.getOrDefault(entry.key.symbol(), 0.1);
+        // An illiquid contract keeps a small share, so that it is still swept and can recover
+        double liquidity = entry.quality.isQuoted() ? Math.max(0.1, entry.quality.quoteScore()) : 1;
+        return moneyness * weight * liquidity;
+    }
+
+    /**
+     * Gives the streaming lines to the top ranked contracts, keeping a holder unless it fell clearly below the cut.
+     */
+    private void reassignLines(Entry[] ranked) {
+        int budget = Math.max(0, MAX_LINES - SNAPSHOT_LINES);
+        double cut = ranked.length > budget && budget > 0 ? ranked[budget - 1].priority : 0;
+        int streaming = 0;
+        for (Entry entry : ranked) {
+            if (!entry.isStreaming()) {
+                entry.subscription = null;
+            } else if (entry.priority * HYSTERESIS >= cut && streaming < budget) {
+                streaming++;
+            } else {
+                entry.subscription.cancel();
+                entry.subscription = null;
+            }
+        }
+        for (int i = 0; i < ranked.length && streaming < budget; i++) {
+            Entry entry = ranked[i];
+            if (entry.subscription == null && entry.priority > 0) {
+                entry.subscription = clients.apply(entry.key.symbol()).marketData(entry.contract, GENERIC_TICKS, entry.listener);
+                streaming++;
+            }
+        }
+    }
+
+    /**
+     * Snapshots the most urgent contracts without a line, as many as there are free snapshot lines.
+     */
+    private void sweep(Entry[] ranked, long now) {
+        int free = SNAPSHOT_LINES - sweepsInFlight.get();
+        if (free <= 0) {
+            return;
+        }
+        List<Entry> candidates = new ArrayList<>();
+        for (Entry entry : ranked) {
+            if (entry.subscription == null && !entry.sweeping) {
+                long age = entry.quality.ageNanos(now);
+                long sinceSweep = entry.lastSweepNanos == 0 ? Long.MAX_VALUE : now - entry.lastSweepNanos;
+                // Never quoted counts as infinitely stale, but a contract is not swept again before a rotation passes
+                double staleness = Math.min(age < 0 ? Long.MAX_VALUE : age, sinceSweep);
+                entry.urgency = Math.max(entry.priority, 1e-6) * staleness;
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Comparator.comparingDouble((Entry e) -> e.urgency).reversed());
+        for (int i = 0; i < candidates.size() && i < free; i++) {
+            Entry entry = candidates.get(i);
+            entry.sweeping = true;
+            entry.lastSweepNanos = now;
+            issueSnapshot(entry.key.symbol(), entry.contract, entry.listener).whenComplete((quote, error) -> {
+                entry.sweeping = false;
+                if (quote != null) {
+                    entry.listener.onOptionComputation(TickType.MODEL_OPTION.index(), quote.impliedVol(), quote.delta(),
+                            quote.optionPrice(), quote.underlyingPrice());
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends the queued snapshots that fit on the free snapshot lines; runs on the rotation thread.
+     */
+    private void drainQueued() {
+        while (sweepsInFlight.get() < SNAPSHOT_LINES) {
+            QueuedSnapshot snapshot = queued.poll();
+            if (snapshot == null) {
+                return;
+            }
+            if (snapshot.future.isDone()) {
+                continue;
+            }
+            issueSnapshot(snapshot.symbol, snapshot.contract, snapshot.ticks).whenComplete((quote, error) -> {
+                if (error != null) {
+                    snapshot.future.completeExceptionally(error);
+                } else {
+                    snapshot.future.complete(quote);
+                }
+            });
+        }
+    }
+
+    private CompletableFuture<OptionQuote> issueSnapshot(String symbol, Contract contract, StreamListener ticks) {
+        sweepsInFlight.incrementAndGet();
+        return clients.apply(symbol).optionSnapshot(contract, ticks).whenComplete((quote, error) -> {
+            sweepsInFlight.decrementAndGet();
+            if (!queued.isEmpty()) {
+                execute(this::drainQueued);
+            }
+        });
+    }
+
+    /**
+     * Runs a task on the rotation thread.
+     *
+     * @return False if the lines are closed.
+     */
+    private boolean execute(Runnable task) {
+        try {
+            scheduler.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void cancelQueued() {
+        QueuedSnapshot snapshot;
+        while ((snapshot = queued.poll()) != null) {
+            snapshot.future.cancel(false);
+        }
+    }
+
+    private void logFreshness(long now) {
+        long[] ages = new long[entries.size()];
+        int quoted = 0;
+        int streaming = 0;
+        for (Entry entry : entries.values()) {
+            long age = entry.quality.ageNanos(now);
+            if (age >= 0 && quoted < ages.length) {
+                ages[quoted++] = age;
+            }
+            if (entry.isStreaming()) {
+                streaming++;
+            }
+        }
+        if (quoted == 0) {
+            logger.info("Market data lines: {} streaming, {} sweeping, {} contracts, none quoted yet",
+                    box(streaming), box(sweepsInFlight.get()), box(entries.size()));
+            return;
+        }
+        Arrays.sort(ages, 0, quoted);
+        logger.info("Market data lines: {} streaming, {} sweeping, {} contracts, {} quoted; quote age median {} s, max {} s",
+                box(streaming), box(sweepsInFlight.get()), box(entries.size()), box(quoted),
+                box(ages[quoted / 2] / 1_000_000_000), box(ages[quoted - 1] / 1_000_000_000));
+    }
+
+    /**
+     * @return Milliseconds since the contract's latest bid or ask, or -1 if it is untracked or not quoted yet.
+     */
+    public long freshnessMillis(OptionKey key) {
+        Entry entry = entries.get(key);
+        long age = entry != null ? entry.quality.ageNanos(System.nanoTime()) : -1;
+        return age < 0 ? -1 : age / 1_000_000;
+    }
+
+    /**
+     * @return Whether the contract currently holds a streaming line.
+     */
+    public boolean isStreaming(OptionKey key) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.isStreaming();
+    }
+
+    public int trackedCount() {
+        return entries.size();
+    }
+
+    /**
+     * Stops rotating, cancels every streaming line and the snapshots still queued.
+     */
+    @Override
+    public synchronized void close() {
+        if (rotation != null) {
+            rotation.cancel(false);
+            rotation = null;
+        }
+        try {
+            scheduler.submit(() -> {
+                for (Entry entry : entries.values()) {
+                    if (entry.subscription != null) {
+                        entry.subscription.cancel();
+                        entry.subscription = null;
+                    }
+                }
+            }).get(ROTATION_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            logger.warn("Could not cancel market data lines: {}", e.toString());
+        }
+        scheduler.shutdown();
+        cancelQueued();
+    }
+}
@@ -0,0 +1,314 @@
+package com.sigmaflow.data;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Option chain of an underlying as sorted primitive arrays: strikes, and expirations as epoch days. Nearest, range
+ * and delta-bucket lookups are binary searches, and sub-chains are array slices, so selecting contracts costs
+ * O(log n) without parsing or boxing. Instances are immutable.
+ */
+public final class OptionChainIndex {
+
+    public static final OptionChainIndex EMPTY = new OptionChainIndex(new double[0], new int[0]);
+
+    private static final DateTimeFormatter EXPIRATION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    // Coefficients of the inverse normal approximation
+    private static final double[] A = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+            1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+    private static final double[] B = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+            6.680131188771972e+01, -1.328068155288572e+01};
+    private static final double[] C = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+            -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+    private static final double[] D = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+            3.754408661907416e+00};
+
+    /**
+     * Index range {@code [from, to)}; empty if {@code from >= to}.
+     */
+    public record Range(int from, int to) {
+        public boolean isEmpty() {
+            return from >= to;
+        }
+
+        public int size() {
+            return Math.max(0, to - from);
+        }
+    }
+
+    private final double[] strikes;
+    private final int[] expirationDays;
+
+    /**
+     * @param strikes        Strikes, sorted ascending without duplicates; not copied.
+     * @param expirationDays Expirations as epoch days, sorted ascending without duplicates; not copied.
+     */
+    private OptionChainIndex(double[] strikes, int[] expirationDays) {
+        this.strikes = strikes;
+        this.expirationDays = expirationDays;
+    }
+
+    /**
+     * Builds the index from the sets of {@code reqSecDefOptParams}, or of a snapshot's chain; expirations that are not
+     * yyyyMMdd dates are dropped.
+     *
+     * @param expirations Expirations as yyyyMMdd strings.
+     */
+    public static OptionChainIndex of(Set<String> expirations, Set<Double> strikes) {
+        int[] days = new int[expirations.size()];
+        int count = 0;
+        for (String expiration : expirations) {
+            try {
+                days[count] = (int) LocalDate.parse(expiration, EXPIRATION_FORMAT).toEpochDay();
+                count++;
+            } catch (DateTimeParseException e) {
+                // Not a yyyyMMdd date
+            }
+        }
+        days = Arrays.copyOf(days, count);
+        Arrays.sort(days);
+        double[] sortedStrikes = new double[strikes.size()];
+        int i = 0;
+        for (double strike : strikes) {
+            sortedStrikes[i++] = strike;
+        }
+        Arrays.sort(sortedStrikes);
+        return new OptionChainIndex(distinct(sortedStrikes), distinct(days));
+    }
+
+    private static double[] distinct(double[] sorted) {
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (count == 0 || sorted[i] != sorted[count - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+    }
+
+    private static int[] distinct(int[] sorted) {
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (count == 0 || sorted[i] != sorted[count - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+    }
+
+    public int strikeCount() {
+        return strikes.length;
+    }
+
+    public double strike(int index) {
+        return strikes[index];
+    }
+
+    public int expirationCount() {
+        return expirationDays.length;
+    }
+
+    public int expirationDay(int index) {
+        return expirationDays[index];
+    }
+
+    public LocalDate expiration(int index) {
+        return LocalDate.ofEpochDay(expirationDays[index]);
+    }
+
+    /**
+     * @return The expiration in the yyyyMMdd form IB uses in contracts.
+     */
+    public String expirationString(int index) {
+        return expiration(index).format(EXPIRATION_FORMAT);
+    }
+
+    /**
+     * @return A copy of the sorted strikes.
+     */
+    public double[] strikes() {
+        return strikes.clone();
+    }
+
+    /**
+     * @return A copy of the sorted expirations, as epoch days.
+     */
+    public int[] expirationDays() {
+        return expirationDays.clone();
+    }
+
+    public boolean isEmpty() {
+        return strikes.length == 0 || expirationDays.length == 0;
+    }
+
+    /**
+     * @return The index of the strike nearest the price (the lower one on a tie), or -1 if there are no strikes.
+     */
+    public int nearestStrike(double price) {
+        int above = lowerBound(strikes, price);
+        if (above == 0) {
+            return strikes.length > 0 ? 0 : -1;
+        }
+        if (above == strikes.length) {
+            return above - 1;
+        }
+        return price - strikes[above - 1] <= strikes[above] - price ? above - 1 : above;
+    }
+
+    /**
+     * @return The index of the expiration nearest the day (the earlier one on a tie), or -1 if there are none.
+     */
+    public int nearestExpiration(int epochDay) {
+        int after = lowerBound(expirationDays, epochDay);
+        if (after == 0) {
+            return expirationDays.length > 0 ? 0 : -1;
+        }
+        if (after == expirationDays.length) {
+            return after - 1;
+        }
+        return epochDay - expirationDays[after - 1] <= expirationDays[after] - epochDay ? after - 1 : after;
+    }
+
+    /**
+     * @return The strikes between low and high, inclusive.
+     */
+    public Range strikeRange(double low, double high) {
+        return new Range(lowerBound(strikes, low), upperBound(strikes, high));
+    }
+
+    /**
+     * @return The expirations between the two days, inclusive.
+     */
+    public Range expirationRange(int fromEpochDay, int toEpochDay) {
+        return new Range(lowerBound(expirationDays, fromEpochDay), upperBound(expirationDays, toEpochDay));
+    }
+
+    /**
+     * The strikes whose Black-Scholes delta lies in a bucket, e.g. 0.20-0.30 for "25 delta".
+     *
+     * @param spot        Underlying price.
+     * @param impliedVol  Implied volatility the deltas are computed at.
+     * @param years       Time to expiration, in years.
+     * @param rate        Risk-free rate.
+     * @param minAbsDelta Lower bound of the absolute delta, in (0, 1).
+     * @param maxAbsDelta Upper bound of the absolute delta, in (0, 1).
+     * @param call        Whether the deltas are call (else put) deltas.
+     */
+    public Range deltaBucket(double spot, double impliedVol, double years, double rate, double minAbsDelta,
+                             double maxAbsDelta, boolean call) {
+        // Call delta falls and absolute put delta rises with the strike
+        double lowStrike = strikeAtDelta(spot, impliedVol, years, rate, call ? maxAbsDelta : -minAbsDelta);
+        double highStrike = strikeAtDelta(spot, impliedVol, years, rate, call ? minAbsDelta : -maxAbsDelta);
+        return strikeRange(lowStrike, highStrike);
+    }
+
+    /**
+     * Inverts the Black-Scholes delta for the strike.
+     *
+     * @param delta Call delta in (0, 1), or put delta in (-1, 0).
+     */
+    public static double strikeAtDelta(double spot, double impliedVol, double years, double rate, double delta) {
+        double d1 = inverseNormal(delta > 0 ? delta : 1 + delta);
+        double stdDev = impliedVol * Math.sqrt(years);
+        return spot * Math.exp(-d1 * stdDev + (rate + impliedVol * impliedVol / 2) * years);
+    }
+
+    /**
+     * Restricts the chain to expirations and strikes within the given bounds, inclusive.
+     */
+    public OptionChainIndex slice(int fromEpochDay, int toEpochDay, double lowStrike, double highStrike) {
+        Range days = expirationRange(fromEpochDay, toEpochDay);
+        Range strikeRange = strikeRange(lowStrike, highStrike);
+        return new OptionChainIndex(
+                Arrays.copyOfRange(strikes, strikeRange.from(), Math.max(strikeRange.from(), strikeRange.to())),
+                Arrays.copyOfRange(expirationDays, days.from(), Math.max(days.from(), days.to())));
+    }
+
+    /** First index whose value is not less than the key. */
+    private static int lowerBound(double[] values, double key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** First index whose value is greater than the key. */
+    private static int upperBound(double[] values, double key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(int[] values, int key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int upperBound(int[] values, int key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Inverse of the standard normal distribution function (Acklam's rational approximation, relative error below
+     * 1.2e-9).
+     */
+    private static double inverseNormal(double p) {
+        if (p <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (p >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (p < 0.02425) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5])
+                    / ((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1);
+        }
+        if (p > 1 - 0.02425) {
+            double q = Math.sqrt(-2 * Math.log(1 - p));
+            return -(((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5])
+                    / ((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((A[0] * r + A[1]) * r + A[2]) * r + A[3]) * r + A[4]) * r + A[5]) * q
+                / (((((B[0] * r + B[1]) * r + B[2]) * r + B[3]) * r + B[4]) * r + 1);
+    }
+}
@@ -0,0 +1,44 @@
+package com.sigmaflow.data;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Expirations and strikes of an underlying's option chain, as returned by {@code reqSecDefOptParams} and merged
+ * across all exchanges.
+ */
+public class OptionChainParams {
+
+    private final Set<String> expirations;
+    private final Set<Double> strikes;
+    // Built on first use; racy but idempotent
+    private volatile OptionChainIndex index;
+
+    public OptionChainParams(Set<String> expirations, Set<Double> strikes) {
+        this.expirations = Collections.unmodifiableSet(new TreeSet<>(expirations));
+        this.strikes = Collections.unmodifiableSet(new TreeSet<>(strikes));
+    }
+
+    /** Expirations as yyyyMMdd strings, sorted. */
+    public Set<String> getExpirations() {
+        return expirations;
+    }
+
+    /** Strikes, sorted. */
+    public Set<Double> getStrikes() {
+        return strikes;
+    }
+
+    /**
+     * @return The chain as a sorted index; built once, so the expirations are parsed once per fetched chain.
+     */
+    public OptionChainIndex index() {
+        OptionChainIndex result = index;
+        if (result == null) {
+            result = OptionChainIndex.of(expirations, strikes);
+            index = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,22 @@
+package com.sigmaflow.data;
+
+import java.time.LocalDate;
+
+/**
+ * Identifies a listed option by its terms, for per-contract state such as quote quality.
+ *
+ * @param symbol        The underlying symbol.
+ * @param expirationDay The expiry, as an epoch day.
+ * @param strike        The strike.
+ * @param call          Whether the option is a call.
+ */
+public record OptionKey(String symbol, int expirationDay, double strike, boolean call) {
+
+    public static OptionKey of(String symbol, LocalDate expiration, double strike, boolean call) {
+        return new OptionKey(symbol, (int) expiration.toEpochDay(), strike, call);
+    }
+
+    public LocalDate expiration() {
+        return LocalDate.ofEpochDay(expirationDay);
+    }
+}
@@ -0,0 +1,12 @@
+package com.sigmaflow.data;
+
+/**
+ * TWS's option computation for a single option contract, from a market data snapshot.
+ *
+ * @param impliedVol      Implied volatility, annualized.
+ * @param delta           Delta; positive for calls, negative for puts.
+ * @param optionPrice     The option price the computation is based on.
+ * @param underlyingPrice The underlying price the computation is based on.
+ */
+public record OptionQuote(double impliedVol, double delta, double optionPrice, double underlyingPrice) {
+}
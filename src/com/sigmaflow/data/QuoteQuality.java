@@ -0,0 +1,164 @@
+package com.sigmaflow.data;
+
+import com.ib.client.TickType;
+import com.sigmaflow.api.StreamListener;
+
+/**
+ * Quote quality of one contract, updated tick by tick from its snapshots or market data subscription: the latest
+ * bid and ask with their sizes, the day's volume, open interest and trading halts. The score combines relative
+ * spread, depth and activity, decayed by the age of the quote, into a number between 0 (untradeable) and 1.
+ * Ticks arrive on the EReader thread and readers may be anywhere, so access is synchronized.
+ */
+public class QuoteQuality implements StreamListener {
+
+    // Relative spread at which the spread score reaches 0 (-Dsigmaflow.liquidity.maxSpread)
+    private static final double MAX_RELATIVE_SPREAD = Double.parseDouble(System.getProperty("sigmaflow.liquidity.maxSpread", "0.25"));
+    // Smaller side of the book, in contracts, that earns a full depth score (-Dsigmaflow.liquidity.depth)
+    private static final long DEPTH_TARGET = Long.getLong("sigmaflow.liquidity.depth", 50);
+    // Open interest plus volume that earns a full activity score (-Dsigmaflow.liquidity.activity)
+    private static final long ACTIVITY_TARGET = Long.getLong("sigmaflow.liquidity.activity", 1_000);
+    // Age at which a quote's score has halved (-Dsigmaflow.liquidity.halfLifeSeconds)
+    private static final double HALF_LIFE_NANOS = Long.getLong("sigmaflow.liquidity.halfLifeSeconds", 300) * 1e9;
+    private static final double SPREAD_WEIGHT = 0.5;
+    private static final double DEPTH_WEIGHT = 0.25;
+    private static final double ACTIVITY_WEIGHT = 0.25;
+
+    private double bid = Double.NaN;
+    private double ask = Double.NaN;
+    private long bidSize = -1;
+    private long askSize = -1;
+    private long volume = -1;
+    private long openInterest = -1;
+    private boolean halted;
+    // System.nanoTime of the latest bid or ask update; 0 before any
+    private long updatedNanos;
+
+    @Override
+    public synchronized void onTickPrice(int field, double price) {
+        // TWS sends -1 when there is no bid or ask
+        double value = price > 0 ? price : Double.NaN;
+        if (field == TickType.BID.index() || field == TickType.DELAYED_BID.index()) {
+            bid = value;
+            updatedNanos = System.nanoTime();
+        } else if (field == TickType.ASK.index() || field == TickType.DELAYED_ASK.index()) {
+            ask = value;
+            updatedNanos = System.nanoTime();
+        }
+    }
+
+    @Override
+    public synchronized void onTickSize(int field, long size) {
+        if (field == TickType.BID_SIZE.index() || field == TickType.DELAYED_BID_SIZE.index()) {
+            bidSize = size;
+            updatedNanos = System.nanoTime();
+        } else if (field == TickType.ASK_SIZE.index() || field == TickType.DELAYED_ASK_SIZE.index()) {
+            askSize = size;
+            updatedNanos = System.nanoTime();
+        } else if (field == TickType.VOLUME.index() || field == TickType.DELAYED_VOLUME.index()
+                || field == TickType.OPTION_CALL_VOLUME.index() || field == TickType.OPTION_PUT_VOLUME.index()) {
+            volume = size;
+        } else if (field == TickType.OPEN_INTEREST.index() || field == TickType.OPTION_CALL_OPEN_INTEREST.index()
+                || field == TickType.OPTION_PUT_OPEN_INTEREST.index()) {
+            openInterest = size;
+        }
+    }
+
+    @Override
+    public synchronized void onTickGeneric(int field, double value) {
+        if (field == TickType.HALTED.index()) {
+            // 0 = trading, 1 = halted, 2 = volatility halt
+            halted = value > 0;
+        }
+    }
+
+    /**
+     * @return The score of the quote as of now.
+     */
+    public synchronized double score() {
+        return score(System.nanoTime());
+    }
+
+    /**
+     * @return The score of the quote when it was received, without the staleness decay; that a quote is old is a
+     * reason to refresh it, not to stop requesting it.
+     */
+    public synchronized double quoteScore() {
+        return updatedNanos == 0 ? 0 : score(bid, ask, bidSize, askSize, volume, openInterest, halted, 0);
+    }
+
+    /**
+     * @return Whether a bid or ask has been received.
+     */
+    public synchronized boolean isQuoted() {
+        return updatedNanos != 0;
+    }
+
+    public synchronized double score(long nowNanos) {
+        if (updatedNanos == 0) {
+            return 0;
+        }
+        return score(bid, ask, bidSize, askSize, volume, openInterest, halted, nowNanos - updatedNanos);
+    }
+
+    /**
+     * Weighted mean of the spread, depth and activity scores, times the staleness decay. Sizes, volume and open
+     * interest below 0 are unknown and leave their score out of the mean.
+     *
+     * @return The score in [0, 1]; 0 without a two-sided quote or while halted.
+     */
+    public static double score(double bid, double ask, long bidSize, long askSize, long volume, long openInterest,
+                               boolean halted, long ageNanos) {
+        if (halted || !(bid > 0 && ask >= bid)) {
+            return 0;
+        }
+        double relativeSpread = (ask - bid) / ((bid + ask) / 2);
+        double weighted = SPREAD_WEIGHT * Math.max(0, 1 - relativeSpread / MAX_RELATIVE_SPREAD);
+        double weights = SPREAD_WEIGHT;
+        if (bidSize >= 0 && askSize >= 0) {
+            weighted += DEPTH_WEIGHT * logScore(Math.min(bidSize, askSize), DEPTH_TARGET);
+            weights += DEPTH_WEIGHT;
+        }
+        if (volume >= 0 || openInterest >= 0) {
+            weighted += ACTIVITY_WEIGHT * logScore(Math.max(0, volume) + Math.max(0, openInterest), ACTIVITY_TARGET);
+            weights += ACTIVITY_WEIGHT;
+        }
+        return weighted / weights * Math.pow(0.5, Math.max(0, ageNanos) / HALF_LIFE_NANOS);
+    }
+
+    /** Grows logarithmically from 0 at none to 1 at the target, so the first contracts count the most. */
+    private static double logScore(long value, long target) {
+        return Math.min(1, Math.log1p(value) / Math.log1p(target));
+    }
+
+    public synchronized double getRelativeSpread() {
+        return bid > 0 && ask >= bid ? (ask - bid) / ((bid + ask) / 2) : Double.NaN;
+    }
+
+    public synchronized long getOpenInterest() {
+        return openInterest;
+    }
+
+    public synchronized long getVolume() {
+        return volume;
+    }
+
+    /**
+     * @return Whether the latest bid or ask is older than the score's half-life, and so due for a refresh.
+     */
+    public synchronized boolean isStale(long nowNanos) {
+        return updatedNanos != 0 && nowNanos - updatedNanos > HALF_LIFE_NANOS;
+    }
+
+    /**
+     * @return Nanoseconds since the latest bid or ask update, or -1 before any.
+     */
+    public synchronized long ageNanos(long nowNanos) {
+        return updatedNanos == 0 ? -1 : nowNanos - updatedNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("bid %.2f x %d, ask %.2f x %d, volume %d, open interest %d%s", bid, bidSize, ask, askSize,
+                volume, openInterest, halted ? ", halted" : "");
+    }
+}
@@ -0,0 +1,11 @@
+package com.sigmaflow.data;
+
+/**
+ * Identity of an IB request for de-duplication: two requests with equal keys would return the same data.
+ *
+ * @param conId  The contract the request is for.
+ * @param type   The request type.
+ * @param params The request parameters that affect the result, e.g. duration, bar size and what to show.
+ */
+public record RequestKey(int conId, MarketData.RequestType type, String params) {
+}
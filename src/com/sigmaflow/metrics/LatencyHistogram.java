@@ -0,0 +1,29 @@
+package com.sigmaflow.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency histogram in nanoseconds. Recording is wait-free; the accumulated histogram is only touched by readers.
+ */
+public class LatencyHistogram {
+
+    private static final long MAX_TRACKABLE_NANOS = 60_000_000_000L;
+
+    private final Recorder recorder = new Recorder(MAX_TRACKABLE_NANOS, 3);
+    private final Histogram accumulated = new Histogram(MAX_TRACKABLE_NANOS, 3);
+    private Histogram interval;
+
+    public void record(long nanos) {
+        recorder.recordValue(Math.min(Math.max(nanos, 0), MAX_TRACKABLE_NANOS));
+    }
+
+    /**
+     * Folds everything recorded since the last call into the accumulated histogram and returns a copy of it.
+     */
+    public synchronized Histogram snapshot() {
+        interval = recorder.getIntervalHistogram(interval);
+        accumulated.add(interval);
+        return accumulated.copy();
+    }
+}
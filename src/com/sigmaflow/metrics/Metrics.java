@@ -0,0 +1,118 @@
+package com.sigmaflow.metrics;
+
+import com.sigmaflow.cache.ExpiringCache;
+import com.sigmaflow.cache.SingleFlight;
+import com.sigmaflow.data.MarketData;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide hot-path instrumentation: callback counts, stage latencies and request round-trip times.
+ * <p>
+ * Enabled with {@code -Dsigmaflow.metrics=true}. {@link #ENABLED} is a static final constant, so call sites guarded by
+ * {@code if (Metrics.ENABLED)} are removed by the JIT when metrics are off.
+ */
+public final class Metrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("sigmaflow.metrics");
+
+    /** EWrapper callback types counted on the EReader thread. */
+    public enum CallbackType {
+        TICK_PRICE,
+        TICK_SIZE,
+        TICK_STRING,
+        TICK_GENERIC,
+        TICK_OPTION_COMPUTATION,
+        CONTRACT_DETAILS,
+        SECURITY_DEFINITION_OPTION_PARAMETER,
+        HISTORICAL_DATA,
+        HISTORICAL_DATA_END,
+        REALTIME_BAR,
+        TICK_BY_TICK,
+        PROTOBUF,
+        ERROR
+    }
+
+    /** Pipeline stages measured from one event to the next. */
+    public enum Stage {
+        /** EWrapper tick callback (tick, real-time bar, tick-by-tick) entry until MarketData has applied the update. */
+        TICK_TO_UPDATE,
+        /** EWrapper request reply (historical bar, option chain parameters) entry until it has been applied. */
+        REPLY_TO_UPDATE,
+        /** Last MarketData update until the ranking signal is computed. */
+        UPDATE_TO_SIGNAL,
+        /** Ranking signal until the trade (order) is generated. */
+        SIGNAL_TO_ORDER
+    }
+
+    private static final LongAdder[] callbackCounts = new LongAdder[CallbackType.values().length];
+    private static final Map<Stage, LatencyHistogram> stageLatencies = new EnumMap<>(Stage.class);
+    private static final Map<MarketData.RequestType, LatencyHistogram> roundTripLatencies = new EnumMap<>(MarketData.RequestType.class);
+    private static final List<ExpiringCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+    private static final List<SingleFlight<?, ?>> singleFlights = new CopyOnWriteArrayList<>();
+
+    static {
+        for (int i = 0; i < callbackCounts.length; i++) {
+            callbackCounts[i] = new LongAdder();
+        }
+        for (Stage stage : Stage.values()) {
+            stageLatencies.put(stage, new LatencyHistogram());
+        }
+        for (MarketData.RequestType type : MarketData.RequestType.values()) {
+            roundTripLatencies.put(type, new LatencyHistogram());
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static void countCallback(CallbackType type) {
+        callbackCounts[type.ordinal()].increment();
+    }
+
+    public static void recordStage(Stage stage, long nanos) {
+        stageLatencies.get(stage).record(nanos);
+    }
+
+    public static void recordRoundTrip(MarketData.RequestType type, long nanos) {
+        roundTripLatencies.get(type).record(nanos);
+    }
+
+    public static long callbackCount(CallbackType type) {
+        return callbackCounts[type.ordinal()].sum();
+    }
+
+    public static LatencyHistogram stageLatency(Stage stage) {
+        return stageLatencies.get(stage);
+    }
+
+    public static LatencyHistogram roundTripLatency(MarketData.RequestType type) {
+        return roundTripLatencies.get(type);
+    }
+
+    /**
+     * Exports a cache's hit, miss and eviction counters.
+     */
+    public static void registerCache(ExpiringCache<?, ?> cache) {
+        caches.add(cache);
+    }
+
+    public static List<ExpiringCache<?, ?>> caches() {
+        return caches;
+    }
+
+    /**
+     * Exports how many requests were issued and how many joined an identical request in flight.
+     */
+    public static void registerSingleFlight(SingleFlight<?, ?> singleFlight) {
+        singleFlights.add(singleFlight);
+    }
+
+    public static List<SingleFlight<?, ?>> singleFlights() {
+        return singleFlights;
+    }
+}
@@ -0,0 +1,147 @@
+package com.sigmaflow.metrics;
+
+import com.sigmaflow.cache.ExpiringCache;
+import com.sigmaflow.cache.SingleFlight;
+import com.sigmaflow.data.MarketData;
+import com.sun.net.httpserver.HttpServer;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Serves {@link Metrics} in the Prometheus text exposition format on {@code http://127.0.0.1:<port>/metrics}.
+ * Latencies are exported as summaries in seconds.
+ */
+public class MetricsExporter {
+
+    private static final Logger logger = LogManager.getLogger(MetricsExporter.class);
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final HttpServer server;
+
+    private MetricsExporter(HttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Starts the endpoint when metrics are enabled. The port is read from {@code -Dsigmaflow.metrics.port}
+     * (default 9464).
+     *
+     * @return The running exporter, or null if metrics are disabled or the port cannot be bound.
+     */
+    public static MetricsExporter startIfEnabled() {
+        if (!Metrics.ENABLED) {
+            return null;
+        }
+        int port = Integer.getInteger("sigmaflow.metrics.port", 9464);
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            });
+            server.start();
+            logger.info("Metrics available at http://127.0.0.1:{}/metrics", port);
+            return new MetricsExporter(server);
+        } catch (IOException e) {
+            logger.error("Could not start metrics endpoint on port " + port, e);
+            return null;
+        }
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Renders all metrics in the Prometheus text format.
+     */
+    public static String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+
+        sb.append("# HELP sigmaflow_callbacks_total EWrapper callbacks received, by type.\n");
+        sb.append("# TYPE sigmaflow_callbacks_total counter\n");
+        for (Metrics.CallbackType type : Metrics.CallbackType.values()) {
+            sb.append("sigmaflow_callbacks_total{type=\"").append(type.name().toLowerCase(Locale.ROOT)).append("\"} ")
+                    .append(Metrics.callbackCount(type)).append('\n');
+        }
+
+        sb.append("# HELP sigmaflow_stage_latency_seconds Latency between pipeline stages.\n");
+        sb.append("# TYPE sigmaflow_stage_latency_seconds summary\n");
+        for (Metrics.Stage stage : Metrics.Stage.values()) {
+            appendSummary(sb, "sigmaflow_stage_latency_seconds", "stage", stage.name(), Metrics.stageLatency(stage).snapshot());
+        }
+
+        sb.append("# HELP sigmaflow_request_round_trip_seconds Time from issuing an IB request to its completion.\n");
+        sb.append("# TYPE sigmaflow_request_round_trip_seconds summary\n");
+        for (MarketData.RequestType type : MarketData.RequestType.values()) {
+            appendSummary(sb, "sigmaflow_request_round_trip_seconds", "request_type", type.name(),
+                    Metrics.roundTripLatency(type).snapshot());
+        }
+
+        if (!Metrics.caches().isEmpty()) {
+            sb.append("# HELP sigmaflow_cache_requests_total Cache lookups, by result.\n");
+            sb.append("# TYPE sigmaflow_cache_requests_total counter\n");
+            for (ExpiringCache<?, ?> cache : Metrics.caches()) {
+                appendCacheSample(sb, "sigmaflow_cache_requests_total", cache, "result", "hit", cache.hitCount());
+                appendCacheSample(sb, "sigmaflow_cache_requests_total", cache, "result", "miss", cache.missCount());
+                appendCacheSample(sb, "sigmaflow_cache_requests_total", cache, "result", "coalesced", cache.coalescedCount());
+            }
+            sb.append("# HELP sigmaflow_cache_evictions_total Cache entries removed, by cause.\n");
+            sb.append("# TYPE sigmaflow_cache_evictions_total counter\n");
+            for (ExpiringCache<?, ?> cache : Metrics.caches()) {
+                appendCacheSample(sb, "sigmaflow_cache_evictions_total", cache, "cause", "size", cache.sizeEvictionCount());
+                appendCacheSample(sb, "sigmaflow_cache_evictions_total", cache, "cause", "expired", cache.expirationCount());
+            }
+            sb.append("# HELP sigmaflow_cache_entries Current cache entries.\n");
+            sb.append("# TYPE sigmaflow_cache_entries gauge\n");
+            for (ExpiringCache<?, ?> cache : Metrics.caches()) {
+                sb.append("sigmaflow_cache_entries{cache=\"").append(cache.getName()).append("\"} ").append(cache.size()).append('\n');
+            }
+        }
+
+        if (!Metrics.singleFlights().isEmpty()) {
+            sb.append("# HELP sigmaflow_deduplicated_requests_total IB requests issued or joined to an identical one in flight.\n");
+            sb.append("# TYPE sigmaflow_deduplicated_requests_total counter\n");
+            for (SingleFlight<?, ?> flight : Metrics.singleFlights()) {
+                sb.append("sigmaflow_deduplicated_requests_total{flight=\"").append(flight.getName())
+                        .append("\",result=\"issued\"} ").append(flight.issuedCount()).append('\n');
+                sb.append("sigmaflow_deduplicated_requests_total{flight=\"").append(flight.getName())
+                        .append("\",result=\"coalesced\"} ").append(flight.coalescedCount()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendSummary(StringBuilder sb, String name, String labelName, String labelValue, Histogram histogram) {
+        String label = labelName + "=\"" + labelValue.toLowerCase(Locale.ROOT) + "\"";
+        for (double quantile : QUANTILES) {
+            sb.append(name).append('{').append(label).append(",quantile=\"").append(quantile).append("\"} ")
+                    .append(toSeconds(histogram.getValueAtPercentile(quantile * 100))).append('\n');
+        }
+        long count = histogram.getTotalCount();
+        sb.append(name).append("_sum{").append(label).append("} ").append(toSeconds(histogram.getMean() * count)).append('\n');
+        sb.append(name).append("_count{").append(label).append("} ").append(count).append('\n');
+    }
+
+    private static void appendCacheSample(StringBuilder sb, String name, ExpiringCache<?, ?> cache, String labelName,
+                                          String labelValue, long value) {
+        sb.append(name).append("{cache=\"").append(cache.getName()).append("\",").append(labelName).append("=\"")
+                .append(labelValue).append("\"} ").append(value).append('\n');
+    }
+
+    private static double toSeconds(double nanos) {
+        return nanos / 1e9;
+    }
+}
@@ -0,0 +1,142 @@
+package com.sigmaflow.report;
+
+import com.sigmaflow.analytics.MonteCarloResult;
+import com.sigmaflow.strategy.TradeCandidate;
+import com.sigmaflow.trading.Price;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes one CSV file per event type into a directory: {@code tickers.csv}, {@code statistics.csv} and
+ * {@code recommendations.csv}. Existing files are replaced.
+ */
+public class CsvReportSink implements ReportSink {
+
+    private final BufferedWriter tickers;
+    private final BufferedWriter statistics;
+    private final BufferedWriter recommendations;
+
+    public CsvReportSink(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        tickers = open(directory.resolve("tickers.csv"),
+                "ticker,company_name,primary_exchange,underlying_price,bar_count,first_bar_time,first_bar_close,"
+                        + "last_bar_time,last_bar_close,hv_first_date,hv_first,hv_last_date,hv_last,hv_points,"
+                        + "iv_first_date,iv_first,iv_last_date,iv_last,iv_points");
+        statistics = open(directory.resolve("statistics.csv"),
+                "ticker,industry_avg_iv,diff_a,diff_b,diff_c,sum,peer_group,peer_iv,peer_z,atm_iv,rr25,bf25,term_slope,intraday_rv,intraday_spread");
+        recommendations = open(directory.resolve("recommendations.csv"),
+                "ticker,direction,available,reason,expiration,strike,option_price,option_limit,option_quantity,"
+                        + "underlying_price,stock_limit,stock_quantity,mc_paths,mc_mean,mc_std_dev,mc_pop,mc_var95,mc_var99,mc_es95,mc_es99");
+    }
+
+    private static BufferedWriter open(Path file, String header) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        writer.write(header);
+        writer.newLine();
+        return writer;
+    }
+
+    @Override
+    public void tickerReport(TickerSnapshot s) {
+        VolatilitySummary hv = s.getHistoricalVolatility();
+        VolatilitySummary iv = s.getImpliedVolatility();
+        writeRow(tickers, s.getTicker(), s.getCompanyName(), s.getPrimaryExchange(), s.getUnderlyingPrice(),
+                s.getBarCount(), s.getFirstBarTime(), s.getFirstBarClose(), s.getLastBarTime(), s.getLastBarClose(),
+                hv.getFirstDate(), hv.getFirstValue(), hv.getLastDate(), hv.getLastValue(), hv.getDataPoints(),
+                iv.getFirstDate(), iv.getFirstValue(), iv.getLastDate(), iv.getLastValue(), iv.getDataPoints());
+    }
+
+    @Override
+    public void statisticsTable(StatisticsTable table) {
+        for (TradeCandidate row : table.getRows()) {
+            writeRow(statistics, row.getTicker(), table.getIndustryAvgImpVol(),
+                    row.getDiffA(), row.getDiffB(), row.getDiffC(), row.getSum(),
+                    row.getPeerGroup(), row.getPeerImpVol(), row.getPeerZScore(), row.getSurface().atmImpVol(),
+                    row.getSurface().riskReversal25(), row.getSurface().butterfly25(), row.getSurface().termSlope(),
+                    row.getIntradayRealizedVol(), row.getIntradaySpread());
+        }
+    }
+
+    @Override
+    public void tradeRecommendation(TradeRecommendation r) {
+        String direction = r.isLongVolatility() ? "LONG" : "SHORT";
+        if (!r.isAvailable()) {
+            writeRow(recommendations, r.getTicker(), direction, false, r.getUnavailableReason());
+            return;
+        }
+        MonteCarloResult mc = r.getSimulation();
+        writeRow(recommendations, r.getTicker(), direction, true, null, r.getExpiration(), r.getStrike(),
+                r.getOptionPrice(), Price.format(r.getOptionLimitPrice()), r.getOptionQuantity(),
+                r.getUnderlyingPrice(), Price.format(r.getStockLimitPrice()), r.getStockQuantity(),
+                mc.getPaths(), mc.getMean(), mc.getStdDev(), mc.getProbabilityOfProfit(),
+                mc.getValueAtRisk95(), mc.getValueAtRisk99(), mc.getExpectedShortfall95(), mc.getExpectedShortfall99());
+    }
+
+    private static void writeRow(BufferedWriter writer, Object... values) {
+        StringBuilder line = new StringBuilder(128);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append(escape(values[i]));
+        }
+        try {
+            writer.write(line.toString());
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Double d && d.isNaN()) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public void flush() {
+        try {
+            tickers.flush();
+            statistics.flush();
+            recommendations.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes all three files, even if one fails; the first failure is thrown.
+     */
+    @Override
+    public void close() {
+        IOException failure = null;
+        for (BufferedWriter writer : new BufferedWriter[]{tickers, statistics, recommendations}) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.sigmaflow.report;
+
+import com.sigmaflow.analytics.MonteCarloResult;
+import com.sigmaflow.strategy.TradeCandidate;
+import com.sigmaflow.trading.Price;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends one JSON object per event to a file, tagged with a {@code "type"} field. NaN values are written as null.
+ */
+public class JsonLinesReportSink implements ReportSink {
+
+    private final BufferedWriter writer;
+
+    public JsonLinesReportSink(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void tickerReport(TickerSnapshot s) {
+        JsonObject json = new JsonObject("ticker")
+                .field("ticker", s.getTicker())
+                .field("companyName", s.getCompanyName())
+                .field("primaryExchange", s.getPrimaryExchange())
+                .field("underlyingPrice", s.getUnderlyingPrice())
+                .field("barCount", s.getBarCount())
+                .field("firstBarTime", s.getFirstBarTime())
+                .field("firstBarClose", s.getFirstBarClose())
+                .field("lastBarTime", s.getLastBarTime())
+                .field("lastBarClose", s.getLastBarClose());
+        volatility(json, "historicalVolatility", s.getHistoricalVolatility());
+        volatility(json, "impliedVolatility", s.getImpliedVolatility());
+        json.field("optionChainSummary", s.getOptionChainSummary());
+        writeLine(json);
+    }
+
+    private static void volatility(JsonObject json, String name, VolatilitySummary summary) {
+        if (summary.isEmpty()) {
+            json.raw(name, "null");
+            return;
+        }
+        JsonObject nested = new JsonObject(null)
+                .field("firstDate", summary.getFirstDate())
+                .field("firstValue", summary.getFirstValue())
+                .field("lastDate", summary.getLastDate())
+                .field("lastValue", summary.getLastValue())
+                .field("dataPoints", summary.getDataPoints());
+        json.raw(name, nested.toString());
+    }
+
+    @Override
+    public void statisticsTable(StatisticsTable table) {
+        StringBuilder rows = new StringBuilder("[");
+        for (TradeCandidate row : table.getRows()) {
+            if (rows.length() > 1) {
+                rows.append(',');
+            }
+            rows.append(new JsonObject(null)
+                    .field("ticker", row.getTicker())
+                    .field("diffA", row.getDiffA())
+                    .field("diffB", row.getDiffB())
+                    .field("diffC", row.getDiffC())
+                    .field("sum", row.getSum())
+                    .field("peerGroup", row.getPeerGroup())
+                    .field("peerImpVol", row.getPeerImpVol())
+                    .field("peerZScore", row.getPeerZScore())
+                    .field("atmImpVol", row.getSurface().atmImpVol())
+                    .field("riskReversal25", row.getSurface().riskReversal25())
+                    .field("butterfly25", row.getSurface().butterfly25())
+                    .field("termSlope", row.getSurface().termSlope())
+                    .field("intradayRealizedVol", row.getIntradayRealizedVol())
+                    .field("intradaySpread", row.getIntradaySpread()));
+        }
+        rows.append(']');
+        writeLine(new JsonObject("statistics")
+                .field("industryAvgImpVol", table.getIndustryAvgImpVol())
+                .raw("rows", rows.toString()));
+    }
+
+    @Override
+    public void tradeRecommendation(TradeRecommendation r) {
+        JsonObject json = new JsonObject("recommendation")
+                .field("ticker", r.getTicker())
+                .field("direction", r.isLongVolatility() ? "LONG" : "SHORT")
+                .raw("available", Boolean.toString(r.isAvailable()));
+        if (!r.isAvailable()) {
+            writeLine(json.field("reason", r.getUnavailableReason()));
+            return;
+        }
+        MonteCarloResult mc = r.getSimulation();
+        json.field("expiration", r.getExpiration())
+                .field("strike", r.getStrike())
+                .field("optionPrice", r.getOptionPrice())
+                .raw("optionLimitPrice", Price.format(r.getOptionLimitPrice()))
+                .field("optionQuantity", r.getOptionQuantity())
+                .field("underlyingPrice", r.getUnderlyingPrice())
+                .raw("stockLimitPrice", Price.format(r.getStockLimitPrice()))
+                .field("stockQuantity", r.getStockQuantity())
+                .raw("simulation", new JsonObject(null)
+                        .field("paths", mc.getPaths())
+                        .field("mean", mc.getMean())
+                        .field("stdDev", mc.getStdDev())
+                        .field("probabilityOfProfit", mc.getProbabilityOfProfit())
+                        .field("valueAtRisk95", mc.getValueAtRisk95())
+                        .field("valueAtRisk99", mc.getValueAtRisk99())
+                        .field("expectedShortfall95", mc.getExpectedShortfall95())
+                        .field("expectedShortfall99", mc.getExpectedShortfall99())
+                        .toString());
+        writeLine(json);
+    }
+
+    private void writeLine(JsonObject json) {
+        try {
+            writer.write(json.toString());
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Minimal flat JSON object builder; values are numbers, strings or pre-rendered JSON.
+     */
+    private static final class JsonObject {
+
+        private final StringBuilder sb = new StringBuilder(256).append('{');
+
+        JsonObject(String type) {
+            if (type != null) {
+                field("type", type);
+            }
+        }
+
+        JsonObject field(String name, Object value) {
+            if (value == null) {
+                return raw(name, "null");
+            }
+            return raw(name, quote(value.toString()));
+        }
+
+        JsonObject field(String name, double value) {
+            return raw(name, Double.isFinite(value) ? Double.toString(value) : "null");
+        }
+
+        JsonObject field(String name, long value) {
+            return raw(name, Long.toString(value));
+        }
+
+        JsonObject raw(String name, String json) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append(quote(name)).append(':').append(json);
+            return this;
+        }
+
+        private static String quote(String text) {
+            StringBuilder out = new StringBuilder(text.length() + 2).append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"' -> out.append("\\\"");
+                    case '\\' -> out.append("\\\\");
+                    case '\n' -> out.append("\\n");
+                    case '\r' -> out.append("\\r");
+                    case '\t' -> out.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                    }
+                }
+            }
+            return out.append('"').toString();
+        }
+
+        @Override
+        public String toString() {
+            return sb + "}";
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.sigmaflow.report;
+
+/**
+ * An immutable report item published to the {@link ReportPublisher}.
+ */
+public interface ReportEvent {
+
+    /**
+     * Dispatches this event to the matching sink callback.
+     */
+    void renderTo(ReportSink sink);
+}
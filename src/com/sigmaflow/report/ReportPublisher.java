@@ -0,0 +1,136 @@
+package com.sigmaflow.report;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Renders report events on a dedicated daemon thread so that formatting, file I/O and any deferred computation
+ * (e.g. the Monte Carlo simulation behind a trade recommendation) never run on the EReader callback thread.
+ * Events are delivered to every sink in publish order; sinks are flushed whenever the queue drains.
+ */
+public class ReportPublisher implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ReportPublisher.class);
+
+    private static final Supplier<ReportEvent> SHUTDOWN = () -> null;
+
+    private final List<ReportSink> sinks = new CopyOnWriteArrayList<>();
+    private final LinkedBlockingQueue<Supplier<? extends ReportEvent>> queue = new LinkedBlockingQueue<>();
+    private final Thread renderer;
+    // Checked and set together with the enqueue, so that nothing is queued behind SHUTDOWN
+    private final Object lock = new Object();
+    // Guarded by lock
+    private boolean closed;
+
+    public ReportPublisher(ReportSink... sinks) {
+        this.sinks.addAll(List.of(sinks));
+        this.renderer = new Thread(this::run, "report-renderer");
+        this.renderer.setDaemon(true);
+        this.renderer.start();
+    }
+
+    public void addSink(ReportSink sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * Queues an already built event. Never blocks the caller.
+     */
+    public void publish(ReportEvent event) {
+        publishDeferred(() -> event);
+    }
+
+    /**
+     * Queues an event whose construction is itself expensive. The supplier runs on the renderer thread, in order with
+     * the other events; it must only touch data it captured or that is safe to read concurrently.
+     */
+    public void publishDeferred(Supplier<? extends ReportEvent> supplier) {
+        synchronized (lock) {
+            if (!closed) {
+                queue.add(supplier);
+                return;
+            }
+        }
+        logger.warn("Report publisher closed, dropping event");
+    }
+
+    private void run() {
+        while (true) {
+            Supplier<? extends ReportEvent> next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (next == SHUTDOWN) {
+                return;
+            }
+            render(next);
+            if (queue.isEmpty()) {
+                flushSinks();
+            }
+        }
+    }
+
+    private void render(Supplier<? extends ReportEvent> supplier) {
+        ReportEvent event;
+        try {
+            event = supplier.get();
+        } catch (RuntimeException e) {
+            logger.error("Failed to build report event", e);
+            return;
+        }
+        if (event == null) {
+            return;
+        }
+        for (ReportSink sink : sinks) {
+            try {
+                event.renderTo(sink);
+            } catch (RuntimeException e) {
+                logger.error("Report sink {} failed", sink.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    private void flushSinks() {
+        for (ReportSink sink : sinks) {
+            try {
+                sink.flush();
+            } catch (RuntimeException e) {
+                logger.error("Report sink {} failed to flush", sink.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    /**
+     * Renders everything already queued, then closes the sinks.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(SHUTDOWN);
+        }
+        try {
+            renderer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ReportSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (Exception e) {
+                logger.error("Report sink {} failed to close", sink.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
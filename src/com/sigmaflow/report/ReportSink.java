@@ -0,0 +1,24 @@
+package com.sigmaflow.report;
+
+/**
+ * Output target for report events. Sinks are only called from the report renderer thread.
+ */
+public interface ReportSink extends AutoCloseable {
+
+    void tickerReport(TickerSnapshot snapshot);
+
+    void statisticsTable(StatisticsTable table);
+
+    void tradeRecommendation(TradeRecommendation recommendation);
+
+    /**
+     * Called when the publish queue has been drained.
+     */
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+        flush();
+    }
+}
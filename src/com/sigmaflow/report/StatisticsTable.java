@@ -0,0 +1,91 @@
+package com.sigmaflow.report;
+
+import com.sigmaflow.analytics.PeerGroupStats;
+import com.sigmaflow.strategy.TradeCandidate;
+import com.sigmaflow.strategy.VolatilityArbitrage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Universe-wide ranking: the universe average implied volatility and one scored row per ticker.
+ */
+public class StatisticsTable implements ReportEvent {
+
+    private final double industryAvgImpVol;
+    private final List<TradeCandidate> rows;
+
+    public StatisticsTable(double industryAvgImpVol, List<TradeCandidate> rows) {
+        this.industryAvgImpVol = industryAvgImpVol;
+        this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+    }
+
+    /**
+     * Scores every snapshot against the average last implied volatility of all snapshots.
+     *
+     * @param snapshots Completed tickers, in display order.
+     * @param strategy  The ranking rules.
+     * @return The table with rows in the same order as the snapshots.
+     */
+    public static StatisticsTable from(List<TickerSnapshot> snapshots, VolatilityArbitrage strategy) {
+        double total = 0;
+        int count = 0;
+        for (TickerSnapshot snapshot : snapshots) {
+            if (!snapshot.getImpliedVolatility().isEmpty()) {
+                total += snapshot.getImpliedVolatility().getLastValue();
+                count++;
+            }
+        }
+        double industryAvgImpVol = count > 0 ? total / count : 0;
+
+        List<TradeCandidate> rows = new ArrayList<>(snapshots.size());
+        for (TickerSnapshot snapshot : snapshots) {
+            VolatilitySummary impVol = snapshot.getImpliedVolatility();
+            rows.add(strategy.score(snapshot.getTicker(), impVol.getFirstValue(), impVol.getLastValue(),
+                    snapshot.getHistoricalVolatility().getLastValue(), industryAvgImpVol).withSurface(snapshot.getSurface()));
+        }
+        return new StatisticsTable(industryAvgImpVol, rows);
+    }
+
+    /**
+     * Scores every snapshot against the median last implied volatility of its peer group (see
+     * {@link PeerGroupStats#peersOf}), so that e.g. biotech is not compared with mega-cap tech.
+     *
+     * @param snapshots Completed tickers, in display order.
+     * @param strategy  The ranking rules.
+     * @param peers     Last implied volatility of the completed tickers, by peer group.
+     * @return The table with rows in the same order as the snapshots.
+     */
+    public static StatisticsTable from(List<TickerSnapshot> snapshots, VolatilityArbitrage strategy, PeerGroupStats peers) {
+        double universeAvgImpVol = peers.universe().mean();
+        List<TradeCandidate> rows = new ArrayList<>(snapshots.size());
+        for (TickerSnapshot snapshot : snapshots) {
+            VolatilitySummary impVol = snapshot.getImpliedVolatility();
+            double histVol = snapshot.getHistoricalVolatility().getLastValue();
+            PeerGroupStats.Peers group = peers.peersOf(snapshot.getTicker());
+            if (group == null) {
+                rows.add(strategy.score(snapshot.getTicker(), impVol.getFirstValue(), impVol.getLastValue(), histVol,
+                        universeAvgImpVol).withSurface(snapshot.getSurface()));
+                continue;
+            }
+            rows.add(strategy.score(snapshot.getTicker(), impVol.getFirstValue(), impVol.getLastValue(), histVol,
+                    group.median()).withPeers(group.group(), group.median(), group.zScore(impVol.getLastValue()))
+                    .withSurface(snapshot.getSurface()));
+        }
+        return new StatisticsTable(Double.isNaN(universeAvgImpVol) ? 0 : universeAvgImpVol, rows);
+    }
+
+    @Override
+    public void renderTo(ReportSink sink) {
+        sink.statisticsTable(this);
+    }
+
+    public double getIndustryAvgImpVol() {
+        return industryAvgImpVol;
+    }
+
+    public List<TradeCandidate> getRows() {
+        return rows;
+    }
+}
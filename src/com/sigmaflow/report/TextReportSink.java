@@ -0,0 +1,163 @@
+package com.sigmaflow.report;
+
+import com.sigmaflow.analytics.MonteCarloResult;
+import com.sigmaflow.analytics.VolSurface;
+import com.sigmaflow.strategy.TradeCandidate;
+import com.sigmaflow.trading.Price;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Human readable console layout of the ticker reports, the final statistics table and the trade recommendations.
+ */
+public class TextReportSink implements ReportSink {
+
+    private static final DateTimeFormatter EXPIRATION_FORMAT = DateTimeFormatter.ofPattern("M/d/yyyy");
+
+    private final PrintStream out;
+    private final boolean ownsStream;
+
+    public TextReportSink(PrintStream out) {
+        this(out, false);
+    }
+
+    private TextReportSink(PrintStream out, boolean ownsStream) {
+        this.out = out;
+        this.ownsStream = ownsStream;
+    }
+
+    public static TextReportSink console() {
+        return new TextReportSink(System.out);
+    }
+
+    public static TextReportSink toFile(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        OutputStream stream = Files.newOutputStream(file);
+        return new TextReportSink(new PrintStream(stream, false, StandardCharsets.UTF_8), true);
+    }
+
+    @Override
+    public void tickerReport(TickerSnapshot snapshot) {
+        out.println("\n==================================================");
+        out.println("REPORT FOR TICKER: " + snapshot.getTicker());
+        out.println("==================================================");
+        out.println("1. Contract Details:");
+        out.println("   Company Name: " + snapshot.getCompanyName());
+        out.println("   Primary Exchange: " + snapshot.getPrimaryExchange());
+        out.println("--------------------------------------------------");
+        out.println("2. Historical Daily Prices (Last 30 Days):");
+        if (snapshot.getBarCount() > 0) {
+            out.println("   Total Bars: " + snapshot.getBarCount());
+            out.println("   First Bar: " + snapshot.getFirstBarTime() + " Close: " + snapshot.getFirstBarClose());
+            out.println("   Last Bar:  " + snapshot.getLastBarTime() + " Close: " + snapshot.getLastBarClose());
+        }
+        out.println("--------------------------------------------------");
+        printVolatility("3. Historical Volatility (30-day)", snapshot.getHistoricalVolatility());
+        out.println("--------------------------------------------------");
+        printVolatility("4. Implied Volatility (30-day)", snapshot.getImpliedVolatility());
+        out.println("--------------------------------------------------");
+        out.println("5. Underlying Option Chain (Filtered):");
+        out.println(snapshot.getOptionChainSummary());
+        out.println("==================================================\n");
+    }
+
+    private void printVolatility(String title, VolatilitySummary summary) {
+        if (summary.isEmpty()) {
+            out.println(title + ": N/A");
+            return;
+        }
+        out.println(title + ":");
+        out.println("   First Date: " + summary.getFirstDate() + " Value: " + summary.getFirstValue());
+        out.println("   Last Date:  " + summary.getLastDate() + " Value: " + summary.getLastValue());
+        out.println("   Data Points: " + summary.getDataPoints());
+    }
+
+    @Override
+    public void statisticsTable(StatisticsTable table) {
+        out.println("\n====================================================================================================");
+        out.println("FINAL STATISTICS TABLE");
+        out.println("====================================================================================================");
+        out.printf("%-10s | %-15s | %-15s | %-15s | %-15s | %-25s | %-8s | %-8s | %-8s | %-8s | %-8s | %-8s | %-8s%n", "Ticker", "Diff A (Last-First IV)", "Diff B (Last IV-HV)", "Diff C (Last IV-Peer IV)", "Sum", "Peer Group", "Peer Z", "ATM IV", "RR 25d", "BF 25d", "Term/30d", "Intra RV", "IV-RV");
+        out.println("----------------------------------------------------------------------------------------------------");
+        out.println("Industry Average Implied Volatility: " + table.getIndustryAvgImpVol());
+        out.println("----------------------------------------------------------------------------------------------------");
+        for (TradeCandidate row : table.getRows()) {
+            VolSurface.Summary surface = row.getSurface();
+            out.printf("%-10s | %-15.4f | %-15.4f | %-15.4f | %-15.4f | %-25s | %-8.2f | %-8.4f | %-8.4f | %-8.4f | %-8.4f | %-8.4f | %-8.4f%n", row.getTicker(),
+                    row.getDiffA(), row.getDiffB(), row.getDiffC(), row.getSum(),
+                    row.getPeerGroup() != null ? row.getPeerGroup() : "-", row.getPeerZScore(),
+                    surface.atmImpVol(), surface.riskReversal25(), surface.butterfly25(), surface.termSlope(),
+                    row.getIntradayRealizedVol(), row.getIntradaySpread());
+        }
+        out.println("====================================================================================================\n");
+    }
+
+    @Override
+    public void tradeRecommendation(TradeRecommendation recommendation) {
+        out.println("==================================================");
+        out.println("RECOMMENDED TRADE (" + (recommendation.isLongVolatility() ? "LONG" : "SHORT") + " VOLATILITY)");
+        out.println("==================================================");
+
+        if (!recommendation.isAvailable()) {
+            out.println(recommendation.getUnavailableReason());
+            return;
+        }
+
+        String ticker = recommendation.getTicker();
+        String expiration = recommendation.getExpiration().format(EXPIRATION_FORMAT);
+        double strike = recommendation.getStrike();
+        long optionPrice = recommendation.getOptionLimitPrice();
+        int optionQuantity = recommendation.getOptionQuantity();
+        long underlyingPrice = recommendation.getStockLimitPrice();
+        int stockQuantity = recommendation.getStockQuantity();
+        // Totals in whole dollars, rounded half up
+        long optionTotal = Price.roundToTick(Price.multiply(optionPrice, 100L * optionQuantity), Price.SCALE) / Price.SCALE;
+        long stockTotal = Price.roundToTick(Price.multiply(underlyingPrice, stockQuantity), Price.SCALE) / Price.SCALE;
+
+        if (recommendation.isLongVolatility()) {
+            out.printf("Buy Qty %d %s %s %.0f Call @ %s Total (%d)%n", optionQuantity, ticker, expiration, strike, Price.format(optionPrice), optionTotal);
+            out.printf("Sell Qty %d %s @ %s Total %d%n", stockQuantity, ticker, Price.format(underlyingPrice), stockTotal);
+        } else {
+            out.printf("Sell Qty %d %s %s %.0f Call @ %s Total %d%n", optionQuantity, ticker, expiration, strike, Price.format(optionPrice), optionTotal);
+            out.printf("Buy Qty %d %s @ %s Total (%d)%n", stockQuantity, ticker, Price.format(underlyingPrice), stockTotal);
+        }
+        out.println("--------------------------------------------------");
+
+        MonteCarloResult simulation = recommendation.getSimulation();
+        out.printf("Scenario Analysis (Monte Carlo, %d paths, %d ms):%n", simulation.getPaths(), simulation.getElapsedNanos() / 1_000_000);
+        out.printf("Expected P&L: %.2f, Std Dev: %.2f, Probability of Profit: %.1f%%%n",
+                simulation.getMean(), simulation.getStdDev(), simulation.getProbabilityOfProfit() * 100);
+        out.printf("VaR 95%%: %.2f, VaR 99%%: %.2f%n", simulation.getValueAtRisk95(), simulation.getValueAtRisk99());
+        out.printf("Expected Shortfall 95%%: %.2f, Expected Shortfall 99%%: %.2f%n",
+                simulation.getExpectedShortfall95(), simulation.getExpectedShortfall99());
+        double[] levels = MonteCarloResult.getPercentileLevels();
+        double[] percentiles = simulation.getPercentiles();
+        for (int i = 0; i < levels.length; i++) {
+            out.printf("P&L %2.0fth percentile: %.2f%n", levels[i] * 100, percentiles[i]);
+        }
+        out.println("==================================================");
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        if (ownsStream) {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+}
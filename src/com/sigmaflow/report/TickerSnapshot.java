@@ -0,0 +1,111 @@
+package com.sigmaflow.report;
+
+import com.sigmaflow.analytics.VolSurface;
+
+/**
+ * Immutable per-ticker view taken when a ticker's data is complete. Everything the renderer and the ranking need is
+ * copied out of the live maps, so the snapshot can be handed to another thread.
+ * Missing values are null (strings) or NaN (numbers).
+ */
+public class TickerSnapshot implements ReportEvent {
+
+    private final String ticker;
+    private final String companyName;
+    private final String primaryExchange;
+    private final double underlyingPrice;
+    private final int barCount;
+    private final String firstBarTime;
+    private final double firstBarClose;
+    private final String lastBarTime;
+    private final double lastBarClose;
+    private final VolatilitySummary historicalVolatility;
+    private final VolatilitySummary impliedVolatility;
+    private final String optionChainSummary;
+    private final VolSurface.Summary surface;
+    private final double intradayRealizedVol;
+
+    public TickerSnapshot(String ticker, String companyName, String primaryExchange, double underlyingPrice,
+                          int barCount, String firstBarTime, double firstBarClose, String lastBarTime, double lastBarClose,
+                          VolatilitySummary historicalVolatility, VolatilitySummary impliedVolatility, String optionChainSummary,
+                          VolSurface.Summary surface, double intradayRealizedVol) {
+        this.ticker = ticker;
+        this.companyName = companyName;
+        this.primaryExchange = primaryExchange;
+        this.underlyingPrice = underlyingPrice;
+        this.barCount = barCount;
+        this.firstBarTime = firstBarTime;
+        this.firstBarClose = firstBarClose;
+        this.lastBarTime = lastBarTime;
+        this.lastBarClose = lastBarClose;
+        this.historicalVolatility = historicalVolatility;
+        this.impliedVolatility = impliedVolatility;
+        this.optionChainSummary = optionChainSummary;
+        this.surface = surface;
+        this.intradayRealizedVol = intradayRealizedVol;
+    }
+
+    @Override
+    public void renderTo(ReportSink sink) {
+        sink.tickerReport(this);
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    public String getCompanyName() {
+        return companyName;
+    }
+
+    public String getPrimaryExchange() {
+        return primaryExchange;
+    }
+
+    public double getUnderlyingPrice() {
+        return underlyingPrice;
+    }
+
+    public int getBarCount() {
+        return barCount;
+    }
+
+    public String getFirstBarTime() {
+        return firstBarTime;
+    }
+
+    public double getFirstBarClose() {
+        return firstBarClose;
+    }
+
+    public String getLastBarTime() {
+        return lastBarTime;
+    }
+
+    public double getLastBarClose() {
+        return lastBarClose;
+    }
+
+    /** Historical volatility series summary; never null, possibly empty. */
+    public VolatilitySummary getHistoricalVolatility() {
+        return historicalVolatility;
+    }
+
+    /** Implied volatility series summary; never null, possibly empty. */
+    public VolatilitySummary getImpliedVolatility() {
+        return impliedVolatility;
+    }
+
+    public String getOptionChainSummary() {
+        return optionChainSummary;
+    }
+
+    /** Term structure and skew of the option chain; never null, possibly empty. */
+    public VolSurface.Summary getSurface() {
+        return surface;
+    }
+
+    /** Annualized realized volatility of the intraday stream's 5-minute bars; NaN if not streamed or too few bars. */
+    public double getIntradayRealizedVol() {
+        return intradayRealizedVol;
+    }
+}
@@ -0,0 +1,125 @@
+package com.sigmaflow.report;
+
+import com.sigmaflow.analytics.MonteCarloResult;
+
+import java.time.LocalDate;
+
+/**
+ * A recommended option + stock trade with its simulated P&L, or the reason no trade could be built.
+ */
+public class TradeRecommendation implements ReportEvent {
+
+    private final String ticker;
+    private final boolean longVolatility;
+    private final String unavailableReason;
+    private final LocalDate expiration;
+    private final double strike;
+    private final double optionPrice;
+    private final long optionLimitPrice;
+    private final int optionQuantity;
+    private final double underlyingPrice;
+    private final long stockLimitPrice;
+    private final int stockQuantity;
+    private final MonteCarloResult simulation;
+
+    private TradeRecommendation(String ticker, boolean longVolatility, String unavailableReason, LocalDate expiration,
+                                double strike, double optionPrice, long optionLimitPrice, int optionQuantity,
+                                double underlyingPrice, long stockLimitPrice, int stockQuantity,
+                                MonteCarloResult simulation) {
+        this.ticker = ticker;
+        this.longVolatility = longVolatility;
+        this.unavailableReason = unavailableReason;
+        this.expiration = expiration;
+        this.strike = strike;
+        this.optionPrice = optionPrice;
+        this.optionLimitPrice = optionLimitPrice;
+        this.optionQuantity = optionQuantity;
+        this.underlyingPrice = underlyingPrice;
+        this.stockLimitPrice = stockLimitPrice;
+        this.stockQuantity = stockQuantity;
+        this.simulation = simulation;
+    }
+
+    /**
+     * @param optionPrice      Model price of one call.
+     * @param optionLimitPrice Limit price of the calls, on a valid tick, as a fixed-point {@code Price}.
+     * @param optionQuantity   Number of call contracts.
+     * @param stockLimitPrice  Limit price of the hedge, on a valid tick, as a fixed-point {@code Price}.
+     * @param stockQuantity    Number of hedge shares.
+     */
+    public static TradeRecommendation of(String ticker, boolean longVolatility, LocalDate expiration, double strike,
+                                         double optionPrice, long optionLimitPrice, int optionQuantity,
+                                         double underlyingPrice, long stockLimitPrice, int stockQuantity,
+                                         MonteCarloResult simulation) {
+        return new TradeRecommendation(ticker, longVolatility, null, expiration, strike, optionPrice, optionLimitPrice,
+                optionQuantity, underlyingPrice, stockLimitPrice, stockQuantity, simulation);
+    }
+
+    public static TradeRecommendation unavailable(String ticker, boolean longVolatility, String reason) {
+        return new TradeRecommendation(ticker, longVolatility, reason, null, Double.NaN, Double.NaN, 0, 0, Double.NaN,
+                0, 0, null);
+    }
+
+    @Override
+    public void renderTo(ReportSink sink) {
+        sink.tradeRecommendation(this);
+    }
+
+    public boolean isAvailable() {
+        return unavailableReason == null;
+    }
+
+    public String getUnavailableReason() {
+        return unavailableReason;
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    public boolean isLongVolatility() {
+        return longVolatility;
+    }
+
+    public LocalDate getExpiration() {
+        return expiration;
+    }
+
+    public double getStrike() {
+        return strike;
+    }
+
+    public double getOptionPrice() {
+        return optionPrice;
+    }
+
+    /**
+     * @return The option limit price as a fixed-point {@code Price}.
+     */
+    public long getOptionLimitPrice() {
+        return optionLimitPrice;
+    }
+
+    public int getOptionQuantity() {
+        return optionQuantity;
+    }
+
+    public double getUnderlyingPrice() {
+        return underlyingPrice;
+    }
+
+    /**
+     * @return The stock limit price as a fixed-point {@code Price}.
+     */
+    public long getStockLimitPrice() {
+        return stockLimitPrice;
+    }
+
+    public int getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public MonteCarloResult getSimulation() {
+        return simulation;
+    }
+}
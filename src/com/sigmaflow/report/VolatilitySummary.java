@@ -0,0 +1,62 @@
+package com.sigmaflow.report;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+
+/**
+ * First and last point of a dated volatility series, plus its size.
+ */
+public class VolatilitySummary {
+
+    private static final VolatilitySummary EMPTY = new VolatilitySummary(null, Double.NaN, null, Double.NaN, 0);
+
+    private final LocalDate firstDate;
+    private final double firstValue;
+    private final LocalDate lastDate;
+    private final double lastValue;
+    private final int dataPoints;
+
+    public VolatilitySummary(LocalDate firstDate, double firstValue, LocalDate lastDate, double lastValue, int dataPoints) {
+        this.firstDate = firstDate;
+        this.firstValue = firstValue;
+        this.lastDate = lastDate;
+        this.lastValue = lastValue;
+        this.dataPoints = dataPoints;
+    }
+
+    /**
+     * @param series Volatility keyed by date (may be null).
+     * @return The summary, or an empty summary if the series has no data.
+     */
+    public static VolatilitySummary of(NavigableMap<LocalDate, Double> series) {
+        if (series == null || series.isEmpty()) {
+            return EMPTY;
+        }
+        return new VolatilitySummary(series.firstKey(), series.firstEntry().getValue(),
+                series.lastKey(), series.lastEntry().getValue(), series.size());
+    }
+
+    public boolean isEmpty() {
+        return dataPoints == 0;
+    }
+
+    public LocalDate getFirstDate() {
+        return firstDate;
+    }
+
+    public double getFirstValue() {
+        return firstValue;
+    }
+
+    public LocalDate getLastDate() {
+        return lastDate;
+    }
+
+    public double getLastValue() {
+        return lastValue;
+    }
+
+    public int getDataPoints() {
+        return dataPoints;
+    }
+}
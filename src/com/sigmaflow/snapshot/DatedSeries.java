@@ -0,0 +1,90 @@
+package com.sigmaflow.snapshot;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A date-ordered series of doubles stored as parallel primitive arrays (epoch day, value).
+ */
+public class DatedSeries {
+
+    public static final DatedSeries EMPTY = new DatedSeries(new int[0], new double[0]);
+
+    private final int[] epochDays;
+    private final double[] values;
+
+    public DatedSeries(int[] epochDays, double[] values) {
+        if (epochDays.length != values.length) {
+            throw new IllegalArgumentException("Dates and values differ in length: " + epochDays.length + " != " + values.length);
+        }
+        this.epochDays = epochDays;
+        this.values = values;
+    }
+
+    /**
+     * @param series Values keyed by date (may be null).
+     * @return The series in key order, or {@link #EMPTY}.
+     */
+    public static DatedSeries of(NavigableMap<LocalDate, Double> series) {
+        if (series == null || series.isEmpty()) {
+            return EMPTY;
+        }
+        int[] epochDays = new int[series.size()];
+        double[] values = new double[epochDays.length];
+        int i = 0;
+        for (Map.Entry<LocalDate, Double> entry : series.entrySet()) {
+            if (i == epochDays.length) {
+                break; // the map grew while being copied
+            }
+            epochDays[i] = (int) entry.getKey().toEpochDay();
+            values[i] = entry.getValue();
+            i++;
+        }
+        if (i < epochDays.length) {
+            return new DatedSeries(Arrays.copyOf(epochDays, i), Arrays.copyOf(values, i));
+        }
+        return new DatedSeries(epochDays, values);
+    }
+
+    /**
+     * @return A mutable, concurrent copy keyed by date, as held by {@code MarketData}.
+     */
+    public ConcurrentSkipListMap<LocalDate, Double> toMap() {
+        ConcurrentSkipListMap<LocalDate, Double> map = new ConcurrentSkipListMap<>();
+        for (int i = 0; i < epochDays.length; i++) {
+            map.put(LocalDate.ofEpochDay(epochDays[i]), values[i]);
+        }
+        return map;
+    }
+
+    public int size() {
+        return epochDays.length;
+    }
+
+    public boolean isEmpty() {
+        return epochDays.length == 0;
+    }
+
+    public int epochDay(int i) {
+        return epochDays[i];
+    }
+
+    public LocalDate date(int i) {
+        return LocalDate.ofEpochDay(epochDays[i]);
+    }
+
+    public double value(int i) {
+        return values[i];
+    }
+
+    int[] epochDays() {
+        return epochDays;
+    }
+
+    double[] values() {
+        return values;
+    }
+}
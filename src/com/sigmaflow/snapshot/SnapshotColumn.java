@@ -0,0 +1,75 @@
+package com.sigmaflow.snapshot;
+
+/**
+ * Columns of a snapshot file. Ids are part of the file format and must never be reused; readers skip ids they do
+ * not know.
+ * <p>
+ * Encodings (little-endian, every column body starts 8-byte aligned):
+ * <ul>
+ *   <li>{@code INT32}, {@code INT64}, {@code FLOAT64}: one value per ticker.</li>
+ *   <li>{@code STRING}: {@code rows x (int32 start, int32 length)} into the UTF-8 bytes that follow;
+ *       a length of -1 marks null.</li>
+ *   <li>{@code LIST_INT32}, {@code LIST_FLOAT64}: {@code int32[rows + 1]} element offsets, padded to 8 bytes,
+ *       then the concatenated values of every ticker.</li>
+ * </ul>
+ */
+public enum SnapshotColumn {
+    TICKER(1, Type.STRING),
+    COMPANY_NAME(2, Type.STRING),
+    PRIMARY_EXCHANGE(3, Type.STRING),
+    CON_ID(4, Type.INT32),
+    UNDERLYING_PRICE(5, Type.FLOAT64),
+    CLOSE_DATES(6, Type.LIST_INT32),
+    CLOSE_VALUES(7, Type.LIST_FLOAT64),
+    HV_DATES(8, Type.LIST_INT32),
+    HV_VALUES(9, Type.LIST_FLOAT64),
+    IV_DATES(10, Type.LIST_INT32),
+    IV_VALUES(11, Type.LIST_FLOAT64),
+    STRIKES(12, Type.LIST_FLOAT64),
+    EXPIRATIONS(13, Type.LIST_INT32),
+    OPTION_CHAIN_SUMMARY(14, Type.STRING),
+    DIFF_A(15, Type.FLOAT64),
+    DIFF_B(16, Type.FLOAT64),
+    DIFF_C(17, Type.FLOAT64),
+    SCORE(18, Type.FLOAT64),
+    CONTRACT_FETCHED_AT(19, Type.INT64),
+    CHAIN_FETCHED_AT(20, Type.INT64),
+    CATEGORY(21, Type.STRING),
+    INDUSTRY(22, Type.STRING),
+    VALID_EXCHANGES(23, Type.STRING),
+    MARKET_RULE_IDS(24, Type.STRING);
+
+    public enum Type {
+        INT32,
+        INT64,
+        FLOAT64,
+        STRING,
+        LIST_INT32,
+        LIST_FLOAT64
+    }
+
+    private final int id;
+    private final Type type;
+
+    SnapshotColumn(int id, Type type) {
+        this.id = id;
+        this.type = type;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    static SnapshotColumn byId(int id) {
+        for (SnapshotColumn column : values()) {
+            if (column.id == id) {
+                return column;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,252 @@
+package com.sigmaflow.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory-maps a snapshot written by {@link SnapshotWriter}. Scalar columns are read straight from the mapping;
+ * nothing is decoded until asked for. The mapping stays valid after the file channel is closed and is released
+ * when the reader is garbage collected.
+ */
+public class SnapshotReader {
+
+    private final MappedByteBuffer buffer;
+    private final int rowCount;
+    private final long createdEpochMillis;
+    private final int[] columnOffsets = new int[SnapshotColumn.values().length];
+    private final Map<String, Integer> rowsByTicker;
+
+    private SnapshotReader(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < SnapshotWriter.HEADER_BYTES || buffer.getInt(0) != SnapshotWriter.MAGIC) {
+            throw new IOException("Not a snapshot file");
+        }
+        short version = buffer.getShort(4);
+        if (version != SnapshotWriter.VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        int columnCount = buffer.getShort(6);
+        this.rowCount = buffer.getInt(8);
+        this.createdEpochMillis = buffer.getLong(16);
+
+        Arrays.fill(columnOffsets, -1);
+        for (int c = 0; c < columnCount; c++) {
+            int entry = SnapshotWriter.HEADER_BYTES + c * SnapshotWriter.DIRECTORY_ENTRY_BYTES;
+            SnapshotColumn column = SnapshotColumn.byId(buffer.getInt(entry));
+            if (column == null) {
+                continue;
+            }
+            if (buffer.getInt(entry + 4) != column.type().ordinal()) {
+                throw new IOException("Column " + column + " has unexpected type " + buffer.getInt(entry + 4));
+            }
+            long offset = buffer.getLong(entry + 8);
+            long length = buffer.getLong(entry + 16);
+            if (offset + length > buffer.capacity()) {
+                throw new IOException("Column " + column + " extends past end of file");
+            }
+            columnOffsets[column.ordinal()] = (int) offset;
+        }
+        if (columnOffsets[SnapshotColumn.TICKER.ordinal()] < 0) {
+            throw new IOException("Snapshot has no ticker column");
+        }
+
+        this.rowsByTicker = new HashMap<>(rowCount * 2);
+        for (int row = 0; row < rowCount; row++) {
+            rowsByTicker.put(getString(SnapshotColumn.TICKER, row), row);
+        }
+    }
+
+    /**
+     * @param file The snapshot file.
+     * @return A reader over a read-only mapping of the file.
+     * @throws IOException If the file cannot be mapped or is not a valid snapshot.
+     */
+    public static SnapshotReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new SnapshotReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public long createdEpochMillis() {
+        return createdEpochMillis;
+    }
+
+    /**
+     * @return The row of the ticker, or -1 if it is not in the snapshot.
+     */
+    public int indexOf(String ticker) {
+        Integer row = rowsByTicker.get(ticker);
+        return row != null ? row : -1;
+    }
+
+    public boolean hasColumn(SnapshotColumn column) {
+        return columnOffsets[column.ordinal()] >= 0;
+    }
+
+    public String ticker(int row) {
+        return getString(SnapshotColumn.TICKER, row);
+    }
+
+    public double underlyingPrice(int row) {
+        return getDouble(SnapshotColumn.UNDERLYING_PRICE, row);
+    }
+
+    public double score(int row) {
+        return getDouble(SnapshotColumn.SCORE, row);
+    }
+
+    /**
+     * @return The value, or 0 if the column is absent.
+     */
+    public int getInt(SnapshotColumn column, int row) {
+        checkType(column, SnapshotColumn.Type.INT32);
+        int base = columnOffsets[column.ordinal()];
+        return base < 0 ? 0 : buffer.getInt(base + 4 * checkRow(row));
+    }
+
+    /**
+     * @return The value, or 0 if the column is absent.
+     */
+    public long getLong(SnapshotColumn column, int row) {
+        checkType(column, SnapshotColumn.Type.INT64);
+        int base = columnOffsets[column.ordinal()];
+        return base < 0 ? 0 : buffer.getLong(base + 8 * checkRow(row));
+    }
+
+    /**
+     * @return The value, or NaN if the column is absent.
+     */
+    public double getDouble(SnapshotColumn column, int row) {
+        checkType(column, SnapshotColumn.Type.FLOAT64);
+        int base = columnOffsets[column.ordinal()];
+        return base < 0 ? Double.NaN : buffer.getDouble(base + 8 * checkRow(row));
+    }
+
+    /**
+     * @return The value, or null if it or the column is absent.
+     */
+    public String getString(SnapshotColumn column, int row) {
+        checkType(column, SnapshotColumn.Type.STRING);
+        int base = columnOffsets[column.ordinal()];
+        if (base < 0) {
+            return null;
+        }
+        int entry = base + 8 * checkRow(row);
+        int length = buffer.getInt(entry + 4);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(base + 8 * rowCount + buffer.getInt(entry), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The list values of a row, or an empty array if the column is absent.
+     */
+    public int[] getIntList(SnapshotColumn column, int row) {
+        checkType(column, SnapshotColumn.Type.LIST_INT32);
+        int base = columnOffsets[column.ordinal()];
+        if (base < 0) {
+            return new int[0];
+        }
+        int start = buffer.getInt(base + 4 * checkRow(row));
+        int end = buffer.getInt(base + 4 * (row + 1));
+        int[] values = new int[end - start];
+        int data = base + (int) SnapshotWriter.align(4L * (rowCount + 1));
+        buffer.slice(data + 4 * start, 4 * values.length).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * @return The list values of a row, or an empty array if the column is absent.
+     */
+    public double[] getDoubleList(SnapshotColumn column, int row) {
+        checkType(column, SnapshotColumn.Type.LIST_FLOAT64);
+        int base = columnOffsets[column.ordinal()];
+        if (base < 0) {
+            return new double[0];
+        }
+        int start = buffer.getInt(base + 4 * checkRow(row));
+        int end = buffer.getInt(base + 4 * (row + 1));
+        double[] values = new double[end - start];
+        int data = base + (int) SnapshotWriter.align(4L * (rowCount + 1));
+        buffer.slice(data + 8 * start, 8 * values.length).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values);
+        return values;
+    }
+
+    private DatedSeries getSeries(SnapshotColumn dates, SnapshotColumn values, int row) {
+        int[] epochDays = getIntList(dates, row);
+        if (epochDays.length == 0) {
+            return DatedSeries.EMPTY;
+        }
+        return new DatedSeries(epochDays, getDoubleList(values, row));
+    }
+
+    /**
+     * Decodes every column of a row.
+     */
+    public TickerState state(int row) {
+        return new TickerState(
+                ticker(row),
+                getString(SnapshotColumn.COMPANY_NAME, row),
+                getString(SnapshotColumn.PRIMARY_EXCHANGE, row),
+                getString(SnapshotColumn.CATEGORY, row),
+                getString(SnapshotColumn.INDUSTRY, row),
+                getString(SnapshotColumn.VALID_EXCHANGES, row),
+                getString(SnapshotColumn.MARKET_RULE_IDS, row),
+                getInt(SnapshotColumn.CON_ID, row),
+                underlyingPrice(row),
+                getSeries(SnapshotColumn.CLOSE_DATES, SnapshotColumn.CLOSE_VALUES, row),
+                getSeries(SnapshotColumn.HV_DATES, SnapshotColumn.HV_VALUES, row),
+                getSeries(SnapshotColumn.IV_DATES, SnapshotColumn.IV_VALUES, row),
+                getDoubleList(SnapshotColumn.STRIKES, row),
+                getIntList(SnapshotColumn.EXPIRATIONS, row),
+                getString(SnapshotColumn.OPTION_CHAIN_SUMMARY, row),
+                getDouble(SnapshotColumn.DIFF_A, row),
+                getDouble(SnapshotColumn.DIFF_B, row),
+                getDouble(SnapshotColumn.DIFF_C, row),
+                score(row),
+                getLong(SnapshotColumn.CONTRACT_FETCHED_AT, row),
+                getLong(SnapshotColumn.CHAIN_FETCHED_AT, row));
+    }
+
+    /**
+     * Decodes every row.
+     */
+    public List<TickerState> states() {
+        List<TickerState> states = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            states.add(state(row));
+        }
+        return states;
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range [0, " + rowCount + ")");
+        }
+        return row;
+    }
+
+    private static void checkType(SnapshotColumn column, SnapshotColumn.Type expected) {
+        if (column.type() != expected) {
+            throw new IllegalArgumentException("Column " + column + " is " + column.type() + ", not " + expected);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.sigmaflow.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Writes per-ticker state as a columnar binary snapshot.
+ * <p>
+ * File layout (little-endian):
+ * <pre>
+ *   header     int32 magic, int16 version, int16 columnCount, int32 rowCount, int32 reserved, int64 createdEpochMillis
+ *   directory  columnCount x (int32 columnId, int32 type, int64 offset, int64 length)
+ *   bodies     one per column, each 8-byte aligned, encoded as described in {@link SnapshotColumn}
+ * </pre>
+ * The whole file is assembled in one direct buffer and written through a {@link FileChannel} to a temporary file
+ * that is then atomically moved into place, so readers never observe a partial snapshot.
+ */
+public final class SnapshotWriter {
+
+    static final int MAGIC = 0x534E4653; // "SFNS"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 24;
+    static final int DIRECTORY_ENTRY_BYTES = 24;
+
+    private SnapshotWriter() {
+    }
+
+    /**
+     * @param file   The snapshot file, replaced if it exists.
+     * @param states The tickers to write, in row order.
+     * @return The number of bytes written.
+     * @throws IOException If the file cannot be written.
+     */
+    public static long write(Path file, List<TickerState> states) throws IOException {
+        return write(file, states, System.currentTimeMillis());
+    }
+
+    public static long write(Path file, List<TickerState> states, long createdEpochMillis) throws IOException {
+        ColumnBody[] bodies = new ColumnBody[SnapshotColumn.values().length];
+        for (SnapshotColumn column : SnapshotColumn.values()) {
+            bodies[column.ordinal()] = body(column, states);
+        }
+
+        long offset = align(HEADER_BYTES + (long) bodies.length * DIRECTORY_ENTRY_BYTES);
+        long[] offsets = new long[bodies.length];
+        for (int c = 0; c < bodies.length; c++) {
+            offsets[c] = offset;
+            offset = align(offset + bodies[c].size());
+        }
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot too large: " + offset + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) offset).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) bodies.length)
+                .putInt(states.size())
+                .putInt(0)
+                .putLong(createdEpochMillis);
+        for (SnapshotColumn column : SnapshotColumn.values()) {
+            int c = column.ordinal();
+            buffer.putInt(column.id())
+                    .putInt(column.type().ordinal())
+                    .putLong(offsets[c])
+                    .putLong(bodies[c].size());
+        }
+        for (int c = 0; c < bodies.length; c++) {
+            buffer.position((int) offsets[c]);
+            bodies[c].writeTo(buffer);
+        }
+        buffer.position(0).limit((int) offset);
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return offset;
+    }
+
+    static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static ColumnBody body(SnapshotColumn column, List<TickerState> states) {
+        return switch (column) {
+            case TICKER -> strings(states, TickerState::getTicker);
+            case COMPANY_NAME -> strings(states, TickerState::getCompanyName);
+            case PRIMARY_EXCHANGE -> strings(states, TickerState::getPrimaryExchange);
+            case CATEGORY -> strings(states, TickerState::getCategory);
+            case INDUSTRY -> strings(states, TickerState::getIndustry);
+            case VALID_EXCHANGES -> strings(states, TickerState::getValidExchanges);
+            case MARKET_RULE_IDS -> strings(states, TickerState::getMarketRuleIds);
+            case CON_ID -> ints(states, TickerState::getConId);
+            case UNDERLYING_PRICE -> doubles(states, TickerState::getUnderlyingPrice);
+            case CLOSE_DATES -> intLists(states, s -> s.getCloses().epochDays());
+            case CLOSE_VALUES -> doubleLists(states, s -> s.getCloses().values());
+            case HV_DATES -> intLists(states, s -> s.getHistoricalVolatility().epochDays());
+            case HV_VALUES -> doubleLists(states, s -> s.getHistoricalVolatility().values());
+            case IV_DATES -> intLists(states, s -> s.getImpliedVolatility().epochDays());
+            case IV_VALUES -> doubleLists(states, s -> s.getImpliedVolatility().values());
+            case STRIKES -> doubleLists(states, TickerState::getStrikes);
+            case EXPIRATIONS -> intLists(states, TickerState::getExpirationDays);
+            case OPTION_CHAIN_SUMMARY -> strings(states, TickerState::getOptionChainSummary);
+            case DIFF_A -> doubles(states, TickerState::getDiffA);
+            case DIFF_B -> doubles(states, TickerState::getDiffB);
+            case DIFF_C -> doubles(states, TickerState::getDiffC);
+            case SCORE -> doubles(states, TickerState::getScore);
+            case CONTRACT_FETCHED_AT -> longs(states, TickerState::getContractFetchedAt);
+            case CHAIN_FETCHED_AT -> longs(states, TickerState::getChainFetchedAt);
+        };
+    }
+
+    private interface ColumnBody {
+        long size();
+
+        void writeTo(ByteBuffer buffer);
+    }
+
+    private static ColumnBody ints(List<TickerState> states, ToIntFunction<TickerState> getter) {
+        return new ColumnBody() {
+            public long size() {
+                return 4L * states.size();
+            }
+
+            public void writeTo(ByteBuffer buffer) {
+                for (TickerState state : states) {
+                    buffer.putInt(getter.applyAsInt(state));
+                }
+            }
+        };
+    }
+
+    private static ColumnBody longs(List<TickerState> states, ToLongFunction<TickerState> getter) {
+        return new ColumnBody() {
+            public long size() {
+                return 8L * states.size();
+            }
+
+            public void writeTo(ByteBuffer buffer) {
+                for (TickerState state : states) {
+                    buffer.putLong(getter.applyAsLong(state));
+                }
+            }
+        };
+    }
+
+    private static ColumnBody doubles(List<TickerState> states, ToDoubleFunction<TickerState> getter) {
+        return new ColumnBody() {
+            public long size() {
+                return 8L * states.size();
+            }
+
+            public void writeTo(ByteBuffer buffer) {
+                for (TickerState state : states) {
+                    buffer.putDouble(getter.applyAsDouble(state));
+                }
+            }
+        };
+    }
+
+    private static ColumnBody strings(List<TickerState> states, Function<TickerState, String> getter) {
+        byte[][] encoded = new byte[states.size()][];
+        long bytes = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            String value = getter.apply(states.get(i));
+            if (value != null) {
+                encoded[i] = value.getBytes(StandardCharsets.UTF_8);
+                bytes += encoded[i].length;
+            }
+        }
+        long dataBytes = bytes;
+        return new ColumnBody() {
+            public long size() {
+                return 8L * encoded.length + dataBytes;
+            }
+
+            public void writeTo(ByteBuffer buffer) {
+                int start = 0;
+                for (byte[] value : encoded) {
+                    buffer.putInt(start);
+                    buffer.putInt(value == null ? -1 : value.length);
+                    start += value == null ? 0 : value.length;
+                }
+                for (byte[] value : encoded) {
+                    if (value != null) {
+                        buffer.put(value);
+                    }
+                }
+            }
+        };
+    }
+
+    private static long listOffsetBytes(int rows) {
+        return align(4L * (rows + 1));
+    }
+
+    private static ColumnBody intLists(List<TickerState> states, Function<TickerState, int[]> getter) {
+        long elements = 0;
+        for (TickerState state : states) {
+            elements += getter.apply(state).length;
+        }
+        long totalElements = elements;
+        return new ColumnBody() {
+            public long size() {
+                return listOffsetBytes(states.size()) + 4L * totalElements;
+            }
+
+            public void writeTo(ByteBuffer buffer) {
+                int base = buffer.position();
+                int offset = 0;
+                buffer.putInt(offset);
+                for (TickerState state : states) {
+                    offset += getter.apply(state).length;
+                    buffer.putInt(offset);
+                }
+                buffer.position(base + (int) listOffsetBytes(states.size()));
+                for (TickerState state : states) {
+                    int[] values = getter.apply(state);
+                    buffer.asIntBuffer().put(values);
+                    buffer.position(buffer.position() + 4 * values.length);
+                }
+            }
+        };
+    }
+
+    private static ColumnBody doubleLists(List<TickerState> states, Function<TickerState, double[]> getter) {
+        long elements = 0;
+        for (TickerState state : states) {
+            elements += getter.apply(state).length;
+        }
+        long totalElements = elements;
+        return new ColumnBody() {
+            public long size() {
+                return listOffsetBytes(states.size()) + 8L * totalElements;
+            }
+
+            public void writeTo(ByteBuffer buffer) {
+                int base = buffer.position();
+                int offset = 0;
+                buffer.putInt(offset);
+                for (TickerState state : states) {
+                    offset += getter.apply(state).length;
+                    buffer.putInt(offset);
+                }
+                buffer.position(base + (int) listOffsetBytes(states.size()));
+                for (TickerState state : states) {
+                    double[] values = getter.apply(state);
+                    buffer.asDoubleBuffer().put(values);
+                    buffer.position(buffer.position() + 8 * values.length);
+                }
+            }
+        };
+    }
+}
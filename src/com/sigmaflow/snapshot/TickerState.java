@@ -0,0 +1,177 @@
+package com.sigmaflow.snapshot;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Per-ticker analytics state as persisted in a snapshot: contract info, underlying price, daily closes, HV/IV
+ * series, the option chain as fetched and the strategy scores, plus when the contract and chain were last fetched
+ * from the API (epoch millis) so that a warm start can tell fresh entries from stale ones. Missing strings are null,
+ * missing numbers NaN (conId and fetch times 0).
+ */
+public class TickerState {
+
+    private static final DateTimeFormatter EXPIRATION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final String ticker;
+    private final String companyName;
+    private final String primaryExchange;
+    private final String category;
+    private final String industry;
+    private final String validExchanges;
+    private final String marketRuleIds;
+    private final int conId;
+    private final double underlyingPrice;
+    private final DatedSeries closes;
+    private final DatedSeries historicalVolatility;
+    private final DatedSeries impliedVolatility;
+    private final double[] strikes;
+    private final int[] expirationDays;
+    private final String optionChainSummary;
+    private final double diffA;
+    private final double diffB;
+    private final double diffC;
+    private final double score;
+    private final long contractFetchedAt;
+    private final long chainFetchedAt;
+
+    public TickerState(String ticker, String companyName, String primaryExchange, String category, String industry,
+                       String validExchanges, String marketRuleIds, int conId, double underlyingPrice,
+                       DatedSeries closes, DatedSeries historicalVolatility, DatedSeries impliedVolatility,
+                       double[] strikes, int[] expirationDays, String optionChainSummary,
+                       double diffA, double diffB, double diffC, double score,
+                       long contractFetchedAt, long chainFetchedAt) {
+        this.ticker = ticker;
+        this.companyName = companyName;
+        this.primaryExchange = primaryExchange;
+        this.category = category;
+        this.industry = industry;
+        this.validExchanges = validExchanges;
+        this.marketRuleIds = marketRuleIds;
+        this.conId = conId;
+        this.underlyingPrice = underlyingPrice;
+        this.closes = closes;
+        this.historicalVolatility = historicalVolatility;
+        this.impliedVolatility = impliedVolatility;
+        this.strikes = strikes;
+        this.expirationDays = expirationDays;
+        this.optionChainSummary = optionChainSummary;
+        this.diffA = diffA;
+        this.diffB = diffB;
+        this.diffC = diffC;
+        this.score = score;
+        this.contractFetchedAt = contractFetchedAt;
+        this.chainFetchedAt = chainFetchedAt;
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    public String getCompanyName() {
+        return companyName;
+    }
+
+    public String getPrimaryExchange() {
+        return primaryExchange;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getIndustry() {
+        return industry;
+    }
+
+    /** Comma separated, as in the contract details; each position has its market rule id. */
+    public String getValidExchanges() {
+        return validExchanges;
+    }
+
+    public String getMarketRuleIds() {
+        return marketRuleIds;
+    }
+
+    public int getConId() {
+        return conId;
+    }
+
+    public double getUnderlyingPrice() {
+        return underlyingPrice;
+    }
+
+    public DatedSeries getCloses() {
+        return closes;
+    }
+
+    public DatedSeries getHistoricalVolatility() {
+        return historicalVolatility;
+    }
+
+    public DatedSeries getImpliedVolatility() {
+        return impliedVolatility;
+    }
+
+    /** Sorted ascending; callers must not modify. */
+    public double[] getStrikes() {
+        return strikes;
+    }
+
+    /** Sorted ascending epoch days; callers must not modify. */
+    public int[] getExpirationDays() {
+        return expirationDays;
+    }
+
+    /**
+     * @return The strikes as a sorted set, in the form {@code MarketData} keeps them.
+     */
+    public Set<Double> strikeSet() {
+        Set<Double> set = new TreeSet<>();
+        for (double strike : strikes) {
+            set.add(strike);
+        }
+        return set;
+    }
+
+    /**
+     * @return The expirations as sorted yyyyMMdd strings, in the form {@code MarketData} keeps them.
+     */
+    public Set<String> expirationSet() {
+        Set<String> set = new TreeSet<>();
+        for (int day : expirationDays) {
+            set.add(LocalDate.ofEpochDay(day).format(EXPIRATION_FORMAT));
+        }
+        return set;
+    }
+
+    public String getOptionChainSummary() {
+        return optionChainSummary;
+    }
+
+    public double getDiffA() {
+        return diffA;
+    }
+
+    public double getDiffB() {
+        return diffB;
+    }
+
+    public double getDiffC() {
+        return diffC;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public long getContractFetchedAt() {
+        return contractFetchedAt;
+    }
+
+    public long getChainFetchedAt() {
+        return chainFetchedAt;
+    }
+}
@@ -0,0 +1,256 @@
+package com.sigmaflow.strategy;
+
+import com.sigmaflow.analytics.PeerGroupStats;
+import com.sigmaflow.analytics.PeerGroupStats.Peers;
+import com.sigmaflow.analytics.VolSurface;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Per-ticker signals kept current incrementally. Each ticker's inputs (first and last implied volatility, last
+ * historical volatility, peer group, surface and intraday realized volatility) feed the cross-sectional aggregates in {@link PeerGroupStats}; its
+ * score depends on its own inputs and on the aggregate it is measured against; the ranking, and with it the long and
+ * short recommendations, on the scores.
+ * <p>
+ * Setting inputs only marks the ticker dirty. {@link #flush()} then propagates a batch: the aggregates are updated
+ * for the tickers whose implied volatility or group changed, and only the dirty tickers and the members of groups
+ * whose statistics actually moved are rescored and re-ranked. A changed universe average rescores those measured
+ * against the universe. Access is synchronized.
+ */
+public class SignalGraph {
+
+    private static final Logger logger = LogManager.getLogger(SignalGraph.class);
+
+    private static final class Node {
+        final String ticker;
+        final int order;
+        double firstImpVol = Double.NaN;
+        double lastImpVol = Double.NaN;
+        double lastHistVol = Double.NaN;
+        String group;
+        VolSurface.Summary surface = VolSurface.Summary.EMPTY;
+        double intradayRealizedVol = Double.NaN;
+        boolean dirty;
+        // The implied volatility or group changed since the aggregates last saw them
+        boolean statsDirty;
+        // The group the aggregates hold the ticker under
+        String statsGroup;
+        // What the current candidate was measured against; null without an implied volatility
+        Peers peers;
+        TradeCandidate candidate;
+
+        Node(String ticker, int order) {
+            this.ticker = ticker;
+            this.order = order;
+        }
+    }
+
+    private static final Comparator<Node> BY_SUM = Comparator
+            .comparingDouble((Node node) -> node.candidate.getSum())
+            .thenComparingInt(node -> node.order);
+
+    private final VolatilityArbitrage strategy;
+    private final PeerGroupStats peerStats;
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final Set<Node> dirty = new LinkedHashSet<>();
+    private final Map<String, Set<Node>> groupMembers = new HashMap<>();
+    // Measured against the universe: ungrouped, or in a group too small
+    private final Set<Node> universeScored = new HashSet<>();
+    // Scored tickers by ascending sum, ties in display order as the stable sort of VolatilityArbitrage.rank
+    private final TreeSet<Node> ranking = new TreeSet<>(BY_SUM);
+    private Peers universe;
+
+    /**
+     * @param peerStats Aggregates kept current by this graph, e.g. for the contract selection's peer lookups.
+     * @param tickers   The universe in display order; tickers added later follow it.
+     */
+    public SignalGraph(VolatilityArbitrage strategy, PeerGroupStats peerStats, List<String> tickers) {
+        this.strategy = strategy;
+        this.peerStats = peerStats;
+        for (String ticker : tickers) {
+            nodes.computeIfAbsent(ticker, t -> new Node(t, nodes.size()));
+        }
+        this.universe = peerStats.universe();
+    }
+
+    /**
+     * Sets a ticker's inputs, marking it dirty if any changed. NaN values are missing; a missing last implied
+     * volatility takes the ticker out of the aggregates.
+     */
+    public synchronized void setInputs(String ticker, double firstImpVol, double lastImpVol, double lastHistVol,
+                                       String group, VolSurface.Summary surface, double intradayRealizedVol) {
+        Node node = nodes.computeIfAbsent(ticker, t -> new Node(t, nodes.size()));
+        boolean statsChanged = Double.compare(node.lastImpVol, lastImpVol) != 0 || !Objects.equals(node.group, group);
+        boolean changed = statsChanged || node.candidate == null
+                || Double.compare(node.firstImpVol, firstImpVol) != 0
+                || Double.compare(node.lastHistVol, lastHistVol) != 0
+                || !Objects.equals(node.surface, surface)
+                || Double.compare(node.intradayRealizedVol, intradayRealizedVol) != 0;
+        if (!changed) {
+            return;
+        }
+        node.firstImpVol = firstImpVol;
+        node.lastImpVol = lastImpVol;
+        node.lastHistVol = lastHistVol;
+        node.group = group;
+        node.surface = surface;
+        node.intradayRealizedVol = intradayRealizedVol;
+        node.statsDirty |= statsChanged || node.candidate == null;
+        node.dirty = true;
+        dirty.add(node);
+    }
+
+    /**
+     * Propagates the changes since the previous flush.
+     *
+     * @return The number of tickers rescored; 0 if nothing changed.
+     */
+    public synchronized int flush() {
+        if (dirty.isEmpty()) {
+            return 0;
+        }
+        Set<String> affectedGroups = new HashSet<>();
+        for (Node node : dirty) {
+            if (node.statsDirty) {
+                peerStats.update(node.ticker, node.group, node.lastImpVol);
+                moveGroup(node, node.group, affectedGroups);
+                node.statsDirty = false;
+            }
+        }
+        Peers previousUniverse = universe;
+        universe = peerStats.universe();
+
+        Set<Node> candidates = new LinkedHashSet<>(dirty);
+        for (String group : affectedGroups) {
+            candidates.addAll(groupMembers.getOrDefault(group, Set.of()));
+        }
+        if (!universe.equals(previousUniverse)) {
+            candidates.addAll(universeScored);
+        }
+        int rescored = 0;
+        for (Node node : candidates) {
+            if (rescore(node)) {
+                rescored++;
+            }
+        }
+        dirty.clear();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Rescored {} of {} tickers", box(rescored), box(ranking.size()));
+        }
+        return rescored;
+    }
+
+    private void moveGroup(Node node, String group, Set<String> affectedGroups) {
+        if (node.statsGroup != null) {
+            affectedGroups.add(node.statsGroup);
+            Set<Node> members = groupMembers.get(node.statsGroup);
+            members.remove(node);
+            if (members.isEmpty()) {
+                groupMembers.remove(node.statsGroup);
+            }
+        }
+        // The aggregates hold no group for a ticker without an implied volatility
+        node.statsGroup = Double.isNaN(node.lastImpVol) ? null : group;
+        if (node.statsGroup != null) {
+            affectedGroups.add(node.statsGroup);
+            groupMembers.computeIfAbsent(node.statsGroup, g -> new HashSet<>()).add(node);
+        }
+    }
+
+    /**
+     * Scores a ticker as {@code StatisticsTable.from} with peer groups does, unless neither its inputs nor what it
+     * is measured against changed.
+     */
+    private boolean rescore(Node node) {
+        Peers peers = peerStats.peersOf(node.ticker);
+        // Without peers there is no implied volatility, and all differences are 0 whatever the universe average
+        if (!node.dirty && Objects.equals(peers, node.peers)) {
+            return false;
+        }
+        TradeCandidate candidate;
+        if (peers == null) {
+            candidate = strategy.score(node.ticker, node.firstImpVol, node.lastImpVol, node.lastHistVol, universe.mean())
+                    .withSurface(node.surface)
+                    .withIntraday(node.intradayRealizedVol, node.lastImpVol - node.intradayRealizedVol);
+        } else {
+            candidate = strategy.score(node.ticker, node.firstImpVol, node.lastImpVol, node.lastHistVol, peers.median())
+                    .withPeers(peers.group(), peers.median(), peers.zScore(node.lastImpVol))
+                    .withSurface(node.surface)
+                    .withIntraday(node.intradayRealizedVol, node.lastImpVol - node.intradayRealizedVol);
+        }
+        if (node.candidate != null) {
+            ranking.remove(node);
+        }
+        node.candidate = candidate;
+        node.peers = peers;
+        node.dirty = false;
+        ranking.add(node);
+        if (peers != null && PeerGroupStats.UNIVERSE.equals(peers.group())) {
+            universeScored.add(node);
+        } else {
+            universeScored.remove(node);
+        }
+        return true;
+    }
+
+    /**
+     * @return The scored tickers in display order, as of the last flush.
+     */
+    public synchronized List<TradeCandidate> rows() {
+        List<TradeCandidate> rows = new ArrayList<>(ranking.size());
+        for (Node node : nodes.values()) {
+            if (node.candidate != null) {
+                rows.add(node.candidate);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return The scored tickers by ascending sum, as {@link VolatilityArbitrage#rank} orders them.
+     */
+    public synchronized List<TradeCandidate> ranked() {
+        List<TradeCandidate> ranked = new ArrayList<>(ranking.size());
+        for (Node node : ranking) {
+            ranked.add(node.candidate);
+        }
+        return ranked;
+    }
+
+    public synchronized TradeCandidate bestLongVolatility() {
+        return ranking.isEmpty() ? null : ranking.first().candidate;
+    }
+
+    public synchronized TradeCandidate bestShortVolatility() {
+        return ranking.isEmpty() ? null : ranking.last().candidate;
+    }
+
+    /**
+     * @return The ticker's candidate as of the last flush, or null if it has not been scored.
+     */
+    public synchronized TradeCandidate candidate(String ticker) {
+        Node node = nodes.get(ticker);
+        return node != null ? node.candidate : null;
+    }
+
+    /**
+     * @return The universe average implied volatility, or 0 without any.
+     */
+    public synchronized double industryAvgImpVol() {
+        return Double.isNaN(universe.mean()) ? 0 : universe.mean();
+    }
+}
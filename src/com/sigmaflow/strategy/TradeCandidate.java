@@ -0,0 +1,120 @@
+package com.sigmaflow.strategy;
+
+import com.sigmaflow.analytics.VolSurface;
+
+/**
+ * Ranking entry for a single ticker, holding the three volatility differences and their weighted sum.
+ * The smallest sum is the best long volatility candidate, the largest sum the best short volatility candidate.
+ */
+public class TradeCandidate {
+
+    private final String ticker;
+    private final double diffA;
+    private final double diffB;
+    private final double diffC;
+    private final double sum;
+    private final String peerGroup;
+    private final double peerImpVol;
+    private final double peerZScore;
+    private final VolSurface.Summary surface;
+    private final double intradayRealizedVol;
+    private final double intradaySpread;
+
+    public TradeCandidate(String ticker, double diffA, double diffB, double diffC, double sum) {
+        this(ticker, diffA, diffB, diffC, sum, null, Double.NaN, Double.NaN, VolSurface.Summary.EMPTY, Double.NaN, Double.NaN);
+    }
+
+    public TradeCandidate(String ticker, double diffA, double diffB, double diffC, double sum,
+                          String peerGroup, double peerImpVol, double peerZScore, VolSurface.Summary surface,
+                          double intradayRealizedVol, double intradaySpread) {
+        this.ticker = ticker;
+        this.diffA = diffA;
+        this.diffB = diffB;
+        this.diffC = diffC;
+        this.sum = sum;
+        this.peerGroup = peerGroup;
+        this.peerImpVol = peerImpVol;
+        this.peerZScore = peerZScore;
+        this.surface = surface;
+        this.intradayRealizedVol = intradayRealizedVol;
+        this.intradaySpread = intradaySpread;
+    }
+
+    /**
+     * @return This candidate annotated with the peer group diffC was measured against.
+     */
+    public TradeCandidate withPeers(String group, double impVol, double zScore) {
+        return new TradeCandidate(ticker, diffA, diffB, diffC, sum, group, impVol, zScore, surface,
+                intradayRealizedVol, intradaySpread);
+    }
+
+    /**
+     * @return This candidate annotated with the term structure and skew of its option chain.
+     */
+    public TradeCandidate withSurface(VolSurface.Summary surface) {
+        return new TradeCandidate(ticker, diffA, diffB, diffC, sum, peerGroup, peerImpVol, peerZScore, surface,
+                intradayRealizedVol, intradaySpread);
+    }
+
+    /**
+     * @return This candidate annotated with the intraday realized volatility and the last implied volatility's
+     * spread over it.
+     */
+    public TradeCandidate withIntraday(double realizedVol, double spread) {
+        return new TradeCandidate(ticker, diffA, diffB, diffC, sum, peerGroup, peerImpVol, peerZScore, surface,
+                realizedVol, spread);
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    /** Last implied volatility minus first implied volatility of the lookback window. */
+    public double getDiffA() {
+        return diffA;
+    }
+
+    /** Last implied volatility minus last historical volatility. */
+    public double getDiffB() {
+        return diffB;
+    }
+
+    /** Last implied volatility minus the industry (peer group) implied volatility. */
+    public double getDiffC() {
+        return diffC;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /** The peer group diffC was measured against; null if scored against a single universe average. */
+    public String getPeerGroup() {
+        return peerGroup;
+    }
+
+    /** The peer group's median implied volatility. */
+    public double getPeerImpVol() {
+        return peerImpVol;
+    }
+
+    /** Last implied volatility in standard deviations from the peer group mean. */
+    public double getPeerZScore() {
+        return peerZScore;
+    }
+
+    /** Term structure and skew of the option chain; empty if it was not sampled. */
+    public VolSurface.Summary getSurface() {
+        return surface;
+    }
+
+    /** Annualized realized volatility of today's 5-minute bars; NaN if the underlying is not streamed. */
+    public double getIntradayRealizedVol() {
+        return intradayRealizedVol;
+    }
+
+    /** Last implied volatility minus the intraday realized volatility; the intraday counterpart of diffB. */
+    public double getIntradaySpread() {
+        return intradaySpread;
+    }
+}
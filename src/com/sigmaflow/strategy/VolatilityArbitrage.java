@@ -3,7 +3,115 @@ package com.sigmaflow.strategy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * Volatility arbitrage ranking rules.
+ * Each ticker is scored with three implied volatility differences (diffA, diffB, diffC) and their weighted sum.
+ * Tickers with the smallest sum are bought volatility, tickers with the largest sum are sold volatility.
+ */
 public class VolatilityArbitrage {
     private static final Logger logger = LogManager.getLogger(VolatilityArbitrage.class);
-    // This class will implement the trading strategy.
+
+    private final double weightA;
+    private final double weightB;
+    private final double weightC;
+
+    public VolatilityArbitrage() {
+        this(1.0, 1.0, 1.0);
+    }
+
+    public VolatilityArbitrage(double weightA, double weightB, double weightC) {
+        this.weightA = weightA;
+        this.weightB = weightB;
+        this.weightC = weightC;
+    }
+
+    /**
+     * Calculates the average of the last implied volatility over all given series.
+     *
+     * @param impliedVolatilities Implied volatility series keyed by date, one per ticker.
+     * @return The average last implied volatility, or 0 if no series has data.
+     */
+    public double averageLastImpliedVolatility(Collection<? extends NavigableMap<LocalDate, Double>> impliedVolatilities) {
+        double total = 0;
+        int count = 0;
+        for (NavigableMap<LocalDate, Double> impVolMap : impliedVolatilities) {
+            if (impVolMap != null && !impVolMap.isEmpty()) {
+                total += impVolMap.lastEntry().getValue();
+                count++;
+            }
+        }
+        return count > 0 ? total / count : 0;
+    }
+
+    /**
+     * Scores a ticker from its implied and historical volatility series.
+     *
+     * @param ticker                 The ticker symbol.
+     * @param impVolMap              Implied volatility series keyed by date (may be null).
+     * @param histVolMap             Historical volatility series keyed by date (may be null).
+     * @param industryAvgImpVol      The industry average implied volatility.
+     * @return The trade candidate with all differences set.
+     */
+    public TradeCandidate score(String ticker, NavigableMap<LocalDate, Double> impVolMap,
+                                NavigableMap<LocalDate, Double> histVolMap, double industryAvgImpVol) {
+        if (impVolMap == null || impVolMap.isEmpty()) {
+            return score(ticker, Double.NaN, Double.NaN, Double.NaN, industryAvgImpVol);
+        }
+        double lastHistVol = histVolMap != null && !histVolMap.isEmpty() ? histVolMap.lastEntry().getValue() : Double.NaN;
+        return score(ticker, impVolMap.firstEntry().getValue(), impVolMap.lastEntry().getValue(), lastHistVol, industryAvgImpVol);
+    }
+
+    /**
+     * Scores a ticker from point values. NaN inputs leave the corresponding differences at zero.
+     *
+     * @param ticker            The ticker symbol.
+     * @param firstImpVol       Implied volatility at the start of the lookback window.
+     * @param lastImpVol        Latest implied volatility.
+     * @param lastHistVol       Latest historical volatility.
+     * @param industryAvgImpVol The industry average implied volatility.
+     * @return The trade candidate with all differences set.
+     */
+    public TradeCandidate score(String ticker, double firstImpVol, double lastImpVol, double lastHistVol, double industryAvgImpVol) {
+        double diffA = 0;
+        double diffB = 0;
+        double diffC = 0;
+
+        if (!Double.isNaN(lastImpVol)) {
+            if (!Double.isNaN(firstImpVol)) {
+                diffA = lastImpVol - firstImpVol;
+            }
+            if (!Double.isNaN(lastHistVol)) {
+                diffB = lastImpVol - lastHistVol;
+            }
+            diffC = lastImpVol - industryAvgImpVol;
+        }
+
+        double sum = weightA * diffA + weightB * diffB + weightC * diffC;
+        return new TradeCandidate(ticker, diffA, diffB, diffC, sum);
+    }
+
+    /**
+     * Sorts candidates by ascending sum, so the first entry is the best long volatility candidate
+     * and the last entry the best short volatility candidate.
+     */
+    public List<TradeCandidate> rank(Collection<TradeCandidate> candidates) {
+        List<TradeCandidate> ranked = new ArrayList<>(candidates);
+        ranked.sort(Comparator.comparingDouble(TradeCandidate::getSum));
+        return ranked;
+    }
+
+    public TradeCandidate bestLongVolatility(List<TradeCandidate> ranked) {
+        return ranked.isEmpty() ? null : ranked.get(0);
+    }
+
+    public TradeCandidate bestShortVolatility(List<TradeCandidate> ranked) {
+        return ranked.isEmpty() ? null : ranked.get(ranked.size() - 1);
+    }
 }
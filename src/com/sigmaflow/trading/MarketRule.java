@@ -0,0 +1,102 @@
+package com.sigmaflow.trading;
+
+import com.ib.client.PriceIncrement;
+
+import java.util.Arrays;
+
+/**
+ * Price increments of an IB market rule: bands of prices, each starting at a low edge, with the tick size valid in
+ * the band. Prices and increments are fixed-point {@link Price} units. Instances are immutable.
+ */
+public final class MarketRule {
+
+    /** One cent at every price, valid for US stocks at any price. */
+    public static final MarketRule STOCK_DEFAULT = new MarketRule(-1, new long[]{0}, new long[]{Price.SCALE / 100});
+    /** Five cents below $3 and ten cents above, the coarsest of the US option penny pilot rules. */
+    public static final MarketRule OPTION_DEFAULT = new MarketRule(-1, new long[]{0, 3 * Price.SCALE},
+            new long[]{Price.SCALE / 20, Price.SCALE / 10});
+
+    private final int id;
+    private final long[] lowEdges;
+    private final long[] increments;
+
+    /**
+     * @param id         The market rule id, or -1 for a built-in default.
+     * @param lowEdges   Low edges of the bands, ascending, starting at 0; not copied.
+     * @param increments Tick size per band, positive; not copied.
+     */
+    private MarketRule(int id, long[] lowEdges, long[] increments) {
+        this.id = id;
+        this.lowEdges = lowEdges;
+        this.increments = increments;
+    }
+
+    /**
+     * @throws IllegalArgumentException If there are no increments or an increment is not positive.
+     */
+    public static MarketRule of(int id, PriceIncrement[] priceIncrements) {
+        if (priceIncrements == null || priceIncrements.length == 0) {
+            throw new IllegalArgumentException("Market rule " + id + " has no price increments");
+        }
+        PriceIncrement[] sorted = priceIncrements.clone();
+        Arrays.sort(sorted, (a, b) -> Double.compare(a.lowEdge(), b.lowEdge()));
+        long[] lowEdges = new long[sorted.length];
+        long[] increments = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            lowEdges[i] = i == 0 ? 0 : Price.of(sorted[i].lowEdge());
+            increments[i] = Price.of(sorted[i].increment());
+            if (increments[i] <= 0) {
+                throw new IllegalArgumentException("Market rule " + id + " has increment " + sorted[i].increment());
+            }
+        }
+        return new MarketRule(id, lowEdges, increments);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return The tick size valid at the price: that of the last band whose low edge is at or below it.
+     */
+    public long increment(long price) {
+        int low = 0;
+        int high = lowEdges.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (lowEdges[mid] <= price) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return increments[low];
+    }
+
+    /**
+     * Rounds a limit price onto a valid tick, toward the passive side: down for a buy, up for a sell. The increment
+     * is that of the unrounded price, so that a price just above a band edge can round down to the edge.
+     */
+    public long round(long price, boolean buy) {
+        long increment = increment(price);
+        return buy ? Price.floorToTick(price, increment) : Price.ceilToTick(price, increment);
+    }
+
+    /**
+     * @return Whether the price lies on a tick of its band.
+     */
+    public boolean isValid(long price) {
+        return price % increment(price) == 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("MarketRule[").append(id);
+        for (int i = 0; i < lowEdges.length; i++) {
+            sb.append(i == 0 ? ": " : ", ");
+            Price.appendTo(sb, lowEdges[i]).append('+');
+            Price.appendTo(sb, increments[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,73 @@
+package com.sigmaflow.trading;
+
+import com.ib.client.ContractDetails;
+import com.sigmaflow.api.AsyncIbClient;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Market rules by id, fetched once per run. Rules are shared across contracts and rarely change, so a rule that
+ * resolved is kept for the life of the cache; a failed fetch is not cached, and the caller's fallback is used.
+ */
+public class MarketRules {
+
+    private static final Logger logger = LogManager.getLogger(MarketRules.class);
+
+    private final AsyncIbClient client;
+    private final Map<Integer, CompletableFuture<MarketRule>> rules = new ConcurrentHashMap<>();
+
+    public MarketRules(AsyncIbClient client) {
+        this.client = client;
+    }
+
+    /**
+     * @param details  The contract, or null.
+     * @param fallback The rule to use if the contract lists no rule or the rule cannot be fetched.
+     * @return A future completed with the contract's market rule on its SMART route; never failed.
+     */
+    public CompletableFuture<MarketRule> forContract(ContractDetails details, MarketRule fallback) {
+        int marketRuleId = marketRuleId(details);
+        if (marketRuleId < 0) {
+            return CompletableFuture.completedFuture(fallback);
+        }
+        CompletableFuture<MarketRule> rule = rules.computeIfAbsent(marketRuleId, id -> client.marketRule(id)
+                .thenApply(increments -> MarketRule.of(id, increments)));
+        return rule.exceptionally(e -> {
+            rules.remove(marketRuleId, rule);
+            logger.warn("Market rule {} unavailable, using {}: {}", box(marketRuleId), fallback, e.toString());
+            return fallback;
+        });
+    }
+
+    /**
+     * Picks the rule of the SMART route, else of the first exchange. {@code marketRuleIds} is a comma separated list
+     * aligned with {@code validExchanges}.
+     *
+     * @return The rule id, or -1 if the contract lists none.
+     */
+    static int marketRuleId(ContractDetails details) {
+        if (details == null || details.marketRuleIds() == null || details.marketRuleIds().isBlank()) {
+            return -1;
+        }
+        String[] ids = details.marketRuleIds().split(",");
+        String[] exchanges = details.validExchanges() != null ? details.validExchanges().split(",") : new String[0];
+        int index = 0;
+        for (int i = 0; i < exchanges.length && i < ids.length; i++) {
+            if ("SMART".equals(exchanges[i].trim())) {
+                index = i;
+                break;
+            }
+        }
+        try {
+            return Integer.parseInt(ids[index].trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.sigmaflow.trading;
+
+/**
+ * Prices as fixed-point longs in units of 10^-8, for the order and risk path. Arithmetic and tick rounding are exact
+ * integer operations, so a price rounded to a tick stays on it and nothing is boxed or allocated; conversion from
+ * {@code double} happens once, where a price enters the path.
+ */
+public final class Price {
+
+    public static final int DECIMALS = 8;
+    public static final long SCALE = 100_000_000L;
+    // Minimum number of decimals shown by format, as for cents
+    private static final int MIN_DISPLAY_DECIMALS = 2;
+
+    private Price() {
+    }
+
+    /**
+     * @return The price rounded to the nearest unit.
+     * @throws IllegalArgumentException If the price is NaN, infinite or out of range.
+     */
+    public static long of(double price) {
+        double scaled = price * SCALE;
+        if (!(Math.abs(scaled) < Long.MAX_VALUE)) {
+            throw new IllegalArgumentException("Not a representable price: " + price);
+        }
+        return Math.round(scaled);
+    }
+
+    public static double toDouble(long price) {
+        return (double) price / SCALE;
+    }
+
+    /**
+     * Rounds down to a multiple of the increment.
+     *
+     * @param increment The tick size, positive.
+     */
+    public static long floorToTick(long price, long increment) {
+        return Math.floorDiv(price, increment) * increment;
+    }
+
+    /**
+     * Rounds up to a multiple of the increment.
+     *
+     * @param increment The tick size, positive.
+     */
+    public static long ceilToTick(long price, long increment) {
+        return -Math.floorDiv(-price, increment) * increment;
+    }
+
+    /**
+     * Rounds to the nearest multiple of the increment, half up.
+     *
+     * @param increment The tick size, positive.
+     */
+    public static long roundToTick(long price, long increment) {
+        return Math.floorDiv(price + increment / 2, increment) * increment;
+    }
+
+    /**
+     * @return The notional of a quantity at the price, in price units.
+     * @throws ArithmeticException If the notional overflows.
+     */
+    public static long multiply(long price, long quantity) {
+        return Math.multiplyExact(price, quantity);
+    }
+
+    /**
+     * Formats the price with at least two and at most eight decimals, e.g. 1.5 as "1.50" and 0.0001 as "0.0001".
+     */
+    public static String format(long price) {
+        return appendTo(new StringBuilder(24), price).toString();
+    }
+
+    public static StringBuilder appendTo(StringBuilder sb, long price) {
+        if (price < 0) {
+            sb.append('-');
+        }
+        // Negating Long.MIN_VALUE overflows; its magnitude still divides correctly as unsigned
+        long units = Long.divideUnsigned(Math.abs(price), SCALE);
+        long fraction = Long.remainderUnsigned(Math.abs(price), SCALE);
+        sb.append(units).append('.');
+        int decimals = DECIMALS;
+        while (decimals > MIN_DISPLAY_DECIMALS && fraction % 10 == 0) {
+            fraction /= 10;
+            decimals--;
+        }
+        for (long digit = pow10(decimals - 1); digit > 0; digit /= 10) {
+            sb.append((char) ('0' + fraction / digit % 10));
+        }
+        return sb;
+    }
+
+    private static long pow10(int exponent) {
+        long value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,267 @@
+package com.sigmaflow.universe;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Forward-only cursor over the records of a memory-mapped CSV file (RFC 4180: quoted fields may contain commas,
+ * line breaks and doubled quotes). Advancing only records where each field starts and ends in the mapping; field
+ * values are decoded when asked for, and numbers are parsed straight from the bytes.
+ */
+public class CsvCursor {
+
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final MappedByteBuffer buffer;
+    private final int limit;
+    private int position;
+
+    // Field bounds of the current record, excluding enclosing quotes
+    private int fieldCount;
+    private int[] starts = new int[32];
+    private int[] ends = new int[32];
+    private boolean[] escaped = new boolean[32];
+
+    private CsvCursor(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+        // Skip a UTF-8 byte order mark
+        if (limit >= 3 && (buffer.get(0) & 0xff) == 0xEF && (buffer.get(1) & 0xff) == 0xBB && (buffer.get(2) & 0xff) == 0xBF) {
+            position = 3;
+        }
+    }
+
+    /**
+     * @throws IOException If the file cannot be mapped; files of 2 GB and more are not supported.
+     */
+    public static CsvCursor open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("CSV file too large to map: " + file);
+            }
+            return new CsvCursor(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Advances to the next record, skipping blank lines.
+     *
+     * @return False at the end of the file.
+     */
+    public boolean next() {
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if (b != CR && b != LF) {
+                break;
+            }
+            position++;
+        }
+        if (position >= limit) {
+            fieldCount = 0;
+            return false;
+        }
+
+        fieldCount = 0;
+        while (true) {
+            ensureCapacity(fieldCount + 1);
+            boolean hasEscapes = false;
+            int start;
+            int end;
+            if (buffer.get(position) == QUOTE) {
+                start = ++position;
+                while (true) {
+                    if (position >= limit) {
+                        end = limit;
+                        break;
+                    }
+                    if (buffer.get(position) == QUOTE) {
+                        if (position + 1 < limit && buffer.get(position + 1) == QUOTE) {
+                            hasEscapes = true;
+                            position += 2;
+                            continue;
+                        }
+                        end = position++;
+                        break;
+                    }
+                    position++;
+                }
+                // Anything between the closing quote and the delimiter is ignored
+                while (position < limit && !isDelimiter(buffer.get(position))) {
+                    position++;
+                }
+            } else {
+                start = position;
+                while (position < limit && !isDelimiter(buffer.get(position))) {
+                    position++;
+                }
+                end = position;
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = end;
+            escaped[fieldCount] = hasEscapes;
+            fieldCount++;
+
+            if (position >= limit) {
+                return true;
+            }
+            byte delimiter = buffer.get(position++);
+            if (delimiter != COMMA) {
+                if (delimiter == CR && position < limit && buffer.get(position) == LF) {
+                    position++;
+                }
+                return true;
+            }
+            if (position >= limit) {
+                // Trailing comma: one more, empty field
+                ensureCapacity(fieldCount + 1);
+                starts[fieldCount] = ends[fieldCount] = limit;
+                escaped[fieldCount] = false;
+                fieldCount++;
+                return true;
+            }
+        }
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == COMMA || b == LF || b == CR;
+    }
+
+    private void ensureCapacity(int fields) {
+        if (fields > starts.length) {
+            int capacity = Math.max(fields, starts.length * 2);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            escaped = Arrays.copyOf(escaped, capacity);
+        }
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return The field, trimmed, or null if the record has no such field.
+     */
+    public String string(int field) {
+        if (field >= fieldCount) {
+            return null;
+        }
+        int start = trimStart(field);
+        int end = trimEnd(field, start);
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        return escaped[field] ? value.replace("\"\"", "\"") : value;
+    }
+
+    /**
+     * Compares an ASCII field without decoding it.
+     */
+    public boolean equalsIgnoreCase(int field, String value) {
+        if (field >= fieldCount) {
+            return false;
+        }
+        int start = trimStart(field);
+        int end = trimEnd(field, start);
+        if (escaped[field] || end - start != value.length()) {
+            return escaped[field] && value.equalsIgnoreCase(string(field));
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = (char) (buffer.get(start + i) & 0xff);
+            if (Character.toLowerCase(c) != Character.toLowerCase(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a number such as {@code 1234}, {@code -0.5}, {@code 1,234.5} inside quotes, {@code 12.5%} (12.5) or
+     * {@code 2.96B} (2.96e9; K, M, B and T suffixes).
+     *
+     * @return The value, or NaN if the field is empty, missing or not a number (e.g. finviz's "-").
+     */
+    public double number(int field) {
+        if (field >= fieldCount) {
+            return Double.NaN;
+        }
+        int i = trimStart(field);
+        int end = trimEnd(field, i);
+        if (i >= end) {
+            return Double.NaN;
+        }
+        boolean negative = false;
+        byte b = buffer.get(i);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                if (mantissa < Long.MAX_VALUE / 10 - 9) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (fraction) {
+                        scale++;
+                    }
+                } else if (!fraction) {
+                    scale--;
+                }
+                digits++;
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else if (b != COMMA) {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double value = scale >= 0 ? mantissa / Math.pow(10, scale) : mantissa * Math.pow(10, -scale);
+        if (i < end) {
+            if (i != end - 1) {
+                return Double.NaN;
+            }
+            switch (buffer.get(i)) {
+                case '%' -> { }
+                case 'K', 'k' -> value *= 1e3;
+                case 'M', 'm' -> value *= 1e6;
+                case 'B', 'b' -> value *= 1e9;
+                case 'T', 't' -> value *= 1e12;
+                default -> {
+                    return Double.NaN;
+                }
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    private int trimStart(int field) {
+        int start = starts[field];
+        int end = ends[field];
+        while (start < end && buffer.get(start) == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimEnd(int field, int start) {
+        int end = ends[field];
+        while (end > start && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,194 @@
+package com.sigmaflow.universe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Conditions on the columns of a universe CSV that a row must meet for its ticker to be loaded. Columns are named
+ * as in the header (case-insensitive), e.g. finviz's "Market Cap" (in millions), "Volume", "Optionable" and
+ * "Sector". Rows with a missing or non-numeric value fail a numeric condition. Instances are immutable; use the
+ * {@code with*} methods to add conditions.
+ */
+public class Screen {
+
+    public static final String MARKET_CAP = "Market Cap";
+    public static final String VOLUME = "Volume";
+    public static final String OPTIONABLE = "Optionable";
+    public static final String SECTOR = "Sector";
+
+    private static final Screen ALL = new Screen(List.of());
+
+    private sealed interface Condition permits Range, OneOf {
+        String column();
+
+        boolean test(CsvCursor row, int field);
+    }
+
+    private record Range(String column, double min, double max) implements Condition {
+        @Override
+        public boolean test(CsvCursor row, int field) {
+            double value = row.number(field);
+            return value >= min && value <= max;
+        }
+
+        @Override
+        public String toString() {
+            return column + (max == Double.POSITIVE_INFINITY ? " >= " + min : " in [" + min + ", " + max + "]");
+        }
+    }
+
+    private record OneOf(String column, List<String> values) implements Condition {
+        @Override
+        public boolean test(CsvCursor row, int field) {
+            for (String value : values) {
+                if (row.equalsIgnoreCase(field, value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return column + " in " + values;
+        }
+    }
+
+    private final List<Condition> conditions;
+
+    private Screen(List<Condition> conditions) {
+        this.conditions = conditions;
+    }
+
+    /**
+     * @return The screen that passes every row.
+     */
+    public static Screen all() {
+        return ALL;
+    }
+
+    /**
+     * Builds a screen from {@code sigmaflow.screen.minMarketCap} (millions), {@code sigmaflow.screen.minVolume},
+     * {@code sigmaflow.screen.optionable} (true to require "Yes") and {@code sigmaflow.screen.sectors}
+     * (comma-separated); unset properties add no condition.
+     */
+    public static Screen fromSystemProperties() {
+        Screen screen = all();
+        String minMarketCap = System.getProperty("sigmaflow.screen.minMarketCap");
+        if (minMarketCap != null) {
+            screen = screen.withMinMarketCap(Double.parseDouble(minMarketCap));
+        }
+        String minVolume = System.getProperty("sigmaflow.screen.minVolume");
+        if (minVolume != null) {
+            screen = screen.withMinVolume(Double.parseDouble(minVolume));
+        }
+        if (Boolean.getBoolean("sigmaflow.screen.optionable")) {
+            screen = screen.withOptionable();
+        }
+        String sectors = System.getProperty("sigmaflow.screen.sectors");
+        if (sectors != null && !sectors.isBlank()) {
+            screen = screen.withSectors(Arrays.stream(sectors.split(",")).map(String::trim).toArray(String[]::new));
+        }
+        return screen;
+    }
+
+    public Screen withRange(String column, double min, double max) {
+        return with(new Range(column, min, max));
+    }
+
+    public Screen withMinimum(String column, double min) {
+        return with(new Range(column, min, Double.POSITIVE_INFINITY));
+    }
+
+    /**
+     * @param values Accepted values, compared case-insensitively.
+     */
+    public Screen withOneOf(String column, String... values) {
+        return with(new OneOf(column, List.of(values)));
+    }
+
+    /**
+     * @param millions Minimum market capitalization, in millions as finviz exports it.
+     */
+    public Screen withMinMarketCap(double millions) {
+        return withMinimum(MARKET_CAP, millions);
+    }
+
+    public Screen withMinVolume(double shares) {
+        return withMinimum(VOLUME, shares);
+    }
+
+    public Screen withOptionable() {
+        return withOneOf(OPTIONABLE, "Yes");
+    }
+
+    public Screen withSectors(String... sectors) {
+        return withOneOf(SECTOR, sectors);
+    }
+
+    private Screen with(Condition condition) {
+        List<Condition> combined = new ArrayList<>(conditions);
+        combined.add(condition);
+        return new Screen(Collections.unmodifiableList(combined));
+    }
+
+    public boolean isEmpty() {
+        return conditions.isEmpty();
+    }
+
+    /**
+     * Resolves the conditions' columns against a header row.
+     *
+     * @throws IllegalArgumentException If a column is not in the header.
+     */
+    Bound bind(CsvCursor header) {
+        int[] fields = new int[conditions.size()];
+        for (int i = 0; i < fields.length; i++) {
+            String column = conditions.get(i).column();
+            fields[i] = columnIndex(header, column);
+            if (fields[i] < 0) {
+                throw new IllegalArgumentException("Screen column '" + column + "' not in CSV header");
+            }
+        }
+        return new Bound(fields);
+    }
+
+    /**
+     * @return The index of the column, or -1.
+     */
+    static int columnIndex(CsvCursor header, String column) {
+        for (int i = 0; i < header.fieldCount(); i++) {
+            if (header.equalsIgnoreCase(i, column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A screen whose columns are resolved to field indices.
+     */
+    final class Bound {
+        private final int[] fields;
+
+        private Bound(int[] fields) {
+            this.fields = fields;
+        }
+
+        boolean test(CsvCursor row) {
+            for (int i = 0; i < fields.length; i++) {
+                if (!conditions.get(i).test(row, fields[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return conditions.isEmpty() ? "all" : conditions.toString();
+    }
+}
@@ -0,0 +1,10 @@
+package com.sigmaflow.universe;
+
+/**
+ * A ticker that passed the screen.
+ *
+ * @param ticker   The ticker symbol.
+ * @param industry The industry from the screener export, or null if it has no "Industry" column.
+ */
+public record UniverseEntry(String ticker, String industry) {
+}
@@ -0,0 +1,62 @@
+package com.sigmaflow.universe;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Loads the ticker universe from a screener export such as finviz's CSV. The ticker is read from the "Ticker" (or
+ * "Symbol") column, or from the first column if the header has neither, along with the "Industry" column if present.
+ * Rows are screened as the file is scanned, so only the tickers of qualifying rows are ever decoded and handed on.
+ */
+public final class UniverseLoader {
+
+    private static final Logger logger = LogManager.getLogger(UniverseLoader.class);
+
+    private UniverseLoader() {
+    }
+
+    /**
+     * @return The rows passing the screen, one per ticker, in file order.
+     * @throws IllegalArgumentException If a screened column is not in the header.
+     */
+    public static List<UniverseEntry> load(Path file, Screen screen) throws IOException {
+        CsvCursor cursor = CsvCursor.open(file);
+        if (!cursor.next()) {
+            return List.of();
+        }
+        int tickerField = Screen.columnIndex(cursor, "Ticker");
+        if (tickerField < 0) {
+            tickerField = Screen.columnIndex(cursor, "Symbol");
+        }
+        if (tickerField < 0) {
+            tickerField = 0;
+        }
+        int industryField = Screen.columnIndex(cursor, "Industry");
+        Screen.Bound bound = screen.bind(cursor);
+
+        Set<String> tickers = new HashSet<>();
+        List<UniverseEntry> entries = new ArrayList<>();
+        int rows = 0;
+        while (cursor.next()) {
+            rows++;
+            if (!bound.test(cursor)) {
+                continue;
+            }
+            String ticker = cursor.string(tickerField);
+            if (ticker != null && !ticker.isEmpty() && tickers.add(ticker)) {
+                entries.add(new UniverseEntry(ticker, industryField >= 0 ? cursor.string(industryField) : null));
+            }
+        }
+        logger.info("Loaded {} of {} tickers from {} (screen: {})", box(entries.size()), box(rows), file, screen);
+        return List.copyOf(entries);
+    }
+}